@@ -17,24 +17,35 @@
 package application;
 
 import java.io.BufferedReader;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.UnsupportedEncodingException;
+import java.net.BindException;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.net.URLEncoder;
+import java.net.UnknownHostException;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLHandshakeException;
+import javax.net.ssl.SSLPeerUnverifiedException;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import com.google.gson.GsonBuilder;
-
 import application.exceptions.GoogleSheetsException;
 import application.models.PropertiesHolder;
+import application.models.SheetsPayload;
 import application.models.json.GoogleSheetsResponse;
 import application.services.FileIO;
 
@@ -50,6 +61,12 @@ public class AppUtil {
 	/** the format for the URL, needing spreadsheetId, worksheetName, and apiKey. */
 	public static final String SPREADSHEET_URL_FORMAT = "https://sheets.googleapis.com/v4/spreadsheets/%s/values/%s?key=%s&majorDimension=COLUMNS&valueRenderOption=FORMATTED_VALUE";
 
+	/**
+	 * the format for a batch URL, reading several worksheets in one request;
+	 * needing spreadsheetId, ranges (see {@link #toBatchRanges}), and apiKey.
+	 */
+	public static final String SPREADSHEET_BATCH_URL_FORMAT = "https://sheets.googleapis.com/v4/spreadsheets/%s/values:batchGet?%s&key=%s&majorDimension=COLUMNS&valueRenderOption=FORMATTED_VALUE";
+
 	/** @return the singleton instance of AppUtil. */
 	public static AppUtil get() {
 		return INSTANCE;
@@ -80,14 +97,88 @@ public class AppUtil {
 	 * @throws GoogleSheetsException
 	 */
 	public GoogleSheetsResponse getGoogleSheetsData(String url) throws IOException, GoogleSheetsException {
+		return fetchGoogleSheetsData(url).parse(GoogleSheetsResponse.class);
+	}
+
+	/**
+	 * Create a connection to the Google Sheets v4 API using the given {@link URL},
+	 * reading the body without parsing it.
+	 * 
+	 * @return a {@link SheetsPayload} of the raw response, fingerprinted.
+	 * @throws IOException
+	 *             if the connection to Google Sheets fails
+	 * @throws GoogleSheetsException
+	 */
+	public SheetsPayload fetchGoogleSheetsData(String url) throws IOException, GoogleSheetsException {
 		HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
 
 		if (200 <= conn.getResponseCode() && conn.getResponseCode() <= 399) {
-			return new GsonBuilder().create().fromJson(
-					new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8), GoogleSheetsResponse.class);
+			return SheetsPayload.read(conn.getInputStream());
 		} else {
 			StringBuilder sb = AppUtil.getMessageFromStream(conn.getErrorStream());
-			throw GoogleSheetsException.fromJsonString(url, sb.toString());
+			throw GoogleSheetsException.fromJsonString(url, conn.getResponseCode(), sb.toString());
+		}
+	}
+
+	/**
+	 * @return whether the given exception, from a request to Google Sheets, is a
+	 *         blip worth retrying (network unavailable, timeouts, Google rate
+	 *         limiting or server errors), as opposed to a problem with config that
+	 *         needs user intervention.
+	 */
+	public static boolean isTransient(Throwable e) {
+		for (Throwable t = e; t != null; t = t.getCause()) {
+			if (t instanceof GoogleSheetsException) {
+				return ((GoogleSheetsException) t).isTransient();
+			}
+			if (t instanceof BindException) {
+				// Our own port is taken; retrying won't free it up
+				return false;
+			}
+			if (t instanceof SSLHandshakeException || t instanceof SSLPeerUnverifiedException) {
+				// Certificates and protocols won't fix themselves
+				return false;
+			}
+			if (t instanceof SSLException) {
+				// Only if the connection beneath it was lost, e.g. reset or cut short
+				return isConnectionLost(t.getCause());
+			}
+			if (t instanceof UnknownHostException || t instanceof SocketException
+					|| t instanceof SocketTimeoutException) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean isConnectionLost(Throwable e) {
+		for (Throwable t = e; t != null; t = t.getCause()) {
+			if (t instanceof SocketException || t instanceof SocketTimeoutException || t instanceof EOFException) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return the query string part for {@link #SPREADSHEET_BATCH_URL_FORMAT},
+	 *         requesting the whole of each of the given worksheets, e.g.
+	 *         'ranges=%27Teams%27&ranges=%27Scores%27'. Each is quoted as a sheet
+	 *         reference, so a worksheet named e.g. 'A1' or 'Sheet1!B2' isn't taken
+	 *         for a range within another.
+	 */
+	public static String toBatchRanges(List<String> worksheets) {
+		return worksheets.stream() //
+				.map(w -> "ranges=" + encodeQueryValue("'" + w.replace("'", "''") + "'")) //
+				.collect(Collectors.joining("&"));
+	}
+
+	/** @return the value escaped for use in a url's query string. */
+	private static String encodeQueryValue(String value) {
+		try {
+			return URLEncoder.encode(value, StandardCharsets.UTF_8.name()).replace("+", "%20");
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException("UTF-8 is always supported", e);
 		}
 	}
 
@@ -0,0 +1,147 @@
+/**
+ * Headless.java is part of the "SheetsIO" project (c) by Mark "Grandy" Bishop, 2021.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package application;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import application.models.ConfigHolder;
+import application.models.PropertiesHolder;
+import application.models.UpdateStatus;
+import application.panels.ConfigPanel;
+import application.services.FileIO;
+import application.services.FileUpdater;
+import application.threads.ThreadCollector;
+import application.threads.UpdateRunnable;
+
+/**
+ * Entry point for running without a window (and without starting JavaFX at
+ * all), e.g. on a headless server. Reads application.properties as usual, runs
+ * the configs given as arguments - or, with none, the last config and any
+ * 'extra.configs' - and updates them automatically.
+ *
+ * Once running, it is controlled through the webserver's /update, /autoupdate,
+ * /reload and /status routes (/autoupdate and /reload only by POST); to control
+ * it from another machine, set 'http.bind.address'. Errors and status changes
+ * are only logged.
+ *
+ * @author Mark "Grandy" Bishop
+ */
+public class Headless implements IExceptionHandler, IUpdateStatusListener {
+	private static final Logger LOGGER = LogManager.getLogger(Headless.class);
+
+	public static void main(String[] args) {
+		LOGGER.info("Starting up headless...");
+		// Image conversion must not try to find a display
+		System.setProperty("java.awt.headless", "true");
+
+		List<String> configPaths = args.length > 0 ? Arrays.asList(args) : getConfigPathsFromProperties();
+		if (configPaths.isEmpty()) {
+			LOGGER.error("No configs to run; pass config file paths as arguments, or set '{}' in {}",
+					PropertiesHolder.LAST_CONFIG, PropertiesHolder.FILE_NAME);
+			System.exit(1);
+		}
+		if (!PropertiesHolder.get().isLoaded()) {
+			LOGGER.warn("No '{}' set in {}; updates will fail until one is added", PropertiesHolder.API_KEY,
+					PropertiesHolder.FILE_NAME);
+		}
+
+		if (!new Headless().start(configPaths)) {
+			System.exit(1);
+		}
+	}
+
+	static List<String> getConfigPathsFromProperties() {
+		List<String> paths = new ArrayList<>();
+		String lastConfigPath = PropertiesHolder.get().getProperty(PropertiesHolder.LAST_CONFIG);
+		if (lastConfigPath != null && !lastConfigPath.isEmpty()) {
+			paths.add(lastConfigPath);
+		}
+		paths.addAll(PropertiesHolder.get().getExtraConfigs());
+		return paths;
+	}
+
+	/**
+	 * Prepare the folders, load the configs and begin the update loop.
+	 *
+	 * @return whether any config was loaded and is now being run
+	 */
+	private boolean start(List<String> configPaths) {
+		FileIO fileIO = new FileIO();
+		try {
+			fileIO.createFolder(ConfigPanel.LOGS_FOLDER);
+			fileIO.createFolder(FileUpdater.FOLDER_PREFIX);
+			fileIO.createFolder(ConfigPanel.TEMP_FOLDER);
+		} catch (IOException e) {
+			LOGGER.error("Unable to create the initial folders", e);
+			return false;
+		}
+
+		UpdateRunnable updateRunnable = ThreadCollector.registerUpdateLoop(new UpdateRunnable(this, this));
+		updateRunnable.startHttpService();
+		int loaded = 0;
+		for (String configPath : configPaths) {
+			ConfigHolder configHolder = new ConfigHolder();
+			try {
+				configHolder.loadFile(new File(configPath));
+			} catch (Exception e) {
+				LOGGER.error("Unable to load config '{}'", configPath, e);
+				continue;
+			}
+			configHolder.setAutoUpdate(true);
+			updateRunnable.updateConfig(configHolder, true);
+			LOGGER.info("Running project '{}' from '{}'", configHolder.getProjectName(), configPath);
+			loaded++;
+		}
+		if (loaded == 0) {
+			LOGGER.error("None of the given configs could be loaded");
+			return false;
+		}
+
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			LOGGER.info("Shutting down");
+			ThreadCollector.stopAllThreads();
+		}));
+		new Thread(updateRunnable, "update-loop").start();
+		return true;
+	}
+
+	@Override
+	public void handleException(Exception e) {
+		LOGGER.error("Updating has stopped; fix the issue, then use /update or /reload to resume", e);
+	}
+
+	@Override
+	public void handleAutoUpdateChange(boolean autoUpdate) {
+		LOGGER.info("Automatic updating turned {}", autoUpdate ? "on" : "off");
+	}
+
+	@Override
+	public void handleUpdateStatus(UpdateStatus status, String detail) {
+		if (UpdateStatus.OK.equals(status)) {
+			LOGGER.info("Update status: {}", status);
+		} else {
+			LOGGER.warn("Update status: {} {}", status, detail);
+		}
+	}
+}
@@ -37,6 +37,12 @@ public interface IApplicationOps {
 	/** Open the system default browser with the given url */
 	void openBrowser(String url);
 
+	/**
+	 * Run the given code on the UI thread, e.g. once background work has
+	 * finished.
+	 */
+	void runLater(Runnable runnable);
+
 	/** Open an alert. */
 	// void openAlert(String title, String header, String message);
 }
@@ -0,0 +1,45 @@
+/**
+ * IUpdateStatusListener.java is part of the "SheetsIO" project (c) by Mark "Grandy" Bishop, 2021.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package application;
+
+import application.models.UpdateStatus;
+import application.threads.UpdateRunnable;
+
+/**
+ * Receives changes in health of the {@link UpdateRunnable}, so the user can see
+ * when updates are being retried or have stopped altogether. May be called from
+ * any thread.
+ *
+ * @author Mark "Grandy" Bishop
+ */
+public interface IUpdateStatusListener {
+	/**
+	 * Handle a change in the update loop's status.
+	 * 
+	 * @param detail
+	 *            extra human-readable context, e.g. when the next retry is; may
+	 *            be empty
+	 */
+	void handleUpdateStatus(UpdateStatus status, String detail);
+
+	/**
+	 * Handle automatic updating being turned on or off other than by the user's
+	 * own hand, e.g. through the webserver's /autoupdate route.
+	 */
+	default void handleAutoUpdateChange(boolean autoUpdate) {
+	}
+}
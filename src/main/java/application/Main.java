@@ -27,6 +27,7 @@ import application.guis.MainGui;
 import application.models.PropertiesHolder;
 import application.threads.ThreadCollector;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.scene.Scene;
 import javafx.scene.image.Image;
 import javafx.stage.Stage;
@@ -68,6 +69,11 @@ public class Main extends Application implements IApplicationOps {
 		getHostServices().showDocument(url);
 	}
 
+	@Override
+	public void runLater(Runnable runnable) {
+		Platform.runLater(runnable);
+	}
+
 	public static void main(String[] args) {
 		LOGGER.info("____________________");
 		LOGGER.info("Starting up...");
@@ -45,6 +45,14 @@ public class GoogleSheetsException extends Exception {
 
 	/** Create a {@link GoogleSheetsException} from the given response json. */
 	public static GoogleSheetsException fromJsonString(String url, String json) {
+		return fromJsonString(url, -1, json);
+	}
+
+	/**
+	 * Create a {@link GoogleSheetsException} from the given response json, falling
+	 * back to the http response code should the body not be json.
+	 */
+	public static GoogleSheetsException fromJsonString(String url, int responseCode, String json) {
 		try {
 			JsonElement elem = JsonParser.parseString(json);
 			JsonElement error = elem.getAsJsonObject().get("error");
@@ -59,11 +67,19 @@ public class GoogleSheetsException extends Exception {
 			 * In the case of a 'bad request', we don't get json back, we get html in a
 			 * weird format.
 			 */
-			return new GoogleSheetsException(url, -1, json,
+			return new GoogleSheetsException(url, responseCode, json,
 					"Unable to parse response from Google - expected json but received the following");
 		}
 	}
 
+	/**
+	 * @return whether the error is likely to go away by itself if retried, i.e.
+	 *         rate limiting (429) or a server-side failure (5xx).
+	 */
+	public boolean isTransient() {
+		return code == 429 || code >= 500;
+	}
+
 	/**
 	 * @return formatted header of the following format.
 	 * 
@@ -0,0 +1,42 @@
+/**
+ * ProjectUpdateException.java is part of the "SheetsIO" project (c) by Mark "Grandy" Bishop, 2021.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package application.exceptions;
+
+import lombok.Getter;
+
+/**
+ * Checked exception for when one of the running projects stops updating, so the
+ * user knows which of them needs their attention; the others carry on.
+ *
+ * @author Mark "Grandy" Bishop
+ */
+public class ProjectUpdateException extends Exception {
+	private static final long serialVersionUID = 1L;
+
+	@Getter
+	private final String projectName;
+
+	public ProjectUpdateException(String projectName, Exception e) {
+		super(String.format("Project '%s' has stopped updating: %s", projectName, e.getMessage()), e);
+		this.projectName = projectName;
+	}
+
+	@Override
+	public synchronized Exception getCause() {
+		return (Exception) super.getCause();
+	}
+}
@@ -20,13 +20,16 @@ import java.io.File;
 
 import application.IApplicationOps;
 import application.models.PropertiesHolder;
+import application.models.UpdateStatus;
 import application.panels.ConfigPanel;
+import javafx.application.Platform;
 import javafx.geometry.Pos;
 import javafx.scene.control.Button;
 import javafx.scene.control.CheckBox;
 import javafx.scene.control.Hyperlink;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
+import javafx.scene.shape.Circle;
 import javafx.scene.text.Text;
 import javafx.stage.FileChooser;
 
@@ -43,6 +46,8 @@ public class ConfigGui extends BaseGui<ConfigPanel, ConfigPanel.Gui, VBox> imple
 	private final Text chosenConfigName = new Text();
 	private final CheckBox autoUpdateCheck = new CheckBox("Auto update");
 	private final Button updateNowButton = new Button("Update now");
+	private HBox updateMethodLayout;
+	private Circle updateStatusCircle = UpdateStatus.getIndicatorCircle(UpdateStatus.OK, "");
 
 	public ConfigGui(IApplicationOps app) {
 		super(app, new ConfigPanel(), new VBox(PropertiesHolder.INTERNAL_SPACING));
@@ -110,7 +115,11 @@ public class ConfigGui extends BaseGui<ConfigPanel, ConfigPanel.Gui, VBox> imple
 		updateNowButton.getStyleClass().add("update-now-button");
 		autoUpdateCheck.getStyleClass().add("auto-update-checkbox");
 
-		VBox updateLayout = new VBox(updateMethodText, updateBox);
+		updateMethodLayout = new HBox(updateMethodText, updateStatusCircle);
+		updateMethodLayout.setAlignment(Pos.CENTER_LEFT);
+		updateMethodLayout.setSpacing(5);
+
+		VBox updateLayout = new VBox(updateMethodLayout, updateBox);
 		updateLayout.setSpacing(PropertiesHolder.INTERNAL_SPACING);
 		getLayout().add(updateLayout);
 	}
@@ -140,4 +149,14 @@ public class ConfigGui extends BaseGui<ConfigPanel, ConfigPanel.Gui, VBox> imple
 		updateNowButton.setDisable(!enabled);
 	}
 
+	@Override
+	public void setUpdateStatus(UpdateStatus status, String detail) {
+		// Called from the update thread, so hop onto the JavaFX one
+		Platform.runLater(() -> {
+			updateMethodLayout.getChildren().remove(updateStatusCircle);
+			updateStatusCircle = UpdateStatus.getIndicatorCircle(status, detail);
+			updateMethodLayout.getChildren().add(1, updateStatusCircle);
+		});
+	}
+
 }
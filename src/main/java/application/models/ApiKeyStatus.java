@@ -23,7 +23,8 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 
 /**
- * Enum for state of the apiKey; LOADED/INCOMPLETE/MISSING.
+ * Enum for state of the apiKey; LOADED/INCOMPLETE/MISSING/ERROR, or CHECKING
+ * whilst waiting to hear back from Google.
  *
  * @author Mark "Grandy" Bishop
  */
@@ -32,7 +33,8 @@ public enum ApiKeyStatus {
 	LOADED("Loaded successfully"),
 	MISSING(PropertiesHolder.FILE_NAME + " file is missing"),
 	INCOMPLETE("apiKey entry not found in " + PropertiesHolder.FILE_NAME),
-	ERROR("apiKey is invalid");
+	ERROR("apiKey is invalid"),
+	CHECKING("Checking the apiKey with Google...");
 
 	@Getter
 	String message;
@@ -50,6 +52,9 @@ public enum ApiKeyStatus {
 		case INCOMPLETE:
 			circle.setFill(Color.ORANGE);
 			break;
+		case CHECKING:
+			circle.setFill(Color.GREY);
+			break;
 		case MISSING:
 		case ERROR:
 			circle.setFill(Color.RED);
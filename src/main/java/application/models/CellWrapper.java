@@ -21,7 +21,6 @@ import application.models.json.Cell;
 import application.models.json.ICell;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
-import lombok.RequiredArgsConstructor;
 import lombok.ToString;
 
 /**
@@ -29,13 +28,23 @@ import lombok.ToString;
  * columns.
  * 
  * e.g. A1 = 0,0 / B3 = 1,2 / AA45 = 26,44 etc
+ * 
+ * The reference may be qualified with the worksheet (tab) it lives on, e.g.
+ * 'Scores!B4'; unqualified references belong to the config's worksheetName.
  *
  * @author Mark "Grandy" Bishop
  */
 @ToString
-@EqualsAndHashCode(of = { "col", "row" })
-@RequiredArgsConstructor
+@EqualsAndHashCode(of = { "worksheet", "col", "row" })
 public final class CellWrapper implements ICell {
+	private static final char WORKSHEET_SEPARATOR = '!';
+
+	/**
+	 * The worksheet (tab) the cell lives on, e.g. 'Scores'. Null when not known,
+	 * i.e. when created without a config.
+	 */
+	@Getter
+	private final String worksheet;
 
 	/** 0-indexed column number. */
 	@Getter
@@ -45,7 +54,10 @@ public final class CellWrapper implements ICell {
 	@Getter
 	private final int row;
 
-	/** The coord reference itself, e.g. 'A4'. Only used for debug purposes. */
+	/**
+	 * The coord reference itself without worksheet, e.g. 'A4'. Only used for debug
+	 * purposes.
+	 */
 	@Getter
 	private final String coordString;
 
@@ -55,26 +67,36 @@ public final class CellWrapper implements ICell {
 	private final Cell cell;
 
 	public CellWrapper(Cell cell) throws IllegalFileExtensionException {
+		this(cell, null);
+	}
+
+	/**
+	 * @param defaultWorksheet
+	 *            the worksheet to use if the cell reference doesn't name one
+	 */
+	public CellWrapper(Cell cell, String defaultWorksheet) throws IllegalFileExtensionException {
 		this.cell = cell;
-		this.coordString = cell.getCell();
+		String ref = cell.getCell();
+		int separator = ref.lastIndexOf(WORKSHEET_SEPARATOR);
+		if (separator >= 0) {
+			this.worksheet = unquote(ref.substring(0, separator));
+			this.coordString = ref.substring(separator + 1);
+		} else {
+			this.worksheet = defaultWorksheet;
+			this.coordString = ref;
+		}
 		this.col = toColumnNumber(this.coordString);
 		this.row = toRowNumber(this.coordString);
 		this.fileExtension = FileExtension.fromRaw(cell.getFileExtension());
 	}
 
-	/**
-	 * Create a CellWrapper just from the Google-provided row/col values; we don't
-	 * need to know an alphabetical reference as the system only cares about row/col
-	 * in the end.
-	 * 
-	 * @param col
-	 *            The column id (zero-indexed)
-	 * @param row
-	 *            The row id (zero-indexed)
-	 * @return a {@link CellWrapper}
-	 */
-	public static CellWrapper fromGoogleCoord(int col, int row) {
-		return new CellWrapper(col, row, "N/A", null);
+	/** @return the worksheet name without the quotes sheets uses, e.g. 'My Tab'. */
+	private static String unquote(String worksheet) {
+		String trimmed = worksheet.trim();
+		if (trimmed.length() >= 2 && trimmed.startsWith("'") && trimmed.endsWith("'")) {
+			return trimmed.substring(1, trimmed.length() - 1).replace("''", "'");
+		}
+		return trimmed;
 	}
 
 	private static int toRowNumber(String coord) {
@@ -19,13 +19,14 @@ package application.models;
 import java.io.File;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import javax.validation.ConstraintViolation;
 import javax.validation.Validation;
 import javax.validation.Validator;
-import javax.validation.ValidatorFactory;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.logging.log4j.LogManager;
@@ -39,58 +40,89 @@ import application.exceptions.IllegalFileExtensionException;
 import application.exceptions.JsonValidationException;
 import application.models.json.Cell;
 import application.models.json.Config;
+import application.models.json.Scene;
 import lombok.Getter;
+import lombok.Value;
 
 /**
  * Wrapper around {@link Config}, accessing its data and reading in data.
+ * 
+ * Everything read from a config file is replaced as a whole, in one go, so a
+ * reader (e.g. the update loop) never sees part of one config and part of
+ * another; the lists handed out are never changed.
  *
  * @author Mark "Grandy" Bishop
  */
 public class ConfigHolder {
 	private static final Logger LOGGER = LogManager.getLogger(ConfigHolder.class);
 
-	/** Cached version of most recent config {@link File}. */
-	private File lastFile;
-
 	@Getter
-	private boolean autoUpdate = false;
+	private volatile boolean autoUpdate = false;
 
-	/** The latest loaded config. */
-	private Config config;
+	/** The latest loaded config, or null if none has been yet. */
+	private volatile Loaded loaded;
 
 	private static ConfigHolder INSTANCE = new ConfigHolder();
 
-	/**
-	 * CellWrappers, made from Cells, used by the rest of the app, wiped/repopulated
-	 * on config load.
-	 */
-	private List<CellWrapper> cellWrappers = new ArrayList<>();
+	/** Costly to build, so shared by every load; validators are thread-safe. */
+	private static Validator validator;
+
+	/** Everything read from a config file; never changed once made. */
+	@Value
+	private static class Loaded {
+		/** The file it was read from; null only in tests. */
+		File file;
+		Config config;
+		/** CellWrappers, made from Cells, used by the rest of the app. */
+		List<CellWrapper> cellWrappers;
+		/** Scenes of the config, with their templates read in. */
+		List<SceneWrapper> sceneWrappers;
+	}
+
+	public String getProjectName() {
+		return getLoaded().getConfig().getProjectName();
+	}
+
+	public String getSpreadsheetId() {
+		return getLoaded().getConfig().getSpreadsheetId();
+	}
+
+	public String getWorksheetName() {
+		return getLoaded().getConfig().getWorksheetName();
+	}
 
-	public synchronized String getProjectName() {
-		assert config != null : "No config available";
-		return config.getProjectName();
+	/** @return the config's cells; the list can't be changed. */
+	public List<CellWrapper> getCells() throws IllegalFileExtensionException {
+		return getLoaded().getCellWrappers();
 	}
 
-	public synchronized String getSpreadsheetId() {
-		assert config != null : "No config available";
-		return config.getSpreadsheetId();
+	/** @return the config's scenes, if it has any; the list can't be changed. */
+	public List<SceneWrapper> getScenes() {
+		Loaded current = this.loaded;
+		return current == null ? Collections.emptyList() : current.getSceneWrappers();
 	}
 
-	public synchronized String getWorksheetName() {
-		assert config != null : "No config available";
-		return config.getWorksheetName();
+	/**
+	 * @return the distinct worksheets referenced by the config's cells, in order
+	 *         of first appearance.
+	 */
+	public List<String> getWorksheetNames() {
+		return getLoaded().getCellWrappers().stream().map(CellWrapper::getWorksheet).distinct()
+				.collect(Collectors.toList());
 	}
 
-	public synchronized List<CellWrapper> getCells() throws IllegalFileExtensionException {
-		assert config != null : "No config loaded";
-		return cellWrappers;
+	public boolean isLoaded() {
+		Loaded current = this.loaded;
+		return current != null && current.getFile() != null;
 	}
 
-	public synchronized boolean isLoaded() {
-		return lastFile != null;
+	private Loaded getLoaded() {
+		Loaded current = this.loaded;
+		assert current != null : "No config loaded";
+		return current;
 	}
 
-	public synchronized void setAutoUpdate(boolean update) {
+	public void setAutoUpdate(boolean update) {
 		LOGGER.debug("Autoupdate set to {}", update);
 		this.autoUpdate = update;
 	}
@@ -102,9 +134,9 @@ public class ConfigHolder {
 	 *             any exception from config loading.
 	 */
 	public synchronized void reload() throws Exception {
-		assert lastFile != null : "There is no existing config file loaded";
+		assert isLoaded() : "There is no existing config file loaded";
 		LOGGER.debug("Reloading.");
-		loadFile(lastFile);
+		loadFile(this.loaded.getFile());
 	}
 
 	/**
@@ -124,26 +156,40 @@ public class ConfigHolder {
 		Config conf = new GsonBuilder().create().fromJson(jsonStr, Config.class);
 		LOGGER.debug(conf);
 
-		ValidatorFactory factory = Validation.buildDefaultValidatorFactory();
-		Validator validator = factory.getValidator();
-		Set<ConstraintViolation<Config>> violations = validator.validate(conf);
+		Set<ConstraintViolation<Config>> violations = getValidator().validate(conf);
 
 		if (!violations.isEmpty()) {
 			throw new JsonValidationException(violations);
 		}
 
-		this.lastFile = file;
-		this.config = conf;
+		// Read before anything is replaced, so a missing template leaves the last config as it was
+		List<SceneWrapper> scenes = new ArrayList<>();
+		for (Scene scene : conf.getScenes()) {
+			if (scene != null) {
+				scenes.add(SceneWrapper.from(scene, file));
+			}
+		}
 
-		cellWrappers.clear();
-		for (Cell cell : config.getCells()) {
+		List<CellWrapper> cells = new ArrayList<>();
+		for (Cell cell : conf.getCells()) {
 			if (cell != null) {
-				cellWrappers.add(new CellWrapper(cell));
+				cells.add(new CellWrapper(cell, conf.getWorksheetName()));
 			} else {
 				LOGGER.debug(
 						"Detected empty/null entry in the 'cells' array; Check that your 'cells' array in config does not have any double commas ,, or a comma after the last element of the array.");
 			}
 		}
+
+		// All at once, so nobody sees half of one config and half of another
+		this.loaded = new Loaded(file, conf, Collections.unmodifiableList(cells),
+				Collections.unmodifiableList(scenes));
+	}
+
+	private static synchronized Validator getValidator() {
+		if (validator == null) {
+			validator = Validation.buildDefaultValidatorFactory().getValidator();
+		}
+		return validator;
 	}
 
 	/** @return {@link ConfigHolder} single instance. */
@@ -157,7 +203,6 @@ public class ConfigHolder {
 	 */
 	@Deprecated
 	public void setupConfigForTest(Config config, List<CellWrapper> cells) {
-		this.config = config;
-		this.cellWrappers = cells;
+		this.loaded = new Loaded(null, config, Collections.unmodifiableList(cells), Collections.emptyList());
 	}
 }
@@ -21,8 +21,11 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Properties;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -40,7 +43,10 @@ public class PropertiesHolder {
 	// Sample
 	private static final String SAMPLE_API_TEST_SPREADSHEET_ID = "1z2BtJTik73zIUvKi0y9RZbImDyWp_RiQikaEeFBF5E8";
 	private static final String SAMPLE_API_TEST_WORKBOOK_ID = "Test";
+	private static final String DEFAULT_BIND_ADDRESS = "localhost";
 	private static final String DEFAULT_PORT = "8001";
+	private static final String DEFAULT_WEBSOCKET_PORT = "8002";
+	private static final String DEFAULT_HTTP_THREADS = "10";
 
 	public static final String COMMENT = " Set 'apiKey' below as the key from https://console.developers.google.com/ - e.g. apikey=123abc;";
 	public static final String FILE_NAME = "application.properties";
@@ -48,8 +54,17 @@ public class PropertiesHolder {
 	public static final String API_KEY_TEST_SPREADSHEET_ID = "apiKey.test.spreadsheetId";
 	public static final String API_KEY_TEST_WORKBOOK_ID = "apiKey.test.workbookId";
 	public static final String LAST_CONFIG = "last.config";
+	public static final String EXTRA_CONFIGS = "extra.configs";
+	public static final String HTTP_BIND_ADDRESS = "http.bind.address";
 	public static final String HTTP_PORT = "http.port";
+	public static final String WEBSOCKET_PORT = "http.websocket.port";
+	public static final String HTTP_THREADS = "http.threads";
+	public static final String HTTP_MAX_REQUESTS = "http.max.requests";
+	public static final String HTTP_READ_TIMEOUT = "http.read.timeout";
+	public static final String HTTP_WRITE_TIMEOUT = "http.write.timeout";
+	public static final String HTTP_KEEP_ALIVE = "http.keepalive";
 	public static final String UPDATE_INTERVAL = "update.interval";
+	public static final String UPDATE_BACKOFF_MAX = "update.backoff.max";
 	public static final String FOLDER_CONTEXT = "";
 
 	public static final int SCENE_WIDTH = 210;
@@ -67,6 +82,27 @@ public class PropertiesHolder {
 	 */
 	private static final long DEFAULT_UPDATE_INTERVAL = 2000L;
 
+	/**
+	 * The longest the update loop will wait between retries when Google (or the
+	 * network) is having a bad time.
+	 */
+	private static final long DEFAULT_UPDATE_BACKOFF_MAX = 60000L;
+
+	/**
+	 * Requests the webserver will have in hand at once before turning more away;
+	 * plenty for a few hundred browser sources loading together.
+	 */
+	private static final long DEFAULT_HTTP_MAX_REQUESTS = 200L;
+	/** How long a client has to send its whole request. */
+	private static final long DEFAULT_HTTP_READ_TIMEOUT = 10000L;
+	/**
+	 * How long a client has to take a whole response; 0 for no limit, as event
+	 * streams are one long response.
+	 */
+	private static final long DEFAULT_HTTP_WRITE_TIMEOUT = 0L;
+	/** How long an idle connection is kept open for the client's next request. */
+	private static final long DEFAULT_HTTP_KEEP_ALIVE = 30000L;
+
 	private final Properties props = new Properties();
 	private ApiKeyStatus apiKeyStatus = ApiKeyStatus.MISSING;
 
@@ -100,8 +136,17 @@ public class PropertiesHolder {
 		loadWithDefaultIfNotExist(API_KEY_TEST_SPREADSHEET_ID, SAMPLE_API_TEST_SPREADSHEET_ID);
 		loadWithDefaultIfNotExist(API_KEY_TEST_WORKBOOK_ID, SAMPLE_API_TEST_WORKBOOK_ID);
 		loadWithDefaultIfNotExist(LAST_CONFIG, "");
+		loadWithDefaultIfNotExist(EXTRA_CONFIGS, "");
+		loadWithDefaultIfNotExist(HTTP_BIND_ADDRESS, DEFAULT_BIND_ADDRESS);
 		loadWithDefaultIfNotExist(HTTP_PORT, DEFAULT_PORT);
+		loadWithDefaultIfNotExist(WEBSOCKET_PORT, DEFAULT_WEBSOCKET_PORT);
+		loadWithDefaultIfNotExist(HTTP_THREADS, DEFAULT_HTTP_THREADS);
+		loadWithDefaultIfNotExist(HTTP_MAX_REQUESTS, Long.toString(DEFAULT_HTTP_MAX_REQUESTS));
+		loadWithDefaultIfNotExist(HTTP_READ_TIMEOUT, Long.toString(DEFAULT_HTTP_READ_TIMEOUT));
+		loadWithDefaultIfNotExist(HTTP_WRITE_TIMEOUT, Long.toString(DEFAULT_HTTP_WRITE_TIMEOUT));
+		loadWithDefaultIfNotExist(HTTP_KEEP_ALIVE, Long.toString(DEFAULT_HTTP_KEEP_ALIVE));
 		loadWithDefaultIfNotExist(UPDATE_INTERVAL, Long.toString(DEFAULT_UPDATE_INTERVAL));
+		loadWithDefaultIfNotExist(UPDATE_BACKOFF_MAX, Long.toString(DEFAULT_UPDATE_BACKOFF_MAX));
 		try {
 			flush();
 		} catch (Exception e) {
@@ -127,7 +172,57 @@ public class PropertiesHolder {
 	}
 
 	public Long getUpdateInterval() {
-		String prop = getProperty(UPDATE_INTERVAL);
+		return getMillisProperty(UPDATE_INTERVAL, DEFAULT_UPDATE_INTERVAL);
+	}
+
+	public Long getMaxUpdateBackoff() {
+		return getMillisProperty(UPDATE_BACKOFF_MAX, DEFAULT_UPDATE_BACKOFF_MAX);
+	}
+
+	/**
+	 * @return the address the webservers listen on; only this machine by default,
+	 *         but e.g. '0.0.0.0' lets other machines (such as a streaming PC) in.
+	 */
+	public String getHttpBindAddress() {
+		String prop = getProperty(HTTP_BIND_ADDRESS);
+		return (prop == null || prop.trim().isEmpty()) ? DEFAULT_BIND_ADDRESS : prop.trim();
+	}
+
+	public Long getHttpMaxRequests() {
+		return getLongProperty(HTTP_MAX_REQUESTS, DEFAULT_HTTP_MAX_REQUESTS, "");
+	}
+
+	public Long getHttpReadTimeout() {
+		return getMillisProperty(HTTP_READ_TIMEOUT, DEFAULT_HTTP_READ_TIMEOUT);
+	}
+
+	public Long getHttpWriteTimeout() {
+		return getMillisProperty(HTTP_WRITE_TIMEOUT, DEFAULT_HTTP_WRITE_TIMEOUT);
+	}
+
+	public Long getHttpKeepAlive() {
+		return getMillisProperty(HTTP_KEEP_ALIVE, DEFAULT_HTTP_KEEP_ALIVE);
+	}
+
+	/**
+	 * @return paths of any configs to run alongside the selected one, separated
+	 *         by ';' in application.properties.
+	 */
+	public List<String> getExtraConfigs() {
+		String prop = getProperty(EXTRA_CONFIGS);
+		if (prop == null) {
+			return Arrays.asList();
+		}
+		return Arrays.stream(prop.split(";")).map(String::trim).filter(s -> !s.isEmpty())
+				.collect(Collectors.toList());
+	}
+
+	private Long getMillisProperty(String key, long defaultValue) {
+		return getLongProperty(key, defaultValue, "ms");
+	}
+
+	private Long getLongProperty(String key, long defaultValue, String unit) {
+		String prop = getProperty(key);
 
 		try {
 			if (prop == null) {
@@ -138,10 +233,10 @@ public class PropertiesHolder {
 
 		} catch (NumberFormatException e) {
 			LOGGER.warn(
-					"Failed to load update interval from 'application.properties': '{}'ms - instead resetting to the default of '{}'ms",
-					prop, DEFAULT_UPDATE_INTERVAL);
-			props.setProperty(UPDATE_INTERVAL, Long.toString(DEFAULT_UPDATE_INTERVAL));
-			return DEFAULT_UPDATE_INTERVAL;
+					"Failed to load '{}' from 'application.properties': '{}'{} - instead resetting to the default of '{}'{}",
+					key, prop, unit, defaultValue, unit);
+			props.setProperty(key, Long.toString(defaultValue));
+			return defaultValue;
 		}
 	}
 
@@ -0,0 +1,83 @@
+/**
+ * SceneWrapper.java is part of the "SheetsIO" project (c) by Mark "Grandy" Bishop, 2021.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package application.models;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+
+import application.models.json.Scene;
+import application.models.json.SceneCell;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Wrapper around a {@link Scene} from config, along with the html of its
+ * template (if it has one), read in with the config so it's never read again
+ * for each page.
+ *
+ * @author Mark "Grandy" Bishop
+ */
+@ToString(exclude = "template")
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public final class SceneWrapper {
+	private final Scene scene;
+
+	/** The scene's own html, or null if it's laid out from its cells. */
+	@Getter
+	private final String template;
+
+	/**
+	 * @param configFile
+	 *            the config the scene is from; templates are relative to it
+	 * @throws IOException
+	 *             should the scene's template be unreadable
+	 */
+	public static SceneWrapper from(Scene scene, File configFile) throws IOException {
+		String template = null;
+		if (scene.getTemplate() != null && !scene.getTemplate().trim().isEmpty()) {
+			File templateFile = new File(configFile.getAbsoluteFile().getParentFile(), scene.getTemplate().trim());
+			template = FileUtils.readFileToString(templateFile, StandardCharsets.UTF_8);
+		}
+		return new SceneWrapper(scene, template);
+	}
+
+	public String getName() {
+		return scene.getName();
+	}
+
+	public int getWidth() {
+		return scene.getWidth();
+	}
+
+	public int getHeight() {
+		return scene.getHeight();
+	}
+
+	public List<SceneCell> getCells() {
+		return scene.getCells();
+	}
+
+	public boolean hasTemplate() {
+		return template != null;
+	}
+}
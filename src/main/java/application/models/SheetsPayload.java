@@ -0,0 +1,109 @@
+/**
+ * SheetsPayload.java is part of the "SheetsIO" project (c) by Mark "Grandy" Bishop, 2021.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package application.models;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+import org.apache.commons.io.IOUtils;
+
+import com.google.gson.GsonBuilder;
+
+import application.models.json.GoogleSheetsResponse;
+import lombok.Getter;
+
+/**
+ * The raw, unparsed body of a Google Sheets response, along with a fingerprint
+ * (hash) of its bytes taken while it was being read. Comparing fingerprints
+ * lets us tell a poll returned exactly what the last one did without parsing.
+ * 
+ * A payload may be shared by several projects reading the same spreadsheet, so
+ * the parsed form is kept and handed to each of them.
+ *
+ * @author Mark "Grandy" Bishop
+ */
+public final class SheetsPayload {
+	private static final String DIGEST_ALGORITHM = "SHA-256";
+
+	@Getter
+	private final byte[] body;
+
+	private final byte[] fingerprint;
+
+	/** The most recent result of {@link #parse(Class)}. */
+	private Object parsed;
+
+	private SheetsPayload(byte[] body, byte[] fingerprint) {
+		this.body = body;
+		this.fingerprint = fingerprint;
+	}
+
+	/**
+	 * Read the stream to the end, hashing as we go.
+	 * 
+	 * @throws IOException
+	 *             should reading from the stream fail
+	 */
+	public static SheetsPayload read(InputStream is) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			// Every JVM is required to support SHA-256
+			throw new IllegalStateException(e);
+		}
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DigestInputStream dis = new DigestInputStream(is, digest)) {
+			IOUtils.copy(dis, bytes);
+		}
+		return new SheetsPayload(bytes.toByteArray(), digest.digest());
+	}
+
+	/** @return a copy of the fingerprint, to compare later payloads against. */
+	public byte[] getFingerprint() {
+		return fingerprint.clone();
+	}
+
+	/**
+	 * @return whether this payload has the same content as that with the given
+	 *         fingerprint (if any).
+	 */
+	public boolean isSameAs(byte[] otherFingerprint) {
+		return otherFingerprint != null && Arrays.equals(this.fingerprint, otherFingerprint);
+	}
+
+	/**
+	 * @return the body parsed into the given bean type, e.g.
+	 *         {@link GoogleSheetsResponse}; parsed only once per type.
+	 */
+	public synchronized <T> T parse(Class<T> type) {
+		if (!type.isInstance(parsed)) {
+			parsed = new GsonBuilder().create()
+					.fromJson(new InputStreamReader(new ByteArrayInputStream(body), StandardCharsets.UTF_8), type);
+		}
+		return type.cast(parsed);
+	}
+}
@@ -0,0 +1,53 @@
+/**
+ * UpdateResult.java is part of the "SheetsIO" project (c) by Mark "Grandy" Bishop, 2021.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package application.models;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Small model for what a single cycle of the update loop did, for those who
+ * asked for it and want to know once it's done (e.g. '/update?wait=true').
+ *
+ * @author Mark "Grandy" Bishop
+ */
+@AllArgsConstructor
+@ToString
+@Getter
+public final class UpdateResult {
+	/** Names of the cells changed by the cycle, by project name. */
+	private final Map<String, List<String>> changedCells;
+
+	/** How long the cycle waited to begin, from when it was first asked for. */
+	private final long waitedMillis;
+	/** How long was spent fetching the spreadsheets. */
+	private final long fetchMillis;
+	/** How long was spent parsing, diffing and writing out the files. */
+	private final long writeMillis;
+	/** How long the cycle took, from beginning to its files being written. */
+	private final long totalMillis;
+
+	/** @return the result of a cycle that had nothing to update. */
+	public static UpdateResult none(long waitedMillis) {
+		return new UpdateResult(Collections.emptyMap(), waitedMillis, 0, 0, 0);
+	}
+}
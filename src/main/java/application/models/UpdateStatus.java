@@ -0,0 +1,66 @@
+/**
+ * UpdateStatus.java is part of the "SheetsIO" project (c) by Mark "Grandy" Bishop, 2021.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package application.models;
+
+import javafx.scene.control.Tooltip;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Circle;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Enum for state of the update loop, as its least healthy project; OK/DEGRADED/PAUSED.
+ *
+ * @author Mark "Grandy" Bishop
+ */
+@AllArgsConstructor
+public enum UpdateStatus {
+	OK("Updating normally"),
+	DEGRADED("Having trouble reaching Google Sheets; retrying automatically"),
+	PAUSED("Updates of a project paused due to an error; fix it, then 'update now' or tick 'auto update'");
+
+	@Getter
+	String message;
+
+	/**
+	 * @return a {@link Circle} that gives indication of health, with the given
+	 *         detail (if any) added to its tooltip.
+	 */
+	public static Circle getIndicatorCircle(UpdateStatus status, String detail) {
+		Circle circle = new Circle(0, 0, 5);
+		String text = (detail == null || detail.isEmpty()) ? status.getMessage()
+				: status.getMessage() + "\n" + detail;
+		Tooltip t = new Tooltip(text);
+		Tooltip.install(circle, t);
+
+		switch (status) {
+		case OK:
+			circle.setFill(Color.GREEN);
+			break;
+		case DEGRADED:
+			circle.setFill(Color.ORANGE);
+			break;
+		case PAUSED:
+			circle.setFill(Color.RED);
+			break;
+		default:
+			throw new IllegalArgumentException(
+					String.format("Unable to handle unknown %s %s", UpdateStatus.class.getSimpleName(), status));
+		}
+		return circle;
+	}
+}
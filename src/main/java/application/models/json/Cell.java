@@ -16,6 +16,7 @@
  */
 package application.models.json;
 
+import javax.validation.constraints.AssertTrue;
 import javax.validation.constraints.NotBlank;
 
 import lombok.AllArgsConstructor;
@@ -52,4 +53,16 @@ public final class Cell implements ICell {
 	 * appended onto the end.
 	 */
 	private String pad;
+
+	@AssertTrue(message = "\"cell\" reference must name a worksheet before any '!', e.g. \"Scores!B4\"")
+	public boolean isWorksheetNamedIfQualified() {
+		if (cell == null || cell.lastIndexOf('!') < 0) {
+			return true;
+		}
+		String worksheet = cell.substring(0, cell.lastIndexOf('!')).trim();
+		if (worksheet.length() >= 2 && worksheet.startsWith("'") && worksheet.endsWith("'")) {
+			worksheet = worksheet.substring(1, worksheet.length() - 1).trim();
+		}
+		return !worksheet.isEmpty();
+	}
 }
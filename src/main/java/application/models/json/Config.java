@@ -19,8 +19,12 @@ package application.models.json;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import javax.validation.Valid;
+import javax.validation.constraints.AssertTrue;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotEmpty;
 
@@ -52,6 +56,10 @@ public class Config {
 	@NotEmpty(message = "\"cells\" array must be provided and have values")
 	private final Cell[] cells;
 
+	/** Optional; cells to be shown together, each in one page. */
+	@Valid
+	private final Scene[] scenes;
+
 	/**
 	 * @return the {@link Cell}[] array muted into an {@link ArrayList} of
 	 *         {@link Cell}, for convenience.
@@ -61,4 +69,20 @@ public class Config {
 		cells.addAll(Arrays.asList(this.cells));
 		return cells;
 	}
+
+	public List<Scene> getScenes() {
+		return scenes == null ? new ArrayList<>() : new ArrayList<>(Arrays.asList(scenes));
+	}
+
+	@AssertTrue(message = "\"scenes\" may only use the names of cells in \"cells\"")
+	public boolean isScenesUsingKnownCells() {
+		if (cells == null) {
+			// Reported as missing instead
+			return true;
+		}
+		Set<String> names = getCells().stream().filter(Objects::nonNull).map(Cell::getName)
+				.collect(Collectors.toSet());
+		return getScenes().stream().filter(Objects::nonNull).flatMap(s -> s.getCells().stream())
+				.filter(Objects::nonNull).allMatch(c -> names.contains(c.getName()));
+	}
 }
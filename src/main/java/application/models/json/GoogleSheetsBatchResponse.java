@@ -0,0 +1,47 @@
+/**
+ * GoogleSheetsBatchResponse.java is part of the "SheetsIO" project (c) by Mark "Grandy" Bishop, 2021.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package application.models.json;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bean representation of json object received back from a values:batchGet
+ * request to the google spreadsheets api v4; one {@link GoogleSheetsResponse}
+ * per requested range, in the order they were requested.
+ *
+ * @author Mark "Grandy" Bishop
+ */
+public class GoogleSheetsBatchResponse {
+	@SuppressWarnings("unused")
+	private String spreadsheetId;
+	private GoogleSheetsResponse[] valueRanges;
+
+	/**
+	 * @param worksheets
+	 *            the worksheet names, in the order they were requested
+	 * @return a {@link Map} of worksheet name to its {@link GoogleSheetsResponse}
+	 */
+	public Map<String, GoogleSheetsResponse> byWorksheet(List<String> worksheets) {
+		Map<String, GoogleSheetsResponse> responses = new LinkedHashMap<>();
+		for (int i = 0; i < worksheets.size() && valueRanges != null && i < valueRanges.length; i++) {
+			responses.put(worksheets.get(i), valueRanges[i]);
+		}
+		return responses;
+	}
+}
@@ -16,11 +16,6 @@
  */
 package application.models.json;
 
-import java.util.HashMap;
-import java.util.Map;
-
-import application.models.CellWrapper;
-
 /**
  * Bean represenatation of json object received back from the google
  * spreadsheets api v4.
@@ -34,25 +29,54 @@ public class GoogleSheetsResponse {
 	private String majorDimension;
 	private String[][] values;
 
+	/** Lazily computed, one per column; not part of the json. */
+	private transient long[] columnHashes;
+
+	private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	/** @return the number of columns in the response (trailing empty ones omitted). */
+	public int getColumnCount() {
+		return values == null ? 0 : values.length;
+	}
+
 	/**
-	 * @return a {@link HashMap} of {@link CellWrapper} (coordinate + file) to
-	 *         {@link String} 'actual' values from the spreadsheet.
+	 * @return the value at the given zero-indexed column/row, or null if Google
+	 *         did not return one (i.e. the cell is empty).
 	 */
-	public Map<CellWrapper, String> getMutatedRowColumnData() {
-		Map<CellWrapper, String> vals = new HashMap<>();
-
-		// Stored as an array of columns, containing an array (row values)
-		// Contains empty arrays where a column has no data in its rows
-		// Contains empty inner array values where there's empty cells within the column
+	public String getValue(int col, int row) {
+		if (col < 0 || col >= getColumnCount() || row < 0 || row >= values[col].length) {
+			return null;
+		}
+		return values[col][row];
+	}
 
-		for (int col = 0; col < values.length; col++) {
-			// Loop through columns, A to ZZ (or however many)
-			for (int row = 0; row < values[col].length; row++) {
-				// Loop through the rows within the column
-				vals.put(CellWrapper.fromGoogleCoord(col, row), values[col][row]);
+	/**
+	 * @return a 64-bit hash (FNV-1a) of every value in the given column; equal
+	 *         hashes between two responses mean the column has not changed.
+	 *         Columns outside the response hash as empty.
+	 */
+	public long getColumnHash(int col) {
+		if (columnHashes == null) {
+			columnHashes = new long[getColumnCount()];
+			for (int c = 0; c < columnHashes.length; c++) {
+				columnHashes[c] = hashColumn(values[c]);
 			}
 		}
+		return (col >= 0 && col < columnHashes.length) ? columnHashes[col] : hashColumn(new String[0]);
+	}
 
-		return vals;
+	private static long hashColumn(String[] column) {
+		long hash = FNV_OFFSET_BASIS;
+		for (String value : column) {
+			if (value != null) {
+				for (int i = 0; i < value.length(); i++) {
+					hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+				}
+			}
+			// Separate cells (and mark nulls) so that e.g. ["ab", ""] != ["a", "b"]
+			hash = (hash ^ (value == null ? 0x10000 : 0x10001)) * FNV_PRIME;
+		}
+		return hash;
 	}
 }
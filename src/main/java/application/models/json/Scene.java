@@ -0,0 +1,78 @@
+/**
+ * Scene.java is part of the "SheetsIO" project (c) by Mark "Grandy" Bishop, 2021.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package application.models.json;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.validation.Valid;
+import javax.validation.constraints.AssertTrue;
+import javax.validation.constraints.NotBlank;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Bean equivalent of the { "name": "scoreboard", "cells": [ ... ] } objects of
+ * the optional "scenes" array: many cells shown in one page, so one browser
+ * source can do the job of many. A scene is either laid out by its cells, or
+ * is a html "template" of its own (relative to the config file) in which any
+ * element with a 'data-cell="cellName"' attribute shows that cell.
+ *
+ * @author Mark "Grandy" Bishop
+ */
+@ToString
+@AllArgsConstructor
+public final class Scene {
+	private static final int DEFAULT_WIDTH = 1920;
+	private static final int DEFAULT_HEIGHT = 1080;
+
+	@Getter
+	@NotBlank(message = "\"name\" must be supplied and not blank")
+	/** Name to give the scene, used in its url. */
+	private final String name;
+
+	/** Size of the scene in pixels; defaults to 1920x1080. */
+	private final Integer width;
+	private final Integer height;
+
+	@Getter
+	/** Path of a html file to use as the scene, rather than laying out its cells. */
+	private final String template;
+
+	@Valid
+	private final SceneCell[] cells;
+
+	public int getWidth() {
+		return width == null ? DEFAULT_WIDTH : width;
+	}
+
+	public int getHeight() {
+		return height == null ? DEFAULT_HEIGHT : height;
+	}
+
+	public List<SceneCell> getCells() {
+		return cells == null ? new ArrayList<>() : new ArrayList<>(Arrays.asList(cells));
+	}
+
+	@AssertTrue(message = "\"cells\" must be provided with values, or a \"template\" given")
+	public boolean isLaidOut() {
+		return (template != null && !template.trim().isEmpty()) || (cells != null && cells.length > 0);
+	}
+}
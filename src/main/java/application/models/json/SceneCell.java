@@ -0,0 +1,49 @@
+/**
+ * SceneCell.java is part of the "SheetsIO" project (c) by Mark "Grandy" Bishop, 2021.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package application.models.json;
+
+import javax.validation.constraints.NotBlank;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Bean equivalent of the { "name": "caster1Name", "x": 100, "y": 900 } objects
+ * in a {@link Scene}'s "cells"; places a cell (by its name) within the scene.
+ *
+ * @author Mark "Grandy" Bishop
+ */
+@ToString
+@AllArgsConstructor
+@Getter
+public final class SceneCell {
+	@NotBlank(message = "\"name\" must be the name of one of the config's cells")
+	private final String name;
+
+	/** Position and size within the scene, in pixels. */
+	private final int x;
+	private final int y;
+	private final int width;
+	private final int height;
+
+	/** Optional css for the cell, e.g. 'font-size: 48px; color: white'. */
+	private final String style;
+
+	/** Whether a video should loop. */
+	private final boolean loop;
+}
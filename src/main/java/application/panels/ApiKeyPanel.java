@@ -16,7 +16,7 @@
  */
 package application.panels;
 
-import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -25,19 +25,20 @@ import org.greenrobot.eventbus.Subscribe;
 import application.AppUtil;
 import application.events.ApiKeySetEvent;
 import application.events.AppInitialisedEvent;
-import application.exceptions.GoogleSheetsException;
 import application.models.ApiKeyStatus;
 import application.models.PropertiesHolder;
+import application.services.ApiKeyValidator;
 import lombok.NoArgsConstructor;
 
 /**
- * Logic for the apiKey entry gui.
+ * Logic for the apiKey entry gui. Keys are checked in the background, so a slow
+ * connection to Google never holds up the window; only the check of the latest
+ * key entered is shown, however the checks happen to finish.
  *
  * @author Mark "Grandy" Bishop
  */
 @NoArgsConstructor
 public class ApiKeyPanel extends BasePanel<ApiKeyPanel.Gui> {
-	@SuppressWarnings("unused")
 	private static final Logger LOGGER = LogManager.getLogger(ApiKeyPanel.class);
 
 	public interface Gui extends BasePanel.Gui {
@@ -51,13 +52,26 @@ public class ApiKeyPanel extends BasePanel<ApiKeyPanel.Gui> {
 		void showHelpLink(boolean show);
 	}
 
+	private ApiKeyValidator validator;
+
+	/** Counts the keys entered, so a check can tell whether its key is still the latest. */
+	private final AtomicLong keysEntered = new AtomicLong();
+
 	/** Alternative DI constructor, for test use. */
 	public ApiKeyPanel(PropertiesHolder props, AppUtil util) {
 		super(util, props);
 	}
 
+	private ApiKeyValidator getValidator() {
+		if (validator == null) {
+			validator = new ApiKeyValidator(getAppUtil());
+		}
+		return validator;
+	}
+
 	/** Handle the press of the 'set' apiKey button. */
 	public void handleSetApiKeyPress(String potentialKey) {
+		long keyEntered = keysEntered.incrementAndGet();
 		getProps().setProperty(PropertiesHolder.API_KEY, potentialKey);
 		try {
 			getProps().flush();
@@ -76,13 +90,17 @@ public class ApiKeyPanel extends BasePanel<ApiKeyPanel.Gui> {
 					getProps().getProperty(PropertiesHolder.API_KEY_TEST_SPREADSHEET_ID),
 					getProps().getProperty(PropertiesHolder.API_KEY_TEST_WORKBOOK_ID), potentialKey);
 
-			try {
-				getAppUtil().getGoogleSheetsData(url);
-				updateUI(ApiKeyStatus.LOADED);
-			} catch (GoogleSheetsException | IOException e) {
-				updateUI(ApiKeyStatus.ERROR);
-				handleException(e);
-			}
+			updateUI(ApiKeyStatus.CHECKING);
+			getValidator().validate(url, getExecutor()).whenComplete((v, e) -> getApp().runLater(() -> {
+				if (keyEntered != keysEntered.get()) {
+					LOGGER.debug("Another key has been entered since; ignoring the check of this one");
+				} else if (e == null) {
+					updateUI(ApiKeyStatus.LOADED);
+				} else {
+					updateUI(ApiKeyStatus.ERROR);
+					handleException(unwrap(e));
+				}
+			}));
 		}
 	}
 
@@ -16,6 +16,10 @@
  */
 package application.panels;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.greenrobot.eventbus.Subscribe;
@@ -28,7 +32,9 @@ import application.IExceptionHandler;
 import application.events.ConfigReloadedEvent;
 import application.exceptions.GoogleSheetsException;
 import application.exceptions.JsonValidationException;
+import application.exceptions.ProjectUpdateException;
 import application.models.PropertiesHolder;
+import application.threads.ThreadCollector;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
@@ -60,6 +66,11 @@ public abstract class BasePanel<G extends BasePanel.Gui> implements IPanel<G>, I
 	@Getter
 	private final PropertiesHolder props;
 
+	/** Where {@link #runInBackground} work happens. */
+	@Getter(AccessLevel.PROTECTED)
+	@Setter(AccessLevel.PACKAGE)
+	private Executor executor = ThreadCollector.getBackgroundExecutor();
+
 	public BasePanel() {
 		appUtil = AppUtil.get();
 		props = PropertiesHolder.get();
@@ -86,6 +97,12 @@ public abstract class BasePanel<G extends BasePanel.Gui> implements IPanel<G>, I
 
 	@Override
 	public void handleException(Exception e) {
+		String projectName = null;
+		if (e instanceof ProjectUpdateException) {
+			// Explain the underlying failure, but say which project it stopped
+			projectName = ((ProjectUpdateException) e).getProjectName();
+			e = ((ProjectUpdateException) e).getCause();
+		}
 		String headerText = e.getMessage();
 		StringBuilder error = new StringBuilder();
 
@@ -119,6 +136,9 @@ public abstract class BasePanel<G extends BasePanel.Gui> implements IPanel<G>, I
 		}
 
 		error.append(GENERIC_ERROR_END);
+		if (projectName != null) {
+			headerText = String.format("[%s] %s", projectName, headerText);
+		}
 
 		// Remove all instances of the user's API key
 		String sanitisedMessage = AppUtil.get().sanitiseApiKey(headerText);
@@ -128,6 +148,40 @@ public abstract class BasePanel<G extends BasePanel.Gui> implements IPanel<G>, I
 		getGui().showErrorDialog(sanitisedMessage, errorMessage);
 	}
 
+	/** A piece of background work, which may fail. */
+	@FunctionalInterface
+	protected interface BackgroundTask {
+		void run() throws Exception;
+	}
+
+	/**
+	 * Run the given work (e.g. anything touching the disk or network) off the UI
+	 * thread; should it fail, the exception is passed to
+	 * {@link #handleException(Exception)}.
+	 * 
+	 * @return a future completing once the work succeeds
+	 */
+	protected CompletableFuture<Void> runInBackground(BackgroundTask task) {
+		CompletableFuture<Void> future = CompletableFuture.runAsync(() -> {
+			try {
+				task.run();
+			} catch (Exception e) {
+				throw new CompletionException(e);
+			}
+		}, executor);
+		future.exceptionally(e -> {
+			handleException(unwrap(e));
+			return null;
+		});
+		return future;
+	}
+
+	/** @return the underlying exception from a failed future. */
+	protected static Exception unwrap(Throwable t) {
+		Throwable cause = t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+		return cause instanceof Exception ? (Exception) cause : new RuntimeException(cause);
+	}
+
 	@Subscribe
 	public void handleConfigReloadEvent(ConfigReloadedEvent event) {
 		// Do nothing
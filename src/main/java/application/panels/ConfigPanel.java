@@ -18,14 +18,19 @@ package application.panels;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import application.AppUtil;
-import application.exceptions.IllegalFileExtensionException;
+import application.IUpdateStatusListener;
 import application.models.ConfigHolder;
 import application.models.PropertiesHolder;
+import application.models.UpdateStatus;
 import application.services.FileIO;
 import application.services.FileUpdater;
 import application.threads.ThreadCollector;
@@ -36,7 +41,7 @@ import application.threads.UpdateRunnable;
  *
  * @author Mark "Grandy" Bishop
  */
-public class ConfigPanel extends BasePanel<ConfigPanel.Gui> {
+public class ConfigPanel extends BasePanel<ConfigPanel.Gui> implements IUpdateStatusListener {
 	private static final Logger LOGGER = LogManager.getLogger(ConfigPanel.class);
 
 	public static final String LOGS_FOLDER = "logs";
@@ -46,6 +51,9 @@ public class ConfigPanel extends BasePanel<ConfigPanel.Gui> {
 	private ConfigHolder configHolder;
 	private FileIO fileIO;
 
+	/** Configs from application.properties, run alongside the selected one. */
+	private final List<ConfigHolder> extraConfigHolders = new CopyOnWriteArrayList<>();
+
 	/** Primary constructor. */
 	public ConfigPanel() {
 		super();
@@ -55,7 +63,7 @@ public class ConfigPanel extends BasePanel<ConfigPanel.Gui> {
 		// Create/begin the update thread
 		if (updateRunnable == null) {
 			// Ensure only ever have one
-			updateRunnable = ThreadCollector.registerUpdateLoop(new UpdateRunnable(this));
+			updateRunnable = ThreadCollector.registerUpdateLoop(new UpdateRunnable(this, this));
 		}
 		new Thread(this.updateRunnable).start();
 	}
@@ -84,91 +92,126 @@ public class ConfigPanel extends BasePanel<ConfigPanel.Gui> {
 
 		/** Set whether the 'update now' button is enabled. */
 		void setUpdateNowButtonEnabled(boolean enabled);
+
+		/** Reflect the health of the update loop; may be called off the UI thread. */
+		void setUpdateStatus(UpdateStatus status, String detail);
 	}
 
+	/**
+	 * Startup happens in the background, so the window is usable straight away;
+	 * the webserver is bound and folders are created while the configs are read,
+	 * and each config begins updating once it and the folders are done.
+	 */
 	@Override
 	public void initialise() {
 		super.initialise();
 
 		// Create the initial folders
-		try {
+		CompletableFuture<Void> folders = runInBackground(() -> {
 			fileIO.createFolder(LOGS_FOLDER);
 			fileIO.createFolder(FileUpdater.FOLDER_PREFIX);
 			fileIO.createFolder(ConfigPanel.TEMP_FOLDER);
-		} catch (IOException e) {
-			handleException(e);
-		}
+		});
+
+		// Bind the webserver once, up front; configs only ever swap its routes
+		this.updateRunnable.startHttpService();
 
 		// Load the previous config if there is one
 		String previousConfigPath = getProps().getProperty(PropertiesHolder.LAST_CONFIG);
 		if (previousConfigPath != null && !previousConfigPath.isEmpty()) {
-			handleConfigSelection(new File(previousConfigPath));
+			loadConfig(new File(previousConfigPath), folders);
+		}
+
+		// Load any other projects to run alongside it
+		for (String extraConfigPath : getProps().getExtraConfigs()) {
+			loadExtraConfig(new File(extraConfigPath), folders);
 		}
 	}
 
+	/** Load a config to be run alongside the selected one. */
+	private void loadExtraConfig(File file, CompletableFuture<Void> ready) {
+		ConfigHolder extraConfigHolder = new ConfigHolder();
+		runInBackground(() -> extraConfigHolder.loadFile(file)).thenCombine(ready, (a, b) -> b).thenRun(() -> {
+			extraConfigHolder.setAutoUpdate(this.configHolder.isAutoUpdate());
+			this.extraConfigHolders.add(extraConfigHolder);
+			this.updateRunnable.updateConfig(extraConfigHolder, true);
+		});
+	}
+
+	/** Handle the selection of a config file from the chooser. */
+	public void handleConfigSelection(File file) {
+		loadConfig(file, CompletableFuture.completedFuture(null));
+	}
+
 	/**
-	 * Handle the selection of a config file from the chooser.
-	 * 
-	 * @throws Exception
-	 *             if the saving of the 'last selected config' fails.
+	 * Once anything the given config relies upon is ready, load it on the update
+	 * loop (which may be using the config it replaces) and begin updating it; then
+	 * show it in the UI.
 	 */
-	public void handleConfigSelection(File file) {
+	private void loadConfig(File file, CompletableFuture<Void> ready) {
 		if (file == null) {
 			return;
 		}
 
-		try {
-			this.configHolder.loadFile(file);
-			this.updateRunnable.updateConfig(true);
-		} catch (Exception e) {
-			handleException(e);
-			return;
-		}
-
-		getGui().setConfigChooserDirectory(file.getAbsoluteFile().getParentFile());
-		getGui().setConfigLabel(file.getName());
-		getGui().setReloadConfigLinkVisible(true);
-		getGui().setAutoUpdateCheckState(this.configHolder.isAutoUpdate());
-
-		// Set 'last config' option in application.properties
-		getProps().setProperty(PropertiesHolder.LAST_CONFIG, file.getAbsolutePath());
-		try {
-			getProps().flush();
-		} catch (IOException e) {
-			LOGGER.error("Unable to set the property '{}' to '{}': {}", PropertiesHolder.LAST_CONFIG,
-					file.getAbsolutePath(), e);
-		}
+		ready.thenRun(() -> this.updateRunnable.loadConfig(this.configHolder, file).thenRunAsync(() -> {
+			// Set 'last config' option in application.properties
+			getProps().setProperty(PropertiesHolder.LAST_CONFIG, file.getAbsolutePath());
+			try {
+				getProps().flush();
+			} catch (IOException e) {
+				LOGGER.error("Unable to set the property '{}' to '{}': {}", PropertiesHolder.LAST_CONFIG,
+						file.getAbsolutePath(), e);
+			}
+			getApp().runLater(() -> {
+				getGui().setConfigChooserDirectory(file.getAbsoluteFile().getParentFile());
+				getGui().setConfigLabel(file.getName());
+				getGui().setReloadConfigLinkVisible(true);
+				getGui().setAutoUpdateCheckState(this.configHolder.isAutoUpdate());
+			});
+		}, getExecutor()).exceptionally(e -> {
+			handleException(unwrap(e));
+			return null;
+		}));
 	}
 
-	/** Handle a click of the 'reload' config button in the UI. */
+	/**
+	 * Handle a click of the 'reload' config button in the UI; every project's
+	 * config file is read again, and started anew, on the update loop. Those that
+	 * can't be are reported one by one, leaving the others on their new configs.
+	 */
 	public void handleReloadLinkClick() {
 		if (this.configHolder.isLoaded()) {
-			try {
-				/*
-				 * Reload backing config file, set it onto the thread, clearing and re-adding
-				 * files into the relevant folder (empty).
-				 */
-				this.configHolder.reload();
-				this.updateRunnable.updateConfig(true);
-			} catch (Exception e) {
-				handleException(e);
-			}
+			List<ConfigHolder> configHolders = new ArrayList<>();
+			configHolders.add(this.configHolder);
+			configHolders.addAll(this.extraConfigHolders);
+			this.updateRunnable.reload(configHolders);
 		}
 	}
 
-	/** Handle a toggle in the auto update checkbox. */
+	/** Handle a toggle in the auto update checkbox; applies to every project. */
 	public void handleAutoUpdateCheck(boolean selected) {
 		this.configHolder.setAutoUpdate(selected);
+		this.extraConfigHolders.forEach(h -> h.setAutoUpdate(selected));
 		getGui().setUpdateNowButtonEnabled(!selected);
-		try {
-			if (this.configHolder.isLoaded()) {
-				this.updateRunnable.updateConfig(false);
-			}
-		} catch (IOException | IllegalFileExtensionException e) {
-			handleException(e);
+		if (this.configHolder.isLoaded()) {
+			this.updateRunnable.updateConfig(this.configHolder, false);
 		}
 	}
 
+	@Override
+	public void handleUpdateStatus(UpdateStatus status, String detail) {
+		getGui().setUpdateStatus(status, detail);
+	}
+
+	@Override
+	public void handleAutoUpdateChange(boolean autoUpdate) {
+		// The projects themselves have been changed already; only the UI lags behind
+		getApp().runLater(() -> {
+			getGui().setAutoUpdateCheckState(autoUpdate);
+			getGui().setUpdateNowButtonEnabled(!autoUpdate);
+		});
+	}
+
 	/** Handle a press of the 'Update Now' button. */
 	public void handleUpdateNowPress() {
 		this.updateRunnable.runOnce();
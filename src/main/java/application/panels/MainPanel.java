@@ -37,6 +37,8 @@ public class MainPanel extends BasePanel<MainPanel.Gui> {
 	public void handleApiKeySetEvent(ApiKeySetEvent event) {
 		switch (event.getStatus()) {
 		case LOADED:
+		case CHECKING:
+			// Usable whilst checking; the key is most likely the one that worked last time
 			getGui().enableMainLayout(true);
 			break;
 		case MISSING:
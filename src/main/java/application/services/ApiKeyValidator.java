@@ -0,0 +1,66 @@
+/**
+ * ApiKeyValidator.java is part of the "SheetsIO" project (c) by Mark "Grandy" Bishop, 2021.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package application.services;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+import application.AppUtil;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Checks apiKeys against the test spreadsheet in the background, remembering
+ * keys that have worked so they're only ever checked once. Checks that fail
+ * aren't remembered, so they can be retried.
+ *
+ * @author Mark "Grandy" Bishop
+ */
+@RequiredArgsConstructor
+public class ApiKeyValidator {
+	private final AppUtil appUtil;
+
+	/** In-progress and successful checks, by test url (which includes the key). */
+	private final Map<String, CompletableFuture<Void>> checks = new ConcurrentHashMap<>();
+
+	/**
+	 * @param testUrl
+	 *            the url of the test spreadsheet, with the apiKey to check
+	 * @return a future completing once the key is known to be valid, or
+	 *         exceptionally with the reason it isn't
+	 */
+	public CompletableFuture<Void> validate(String testUrl, Executor executor) {
+		CompletableFuture<Void> check = checks.computeIfAbsent(testUrl,
+				url -> CompletableFuture.runAsync(() -> fetch(url), executor));
+		check.whenComplete((v, e) -> {
+			if (e != null) {
+				checks.remove(testUrl, check);
+			}
+		});
+		return check;
+	}
+
+	private void fetch(String url) {
+		try {
+			appUtil.getGoogleSheetsData(url);
+		} catch (Exception e) {
+			throw new CompletionException(e);
+		}
+	}
+}
@@ -37,7 +37,8 @@ import lombok.RequiredArgsConstructor;
 
 /**
  * For all file-related operations, taking {@link CellWrapper} and a String
- * value, and physically updating the files on disk.
+ * value, and physically updating the files on disk. Each project (config) has
+ * its own, writing into its own folder.
  *
  * @author Mark "Grandy" Bishop
  */
@@ -48,8 +49,14 @@ public class FileUpdater {
 	public static final String FOLDER_PREFIX = "files";
 
 	private final FileIO fileIO;
+	private final ConfigHolder configHolder;
 	private File folder;
 
+	/** Updates files for the config selected in the UI. */
+	public FileUpdater(FileIO fileIO) {
+		this(fileIO, ConfigHolder.get());
+	}
+
 	/**
 	 * Prime the FileUpdater with the folder we'll be using; create empty initial
 	 * files.
@@ -59,7 +66,7 @@ public class FileUpdater {
 	 * @throws IllegalFileExtensionException
 	 */
 	public void setup() throws IOException, IllegalFileExtensionException {
-		assert ConfigHolder.get().getProjectName() != null : "projectName cannot be null";
+		assert configHolder.getProjectName() != null : "projectName cannot be null";
 
 		cleanExistingFolderIfExists();
 		writeFolders();
@@ -82,7 +89,7 @@ public class FileUpdater {
 			 * could theoretically have multiple pieces of cell config all wanting to be
 			 * updated when the value changes. Here, we look up these multiple pieces.
 			 */
-			List<CellWrapper> allWrappersForCell = ConfigHolder.get().getCells().stream()
+			List<CellWrapper> allWrappersForCell = configHolder.getCells().stream()
 					.filter(cw -> cw.equals(cellWrapper)) //
 					.collect(Collectors.toList());
 			for (CellWrapper w : allWrappersForCell) {
@@ -93,7 +100,7 @@ public class FileUpdater {
 
 	public void updateFile(CellWrapper cellWrapper, String newValue) throws Exception {
 
-		String destFilePath = createFilePath(ConfigHolder.get().getProjectName(), cellWrapper);
+		String destFilePath = createFilePath(configHolder.getProjectName(), cellWrapper);
 		FileExtension ext = cellWrapper.getFileExtension();
 		switch (ext.getType()) {
 		case TEXT:
@@ -166,7 +173,7 @@ public class FileUpdater {
 
 	/** Create folder for project if it doesn't exist. */
 	private void writeFolders() throws IOException {
-		String folderPath = createFolderPath(ConfigHolder.get().getProjectName());
+		String folderPath = createFolderPath(configHolder.getProjectName());
 		this.folder = fileIO.createFolder(folderPath);
 	}
 
@@ -178,15 +185,15 @@ public class FileUpdater {
 	 *             if
 	 */
 	private void createInitialFiles() throws IOException, IllegalFileExtensionException {
-		for (CellWrapper cellWrapper : ConfigHolder.get().getCells()) {
+		for (CellWrapper cellWrapper : configHolder.getCells()) {
 			if (cellWrapper.getFileExtension().isForFile()) {
-				fileIO.writeTextFile(createFilePath(ConfigHolder.get().getProjectName(), cellWrapper), "");
+				fileIO.writeTextFile(createFilePath(configHolder.getProjectName(), cellWrapper), "");
 			}
 		}
 	}
 
 	private void cleanExistingFolderIfExists() throws IOException {
-		String folderPath = createFolderPath(ConfigHolder.get().getProjectName());
+		String folderPath = createFolderPath(configHolder.getProjectName());
 		File folder = new File(folderPath);
 		if (folder.exists()) {
 			this.folder = folder;
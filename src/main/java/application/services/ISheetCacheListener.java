@@ -0,0 +1,48 @@
+/**
+ * ISheetCacheListener.java is part of the "SheetsIO" project (c) by Mark "Grandy" Bishop, 2021.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package application.services;
+
+import java.util.Map;
+
+import application.models.CellWrapper;
+
+/**
+ * Told whenever values in a {@link SheetCache} change, and once their files
+ * have been written. Called from the update loop, so should hand off anything
+ * slow.
+ *
+ * @author Mark "Grandy" Bishop
+ */
+public interface ISheetCacheListener {
+	/**
+	 * Changes to images and videos come once their files have been written (after
+	 * {@link #fileWritten}), as pages show them from those files.
+	 * 
+	 * @param version
+	 *            the cache's new version
+	 * @param changedValues
+	 *            the new values of the cells that changed, by name
+	 */
+	void cellsChanged(long version, Map<String, String> changedValues);
+
+	/**
+	 * The given cell's file (or files, should several names share the cell) has
+	 * been written with its new value.
+	 */
+	default void fileWritten(CellWrapper cell) {
+	}
+}
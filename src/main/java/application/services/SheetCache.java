@@ -17,26 +17,99 @@
 package application.services;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
 import application.models.CellUpdate;
 import application.models.CellWrapper;
+import application.models.FileExtension.FileExtensionType;
 import application.models.json.Config;
 import application.models.json.GoogleSheetsResponse;
+import lombok.Getter;
 
 /**
  * Keep track of current values from the google spreadsheet; when an update
  * comes in, track which {@link CellWrapper}s have had their value changed, and
  * only update those text files instead of all files.
+ * 
+ * Cells are also grouped by worksheet and column; Google returns data column by
+ * column, so by remembering a hash of each column from the last update, columns
+ * that have not changed can be skipped without looking at their cells at all.
+ * A column's new hash is only kept once the update's files have been written
+ * (see {@link #commitColumnHashes}), so a failed write has it looked at again.
+ * Every cell is reported by the first update after setup, so that its file is
+ * written (even if empty); after that, only cells whose values change are.
+ * 
+ * Values may be read from any thread (e.g. by the http server), but are only
+ * ever updated from one. Every change is given a version number, and pushed to
+ * any {@link ISheetCacheListener}s, so that clients can be told about (or ask
+ * for) just what has changed. Images and videos are shown from their files, so
+ * changes to them are held back until their files have been written (see
+ * {@link #filesWritten}), rather than having pages ask for a file that isn't
+ * there yet.
  *
  * @author Mark "Grandy" Bishop
  */
 public class SheetCache {
-	private Map<CellWrapper, String> values = new HashMap<>();
+	private static final Logger LOGGER = LogManager.getLogger(SheetCache.class);
+
+	/**
+	 * Shared by all caches, so that versions never go backwards when one config is
+	 * swapped for another.
+	 */
+	private static final AtomicLong VERSIONS = new AtomicLong();
+
+	private Map<CellWrapper, String> values = new ConcurrentHashMap<>();
+
+	/** Every cell from config by its name; several names may share a cell. */
+	private volatile Map<String, CellWrapper> cellsByName = Collections.emptyMap();
+
+	/** The version in which each cell last changed. */
+	private final Map<CellWrapper, Long> cellVersions = new ConcurrentHashMap<>();
+
+	/**
+	 * Cells yet to be reported since setup, so that every file gets written once;
+	 * or whose files failed to be written, so they're written again.
+	 */
+	private final Set<CellWrapper> unreported = ConcurrentHashMap.newKeySet();
+
+	/** Changed cells shown from their files, held back until those are written. */
+	private final Set<CellWrapper> awaitingFiles = ConcurrentHashMap.newKeySet();
+
+	/** The value each cell's file was last written with. */
+	private final Map<CellWrapper, String> writtenValues = new ConcurrentHashMap<>();
+
+	/** When each cell last changed, in millis. */
+	private final Map<CellWrapper, Long> cellChangeTimes = new ConcurrentHashMap<>();
+	private volatile long setupTime;
+
+	/** The version of the most recent change to any cell. */
+	@Getter
+	private volatile long version;
+
+	private final List<ISheetCacheListener> listeners = new CopyOnWriteArrayList<>();
+
+	/** Cells of interest, keyed by worksheet then zero-indexed column. */
+	private Map<String, Map<Integer, List<CellWrapper>>> cellsByColumn = new HashMap<>();
+
+	/** Hash of each column of interest, as of the last update; keyed as above. */
+	private Map<String, Map<Integer, Long>> columnHashes = new HashMap<>();
+
+	/** Hashes of the columns that changed in the latest update, until it's committed. */
+	private Map<String, Map<Integer, Long>> pendingColumnHashes = new HashMap<>();
 
 	/**
 	 * Prep the cache with the {@link CellWrapper} of the cells we're interested in
@@ -48,55 +121,218 @@ public class SheetCache {
 	 */
 	public void setup(List<CellWrapper> cellsOfInterest) {
 		values.clear();
+		cellVersions.clear();
+		cellChangeTimes.clear();
+		writtenValues.clear();
+		awaitingFiles.clear();
+		setupTime = System.currentTimeMillis();
 		cellsOfInterest.forEach(c -> values.put(c, ""));
+		unreported.clear();
+		unreported.addAll(values.keySet());
+
+		Map<String, CellWrapper> byName = new LinkedHashMap<>();
+		cellsOfInterest.forEach(c -> byName.putIfAbsent(c.getName(), c));
+		cellsByName = Collections.unmodifiableMap(byName);
+
+		columnHashes.clear();
+		pendingColumnHashes.clear();
+		cellsByColumn.clear();
+		values.keySet().forEach(c -> cellsByColumn.computeIfAbsent(c.getWorksheet(), w -> new HashMap<>())
+				.computeIfAbsent(c.getCol(), k -> new ArrayList<>()).add(c));
 	}
 
 	/**
-	 * Update the cache, provide a list of changed cell info (from the data source)
-	 * so we can update files.
+	 * Update the cache from the responses for each worksheet, only looking at the
+	 * cells of columns whose hash differs from the previous update.
 	 *
-	 * @param updatedValueMap
-	 *            mutated from {@link GoogleSheetsResponse}, the raw data in full
-	 * @return a Map of {@link CellWrapper} to String for the changed cells and
-	 *         their new values
+	 * @param responsesByWorksheet
+	 *            the latest {@link GoogleSheetsResponse} for each worksheet
+	 * @return a List of {@link CellUpdate} for the changed cells and their new
+	 *         values
 	 */
-	public List<CellUpdate> update(Map<CellWrapper, String> updatedValueMap) {
+	public List<CellUpdate> updateFromSheets(Map<String, GoogleSheetsResponse> responsesByWorksheet) {
 		List<CellUpdate> changedElements = new ArrayList<>();
+		Set<CellWrapper> changedCells = new HashSet<>();
+		// Anything left from an update never committed is looked at again
+		pendingColumnHashes.clear();
 
-		// Loop through cache keys
-		for (Entry<CellWrapper, String> cacheEntry : this.values.entrySet()) {
+		for (Entry<String, Map<Integer, List<CellWrapper>>> worksheet : this.cellsByColumn.entrySet()) {
+			GoogleSheetsResponse data = responsesByWorksheet.get(worksheet.getKey());
+			if (data == null) {
+				LOGGER.warn("No data received for worksheet '{}'", worksheet.getKey());
+				continue;
+			}
+			Map<Integer, Long> hashes = this.columnHashes.getOrDefault(worksheet.getKey(), Collections.emptyMap());
 
-			// Look up value in new map, and contrast to stored value
-			String newVal = updatedValueMap.get(cacheEntry.getKey());
-			String cacheValue = cacheEntry.getValue();
+			for (Entry<Integer, List<CellWrapper>> column : worksheet.getValue().entrySet()) {
+				int col = column.getKey();
+				long hash = data.getColumnHash(col);
+				Long previousHash = hashes.get(col);
+				if (previousHash != null && previousHash == hash) {
+					continue;
+				}
+				pendingColumnHashes.computeIfAbsent(worksheet.getKey(), w -> new HashMap<>()).put(col, hash);
 
-			if (newVal == null) {
-				// We didn't find the cell (from config) in the update (from sheet)
-				// TODO Might want to request a range (e.g. A1:B3) in the API request itself
-				newVal = "";
+				for (CellWrapper cell : column.getValue()) {
+					diff(cell, data.getValue(col, cell.getRow()), changedElements, changedCells);
+				}
 			}
+		}
 
-			if (!newVal.equals(cacheValue) || newVal.isEmpty()) {
-				// Collect a list of the new values
-				changedElements.add(new CellUpdate(cacheEntry.getKey(), newVal));
-				// ...and update the cache
-				this.values.put(cacheEntry.getKey(), newVal);
+		for (CellWrapper cell : new ArrayList<>(changedCells)) {
+			if (isShownFromFile(cell)) {
+				changedCells.remove(cell);
+				awaitingFiles.add(cell);
 			}
 		}
-
+		publish(changedCells);
 		return changedElements;
 	}
 
+	/**
+	 * Remember the hashes of the columns that changed in the latest update, so
+	 * they're skipped until they change again; to be called only once the
+	 * update's files have all been written.
+	 */
+	public void commitColumnHashes() {
+		pendingColumnHashes.forEach((worksheet, hashes) -> columnHashes
+				.computeIfAbsent(worksheet, w -> new HashMap<>()).putAll(hashes));
+		pendingColumnHashes.clear();
+	}
+
+	private static boolean isShownFromFile(CellWrapper cell) {
+		FileExtensionType type = cell.getFileExtension().getType();
+		return FileExtensionType.IMAGE.equals(type) || FileExtensionType.VIDEO.equals(type);
+	}
+
+	/**
+	 * Compare the new value to the cached one, recording a {@link CellUpdate} and
+	 * updating the cache if it has changed. The first value seen for each cell
+	 * after setup is always recorded, even if empty, so that every cell's file is
+	 * written; only a real difference counts as a change to the cell.
+	 */
+	private void diff(CellWrapper cell, String newVal, List<CellUpdate> changedElements,
+			Set<CellWrapper> changedCells) {
+		String cacheValue = this.values.get(cell);
+
+		if (newVal == null) {
+			// We didn't find the cell (from config) in the update (from sheet)
+			// TODO Might want to request a range (e.g. A1:B3) in the API request itself
+			newVal = "";
+		}
+
+		if (!newVal.equals(cacheValue)) {
+			changedCells.add(cell);
+		}
+		boolean firstSinceSetup = unreported.remove(cell);
+		if (!newVal.equals(cacheValue) || firstSinceSetup) {
+			// Collect a list of the new values
+			changedElements.add(new CellUpdate(cell, newVal));
+			// ...and update the cache
+			this.values.put(cell, newVal);
+		}
+	}
+
+	/** Give the changed cells a new version, and tell any listeners. */
+	private void publish(Set<CellWrapper> changedCells) {
+		if (changedCells.isEmpty()) {
+			return;
+		}
+		long newVersion = VERSIONS.incrementAndGet();
+		long now = System.currentTimeMillis();
+		changedCells.forEach(c -> {
+			cellVersions.put(c, newVersion);
+			cellChangeTimes.put(c, now);
+		});
+		this.version = newVersion;
+
+		Map<String, String> changedValues = getValuesByName(newVersion - 1);
+		listeners.forEach(l -> l.cellsChanged(newVersion, changedValues));
+	}
+
+	public void addListener(ISheetCacheListener listener) {
+		listeners.add(listener);
+	}
+
+	/** @return the version in which the given cell last changed, or 0 if never. */
+	public long getVersion(CellWrapper cell) {
+		return cellVersions.getOrDefault(cell, 0L);
+	}
+
+	/**
+	 * @return when the given cell last changed in millis, or when the cache was
+	 *         set up if it hasn't since.
+	 */
+	public long getLastModified(CellWrapper cell) {
+		return cellChangeTimes.getOrDefault(cell, setupTime);
+	}
+
+	/**
+	 * @param since
+	 *            a version previously seen; use -1 for every cell
+	 * @return the current value of every cell (by name) that has changed since
+	 *         the given version
+	 */
+	public Map<String, String> getValuesByName(long since) {
+		Map<String, String> result = new LinkedHashMap<>();
+		for (Entry<String, CellWrapper> cell : cellsByName.entrySet()) {
+			if (getVersion(cell.getValue()) > since) {
+				result.put(cell.getKey(), values.get(cell.getValue()));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Record that the cells' files have been written with their new values, e.g.
+	 * the image at a url has been downloaded; any changes held back for them are
+	 * then published.
+	 */
+	public void filesWritten(List<CellUpdate> written) {
+		Set<CellWrapper> nowShown = new HashSet<>();
+		for (CellUpdate update : written) {
+			CellWrapper cell = update.getCellWrapper();
+			writtenValues.put(cell, update.getNewValue());
+			listeners.forEach(l -> l.fileWritten(cell));
+			if (awaitingFiles.remove(cell)) {
+				nowShown.add(cell);
+			}
+		}
+		publish(nowShown);
+	}
+
+	/**
+	 * Record that writing the cells' files failed, so the next update reports
+	 * them again (even if their values are the same by then) and they're retried.
+	 */
+	public void filesFailed(List<CellUpdate> failed) {
+		failed.forEach(update -> unreported.add(update.getCellWrapper()));
+	}
+
+	/**
+	 * @return whether the cell's file has been written with its current value,
+	 *         rather than being yet to catch up.
+	 */
+	public boolean isFileCurrent(CellWrapper cell) {
+		String value = values.get(cell);
+		return value != null && value.equals(writtenValues.get(cell));
+	}
+
 	/** @return String the data from the cell, from the cache. */
 	public String get(CellWrapper cellData) {
 		return values.get(cellData);
 	}
 
+	/** @return every cell from config, by its name. */
+	public Map<String, CellWrapper> getCellsByName() {
+		return cellsByName;
+	}
+
 	/**
 	 * @return {@link CellWrapper} based on the name of the output (e.g.
 	 *         caster1Name).
 	 */
 	public Optional<CellWrapper> findByName(String name) {
-		return values.keySet().stream().filter(cw -> name.equals(cw.getName())).findFirst();
+		return Optional.ofNullable(cellsByName.get(name));
 	}
 }
@@ -0,0 +1,78 @@
+/**
+ * SheetsClient.java is part of the "SheetsIO" project (c) by Mark "Grandy" Bishop, 2021.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package application.services;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import application.AppUtil;
+import application.exceptions.GoogleSheetsException;
+import application.models.PropertiesHolder;
+import application.models.SheetsPayload;
+
+/**
+ * Fetches from the Google Sheets API on behalf of every loaded project. Projects
+ * reading the same spreadsheet share one request per cycle, covering all of the
+ * worksheets between them, rather than each polling it themselves.
+ *
+ * @author Mark "Grandy" Bishop
+ */
+public class SheetsClient {
+	private static final Logger LOGGER = LogManager.getLogger(SheetsClient.class);
+
+	/**
+	 * @return the worksheets needed from each spreadsheet by the given
+	 *         {@link UpdateController}s, each fetched only once.
+	 */
+	public static Map<String, List<String>> groupBySpreadsheet(Collection<UpdateController> controllers) {
+		Map<String, List<String>> grouped = new LinkedHashMap<>();
+		for (UpdateController controller : controllers) {
+			List<String> worksheets = grouped.computeIfAbsent(controller.getSpreadsheetId(), k -> new ArrayList<>());
+			for (String worksheet : controller.getWorksheets()) {
+				if (!worksheets.contains(worksheet)) {
+					worksheets.add(worksheet);
+				}
+			}
+		}
+		return grouped;
+	}
+
+	/**
+	 * Makes a single batched request for the given worksheets of a spreadsheet.
+	 *
+	 * @return {@link SheetsPayload} from our request to the API, not yet parsed
+	 * @throws IOException
+	 *             should the connection or input stream fail
+	 * @throws GoogleSheetsException
+	 */
+	public SheetsPayload fetch(String spreadsheetId, List<String> worksheets)
+			throws IOException, GoogleSheetsException {
+		String url = String.format(AppUtil.SPREADSHEET_BATCH_URL_FORMAT, //
+				spreadsheetId, //
+				AppUtil.toBatchRanges(worksheets), //
+				PropertiesHolder.get().getProperty(PropertiesHolder.API_KEY));
+		LOGGER.trace("URL: {}", AppUtil.get().sanitiseApiKey(url));
+		return AppUtil.get().fetchGoogleSheetsData(url);
+	}
+}
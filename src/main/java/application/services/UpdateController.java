@@ -17,107 +17,163 @@
 package application.services;
 
 import java.io.IOException;
-import java.net.URL;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 import java.util.stream.Collectors;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import application.AppUtil;
-import application.exceptions.GoogleSheetsException;
 import application.exceptions.IllegalFileExtensionException;
 import application.models.CellUpdate;
-import application.models.CellWrapper;
 import application.models.ConfigHolder;
-import application.models.PropertiesHolder;
-import application.models.json.GoogleSheetsResponse;
+import application.models.SheetsPayload;
+import application.models.json.GoogleSheetsBatchResponse;
 import application.services.http.HttpService;
 import application.threads.UpdateRunnable;
-import lombok.RequiredArgsConstructor;
+import lombok.Getter;
 
 /**
- * Makes the calls to update the sheet. May be used within threads, e.g.
- * {@link UpdateRunnable}.
+ * Makes the calls to update the sheet for a single project (config), with its
+ * own cache and output folder. May be used within threads, e.g.
+ * {@link UpdateRunnable}, which fetches on its behalf via {@link SheetsClient}.
  *
  * @author Mark "Grandy" Bishop
  */
-@RequiredArgsConstructor
 public class UpdateController {
 	private static final Logger LOGGER = LogManager.getLogger(UpdateController.class);
 
-	private final SheetCache cache = new SheetCache();
-	private final FileUpdater fileUpdater = new FileUpdater(new FileIO());
+	@Getter
+	private final ConfigHolder configHolder;
+	/** Replaced (rather than cleared) on a new config, for the sake of http readers. */
+	private SheetCache cache = new SheetCache();
+	private final FileUpdater fileUpdater;
 
-	private String urlString;
-	private URL url;
+	@Getter
+	private String projectName;
+	@Getter
+	private String spreadsheetId;
+
+	/** The worksheets referenced by the config. */
+	@Getter
+	private List<String> worksheets;
 
 	/**
-	 * Set a new config, thus needing to reset state and start anew.
-	 * 
-	 * @throws IllegalFileExtensionException
+	 * Fingerprint of the last response to make it all the way through to the
+	 * files; a poll with identical content can skip parsing, diffing and writing
+	 * entirely.
 	 */
-	public synchronized void setConfig(boolean fromScratch) throws IOException, IllegalFileExtensionException {
+	private byte[] lastFingerprint;
 
-		this.urlString = String.format(AppUtil.SPREADSHEET_URL_FORMAT, //
-				ConfigHolder.get().getSpreadsheetId(), //
-				AppUtil.encodeUrlContent(ConfigHolder.get().getWorksheetName()),
-				PropertiesHolder.get().getProperty(PropertiesHolder.API_KEY));
+	/** Controller for the config selected in the UI. */
+	public UpdateController() {
+		this(ConfigHolder.get());
+	}
+
+	public UpdateController(ConfigHolder configHolder) {
+		this(configHolder, new FileUpdater(new FileIO(), configHolder));
+	}
 
-		LOGGER.debug("URL: {}", AppUtil.get().sanitiseApiKey(this.urlString));
+	/** For tests, writing files through the given {@link FileUpdater}. */
+	UpdateController(ConfigHolder configHolder, FileUpdater fileUpdater) {
+		this.configHolder = configHolder;
+		this.fileUpdater = fileUpdater;
+	}
 
+	/**
+	 * Set a new config, thus needing to reset state and start anew. Everything
+	 * that may fail is done before any state is replaced, so should it throw, the
+	 * project carries on as it was.
+	 * 
+	 * @throws IllegalFileExtensionException
+	 */
+	public synchronized void setConfig(boolean fromScratch) throws IOException, IllegalFileExtensionException {
+		String newProjectName = configHolder.getProjectName();
+		String newSpreadsheetId = configHolder.getSpreadsheetId();
+		List<String> newWorksheets = configHolder.getWorksheetNames();
+		SheetCache newCache = this.cache;
 		if (fromScratch) {
-			this.cache.setup(ConfigHolder.get().getCells());
-			this.url = new URL(this.urlString);
+			// Fill a new cache before swapping it in, so requests never see a half-built one
+			newCache = new SheetCache();
+			newCache.setup(configHolder.getCells());
 			this.fileUpdater.setup();
 		}
 
-		HttpService.getInstance().start(this.cache);
+		String previousProjectName = this.projectName;
+		this.projectName = newProjectName;
+		this.spreadsheetId = newSpreadsheetId;
+		this.worksheets = newWorksheets;
+		this.cache = newCache;
+		this.lastFingerprint = null;
+
+		// The webserver is bound separately, once; only the routes change here
+		boolean renamed = !this.projectName.equals(previousProjectName);
+		HttpService httpService = HttpService.getInstance();
+		if (fromScratch || renamed) {
+			httpService.register(this.projectName, this.cache);
+		}
+		httpService.setScenes(this.projectName, configHolder.getScenes());
+		if (renamed && previousProjectName != null) {
+			httpService.remove(previousProjectName);
+		}
+	}
 
+	/** Stop serving this project; its files are left as they are. */
+	public synchronized void close() {
+		if (this.projectName != null) {
+			HttpService.getInstance().remove(this.projectName);
+		}
 	}
 
 	/**
-	 * Perform an update loop, based on the given config.
+	 * Perform an update, based on the given config.
 	 * 
+	 * @param payload
+	 *            the latest response for this project's spreadsheet, possibly
+	 *            shared with other projects
+	 * @param fetchedWorksheets
+	 *            the worksheets requested, in the same order as the batch
+	 *            request's ranges; a superset of our own
+	 * @return the cells that changed, all of whose files have now been written
 	 * @throws IOException
 	 *             should the {@link FileUpdater} fail
 	 */
-	public void update() throws Exception {
-		if (!ConfigHolder.get().isLoaded()) {
+	public List<CellUpdate> update(SheetsPayload payload, List<String> fetchedWorksheets) throws Exception {
+		if (!configHolder.isLoaded()) {
 			LOGGER.error("No config provided");
-			return;
+			return Collections.emptyList();
 		}
 
-		List<CellUpdate> updatedCells = updateCache(getLatestState());
+		if (payload.isSameAs(this.lastFingerprint)) {
+			LOGGER.trace("Response unchanged since last update; skipping.");
+			return Collections.emptyList();
+		}
+
+		// Update the cache, only looking at columns that have changed
+		List<CellUpdate> updatedCells = this.cache
+				.updateFromSheets(payload.parse(GoogleSheetsBatchResponse.class).byWorksheet(fetchedWorksheets));
 		if (updatedCells.isEmpty()) {
 			LOGGER.debug("Not performing file update(s) - no values to update.");
-			return;
+		} else {
+			// Update applicable files
+			LOGGER.debug("Performing file update(s) for '{}'", this.projectName);
+			List<CellUpdate> fileUpdates = updatedCells.stream() //
+					.filter(cu -> cu.getCellWrapper().getFileExtension().isForFile()) //
+					.collect(Collectors.toList());
+			try {
+				fileUpdater.updateFiles(fileUpdates);
+			} catch (Exception e) {
+				// The cache already has the new values, so have them written again next time
+				cache.filesFailed(fileUpdates);
+				throw e;
+			}
+			// The webserver may now serve these from the local files, and tell pages to show them
+			cache.filesWritten(fileUpdates);
 		}
 
-		// Update applicable files
-		LOGGER.debug("Performing file update(s)");
-		fileUpdater.updateFiles(updatedCells.stream() //
-				.filter(cu -> cu.getCellWrapper().getFileExtension().isForFile()) //
-				.collect(Collectors.toList()));
-	}
-
-	/**
-	 * Makes a request outwards to our prepared Google Sheets API url.
-	 *
-	 * @return {@link GoogleSheetsResponse} from our request to the API
-	 * @throws IOException
-	 *             should the connection or input stream fail
-	 * @throws GoogleSheetsException
-	 */
-	private GoogleSheetsResponse getLatestState() throws IOException, GoogleSheetsException {
-		return AppUtil.get().getGoogleSheetsData(this.urlString);
-	}
-
-	private List<CellUpdate> updateCache(GoogleSheetsResponse data) {
-		Map<CellWrapper, String> fullValueMap = data.getMutatedRowColumnData();
-
-		// Update the cache
-		return this.cache.update(fullValueMap);
+		// Only remember it once fully written, so a failed cycle is re-run in full
+		cache.commitColumnHashes();
+		this.lastFingerprint = payload.getFingerprint();
+		return updatedCells;
 	}
 }
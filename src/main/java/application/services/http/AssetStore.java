@@ -0,0 +1,117 @@
+/**
+ * AssetStore.java is part of the "SheetsIO" project (c) by Mark "Grandy" Bishop, 2021.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package application.services.http;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import org.apache.commons.io.FilenameUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import application.services.http.FileRoutes.FileRoute;
+import lombok.Value;
+
+/**
+ * Gives each local file a url with a hash of its contents in, e.g.
+ * '/project/_assets/0123456789abcdef.webm'; the content behind such a url never
+ * changes, so browsers can cache it for good, and only ever request a file
+ * again once it really is different.
+ *
+ * Hashes are only worked out again once a file has been written again (see
+ * {@link FileRoutes}); a url stops working once every file with that content
+ * has moved on. Files with the same content (e.g. two cells showing the same
+ * logo) share a url.
+ *
+ * @author Mark "Grandy" Bishop
+ */
+class AssetStore {
+	private static final Logger LOGGER = LogManager.getLogger(AssetStore.class);
+
+	@Value
+	private static class Asset {
+		FileRoute route;
+		String hash;
+	}
+
+	private final FileRoutes routes;
+
+	/** The latest asset for each local file, by path. */
+	private final Map<String, Asset> assetsByPath = new HashMap<>();
+	/** Current assets, by hash; several files may have the same content. */
+	private final Map<String, Set<Asset>> assetsByHash = new HashMap<>();
+
+	AssetStore(FileRoutes routes) {
+		this.routes = routes;
+	}
+
+	/**
+	 * @return the hashed url for the given local file, or nothing if it can't be
+	 *         read.
+	 */
+	synchronized Optional<String> getUrl(FileRoute route) {
+		Asset asset = assetsByPath.get(route.getPath());
+		if (asset == null || !asset.getRoute().equals(route)) {
+			try {
+				asset = new Asset(route, ContentHash.of(route.getFile()));
+			} catch (IOException e) {
+				LOGGER.warn("Unable to hash '{}'", route.getFile(), e);
+				return Optional.empty();
+			}
+			Asset previous = assetsByPath.put(route.getPath(), asset);
+			if (previous != null) {
+				forget(previous);
+			}
+			assetsByHash.computeIfAbsent(asset.getHash(), h -> new HashSet<>()).add(asset);
+		}
+		return Optional.of("/" + route.getProject() + "/" + ConnectionRequest.ASSETS_ROUTE + "/" + asset.getHash()
+				+ "." + FilenameUtils.getExtension(route.getFile().getName()));
+	}
+
+	/**
+	 * @param name
+	 *            the last part of an asset url, e.g. '0123456789abcdef.webm'
+	 * @return the file with that hash, if it still has it
+	 */
+	synchronized Optional<FileRoute> get(String project, String name) {
+		Set<Asset> assets = assetsByHash.get(FilenameUtils.getBaseName(name));
+		if (assets == null) {
+			return Optional.empty();
+		}
+		for (Asset asset : new ArrayList<>(assets)) {
+			if (!routes.get(asset.getRoute().getPath()).equals(Optional.of(asset.getRoute()))) {
+				// Written again since
+				forget(asset);
+			} else if (asset.getRoute().getProject().equals(project)) {
+				return Optional.of(asset.getRoute());
+			}
+		}
+		return Optional.empty();
+	}
+
+	private void forget(Asset asset) {
+		Set<Asset> assets = assetsByHash.get(asset.getHash());
+		if (assets != null && assets.remove(asset) && assets.isEmpty()) {
+			assetsByHash.remove(asset.getHash());
+		}
+	}
+}
@@ -0,0 +1,103 @@
+/**
+ * ByteRange.java is part of the "SheetsIO" project (c) by Mark "Grandy" Bishop, 2021.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package application.services.http;
+
+import java.util.Optional;
+
+import lombok.Value;
+
+/**
+ * A single range of bytes asked for by a Range header (e.g. 'bytes=0-1023'),
+ * as <video> elements do to begin playing or to seek without downloading the
+ * whole file first.
+ *
+ * Only single ranges are supported; a request for several is answered with the
+ * whole file, which the spec allows.
+ *
+ * @author Mark "Grandy" Bishop
+ */
+@Value
+class ByteRange {
+	private static final String UNIT = "bytes=";
+	private static final ByteRange UNSATISFIABLE = new ByteRange(-1, -1);
+
+	/** First and last bytes of the range, inclusive. */
+	long start;
+	long end;
+
+	/** @return the range covering the whole of content of the given length. */
+	static ByteRange whole(long length) {
+		return new ByteRange(0, length - 1);
+	}
+
+	/**
+	 * @param header
+	 *            the Range header, if any
+	 * @param length
+	 *            of the content being asked for
+	 * @return the range asked for (which may not be satisfiable), or nothing if
+	 *         the whole content should be sent
+	 */
+	static Optional<ByteRange> parse(String header, long length) {
+		if (header == null || !header.startsWith(UNIT) || header.contains(",")) {
+			return Optional.empty();
+		}
+		String spec = header.substring(UNIT.length()).trim();
+		int dash = spec.indexOf('-');
+		if (dash == -1) {
+			return Optional.empty();
+		}
+
+		try {
+			if (dash == 0) {
+				// Suffix, e.g. the last 500 bytes
+				long suffix = Long.parseLong(spec.substring(1));
+				if (suffix == 0 || length == 0) {
+					return Optional.of(UNSATISFIABLE);
+				}
+				return Optional.of(new ByteRange(Math.max(0, length - suffix), length - 1));
+			}
+
+			long start = Long.parseLong(spec.substring(0, dash));
+			String endSpec = spec.substring(dash + 1);
+			long end = endSpec.isEmpty() ? Long.MAX_VALUE : Long.parseLong(endSpec);
+			if (end < start) {
+				// Invalid, so ignored
+				return Optional.empty();
+			}
+			if (start >= length) {
+				return Optional.of(UNSATISFIABLE);
+			}
+			return Optional.of(new ByteRange(start, Math.min(end, length - 1)));
+		} catch (NumberFormatException e) {
+			return Optional.empty();
+		}
+	}
+
+	boolean isSatisfiable() {
+		return start >= 0;
+	}
+
+	long getLength() {
+		return end - start + 1;
+	}
+
+	/** @return the Content-Range header value for this range of the content. */
+	String toContentRange(long length) {
+		return isSatisfiable() ? "bytes " + start + "-" + end + "/" + length : "bytes */" + length;
+	}
+}
@@ -0,0 +1,124 @@
+/**
+ * CacheHeaders.java is part of the "SheetsIO" project (c) by Mark "Grandy" Bishop, 2021.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package application.services.http;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * Validators (ETag/Last-Modified) and caching headers for responses, and the
+ * conditional requests (If-None-Match/If-Modified-Since) that use them; a
+ * browser source reloading content it already has costs a 304 rather than the
+ * whole of it again.
+ *
+ * @author Mark "Grandy" Bishop
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+class CacheHeaders {
+	/** For urls whose content may change, so must be checked before each use. */
+	static final String REVALIDATE = "no-cache";
+	/** For urls whose content never changes, e.g. those with a hash in. */
+	static final String IMMUTABLE = "public, max-age=31536000, immutable";
+
+	/**
+	 * Add the validators and cache-control to the response, and if the client
+	 * already has this version, respond with a 304.
+	 * 
+	 * @param etag
+	 *            a strong etag for the content, unquoted
+	 * @param lastModified
+	 *            when the content last changed in millis, or 0 if unknown
+	 * @return whether a 304 has been sent, so there's nothing more to do
+	 */
+	static boolean handleConditional(HttpExchange exchange, String etag, long lastModified, String cacheControl)
+			throws IOException {
+		String quotedEtag = quote(etag);
+		Headers headers = exchange.getResponseHeaders();
+		headers.add("etag", quotedEtag);
+		headers.add("cache-control", cacheControl);
+		if (lastModified > 0) {
+			headers.add("last-modified", formatDate(lastModified));
+		}
+
+		if (isNotModified(exchange.getRequestHeaders(), quotedEtag, lastModified)) {
+			exchange.sendResponseHeaders(304, -1);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @return whether the request's conditions show the client's copy is current;
+	 *         If-Modified-Since is only considered without If-None-Match.
+	 */
+	static boolean isNotModified(Headers requestHeaders, String quotedEtag, long lastModified) {
+		String ifNoneMatch = requestHeaders.getFirst("If-None-Match");
+		if (ifNoneMatch != null) {
+			for (String candidate : ifNoneMatch.split(",")) {
+				// Weak comparison, as is right for If-None-Match
+				String tag = candidate.trim().replaceFirst("^W/", "");
+				if (tag.equals(quotedEtag) || tag.equals("*")) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		String ifModifiedSince = requestHeaders.getFirst("If-Modified-Since");
+		if (ifModifiedSince != null && lastModified > 0) {
+			try {
+				long since = ZonedDateTime.parse(ifModifiedSince, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant()
+						.toEpochMilli();
+				// Http dates are only to the second
+				return lastModified / 1000 <= since / 1000;
+			} catch (DateTimeParseException e) {
+				return false;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return whether a Range in the request still applies, i.e. there's no
+	 *         If-Range or it matches the current version; otherwise the whole
+	 *         content must be sent.
+	 */
+	static boolean isRangeCurrent(Headers requestHeaders, String etag, long lastModified) {
+		String ifRange = requestHeaders.getFirst("If-Range");
+		return ifRange == null || ifRange.equals(quote(etag))
+				|| (lastModified > 0 && ifRange.equals(formatDate(lastModified)));
+	}
+
+	private static String quote(String etag) {
+		return "\"" + etag + "\"";
+	}
+
+	/** @return the given time in millis as an http date. */
+	static String formatDate(long millis) {
+		return DateTimeFormatter.RFC_1123_DATE_TIME.format(Instant.ofEpochMilli(millis).atZone(ZoneOffset.UTC));
+	}
+}
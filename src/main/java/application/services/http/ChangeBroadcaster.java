@@ -0,0 +1,417 @@
+/**
+ * ChangeBroadcaster.java is part of the "SheetsIO" project (c) by Mark "Grandy" Bishop, 2021.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package application.services.http;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.google.gson.GsonBuilder;
+
+import application.services.ISheetCacheListener;
+import application.services.SheetCache;
+
+/**
+ * Pushes changes in each project's {@link SheetCache} out to connected
+ * {@link IChangeSubscriber}s, so browser sources hear about new values as soon
+ * as they arrive rather than polling for them.
+ *
+ * Each change also carries the urls of the local copies of any images and
+ * videos in it, so a client can show them from here rather than fetching them
+ * from wherever they came from.
+ *
+ * Changes and subscriptions are put in order on a single thread of its own,
+ * which hands each subscriber's events to a queue of that subscriber's own;
+ * the writing is done from a pool of senders, one event at a time per
+ * subscriber. The update loop is never held up by a slow client, and neither
+ * is anyone else: a client taking longer than the write timeout to take an
+ * event, or falling too many events behind, is let go of.
+ *
+ * Both the senders and the subscribers are limited in number; past
+ * {@link #MAX_SUBSCRIBERS}, new subscribers are turned away, to try again
+ * later.
+ *
+ * @author Mark "Grandy" Bishop
+ */
+public class ChangeBroadcaster {
+	private static final Logger LOGGER = LogManager.getLogger(ChangeBroadcaster.class);
+
+	public static final String CHANGE_EVENT = "change";
+	public static final String RELOAD_EVENT = "reload";
+
+	/** How often idle connections are checked, so dead ones are let go. */
+	private static final long HEARTBEAT_SECONDS = 15;
+	/** How long a single event may take to be written to a client. */
+	private static final long DEFAULT_WRITE_TIMEOUT_MILLIS = 10000;
+	/** Events a client may fall behind by before it's given up on. */
+	static final int MAX_PENDING_EVENTS = 100;
+	/** Clients that may be subscribed at once. */
+	static final int MAX_SUBSCRIBERS = 500;
+	/** Events being written at once; any more wait their turn. */
+	private static final int MAX_SENDERS = 16;
+
+	private final long writeTimeoutNanos;
+	private final int maxSubscribers;
+	private final ILocalUrls localUrls;
+
+	/** Subscribers not yet let go of, whether or not their subscribing is done. */
+	private final AtomicInteger subscriberCount = new AtomicInteger();
+
+	/** Subscribers by project name. */
+	private final Map<String, List<Outbox>> subscribers = new ConcurrentHashMap<>();
+
+	private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread thread = new Thread(r, "change-broadcaster");
+		thread.setDaemon(true);
+		return thread;
+	});
+	private final ThreadPoolExecutor senders = new ThreadPoolExecutor(MAX_SENDERS, MAX_SENDERS, 60, TimeUnit.SECONDS,
+			new LinkedBlockingQueue<>(), r -> {
+				Thread thread = new Thread(r, "change-sender");
+				thread.setDaemon(true);
+				return thread;
+			});
+
+	/**
+	 * Finds the url of a cell's local copy, once it has been written with the
+	 * cell's current value.
+	 */
+	interface ILocalUrls {
+		Optional<String> get(String projectName, SheetCache cache, String cellName);
+	}
+
+	/** @see ILocalUrls */
+	public ChangeBroadcaster(ILocalUrls localUrls) {
+		this(localUrls, DEFAULT_WRITE_TIMEOUT_MILLIS, MAX_SUBSCRIBERS);
+	}
+
+	/** For tests, with a write timeout and limit of their own. */
+	ChangeBroadcaster(ILocalUrls localUrls, long writeTimeoutMillis, int maxSubscribers) {
+		this.localUrls = localUrls;
+		this.writeTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(writeTimeoutMillis);
+		this.maxSubscribers = maxSubscribers;
+		// Idle senders aren't kept about
+		senders.allowCoreThreadTimeOut(true);
+		executor.scheduleAtFixedRate(this::heartbeat, HEARTBEAT_SECONDS, HEARTBEAT_SECONDS, TimeUnit.SECONDS);
+		long checkMillis = Math.max(1, Math.min(1000, writeTimeoutMillis / 2));
+		executor.scheduleAtFixedRate(this::checkWrites, checkMillis, checkMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/** @return a listener passing the given project's changes to its subscribers. */
+	public ISheetCacheListener listenerFor(String projectName, SheetCache cache) {
+		return (version, changedValues) -> {
+			// Looked up now, while the files are as the values say
+			Map<String, String> urls = getLocalUrls(projectName, cache, changedValues);
+			executor.execute(() -> broadcast(projectName, CHANGE_EVENT, version, changedValues, urls));
+		};
+	}
+
+	/**
+	 * Tell the given project's subscribers that it has been replaced (e.g. the
+	 * config reloaded), so anything they have is out of date.
+	 */
+	public void projectReplaced(String projectName) {
+		executor.execute(
+				() -> broadcast(projectName, RELOAD_EVENT, 0, Collections.emptyMap(), Collections.emptyMap()));
+	}
+
+	/**
+	 * Begin sending changes to the given subscriber, first catching it up on
+	 * anything it has missed.
+	 *
+	 * @param cache
+	 *            the project's current cache; subscribers to a project that
+	 *            isn't loaded are to be turned away beforehand, as nothing would
+	 *            ever be sent to them
+	 * @param since
+	 *            the version the client already has
+	 * @return false if there are already too many subscribers, so this one
+	 *         hasn't been; it's left to the caller to turn the client away
+	 */
+	public boolean subscribe(String projectName, IChangeSubscriber subscriber, SheetCache cache, long since) {
+		if (subscriberCount.incrementAndGet() > maxSubscribers) {
+			subscriberCount.decrementAndGet();
+			LOGGER.debug("Too many subscribers; turned away '{}/{}'", projectName, subscriber.getAsset());
+			return false;
+		}
+		executor.execute(() -> {
+			// Done here, so no change can slip between catching up and subscribing
+			Outbox outbox = new Outbox(projectName, subscriber);
+			subscribers.computeIfAbsent(projectName, p -> new CopyOnWriteArrayList<>()).add(outbox);
+			long version = cache.getVersion();
+			Map<String, String> missed = forSubscriber(subscriber, cache.getValuesByName(since));
+			if (!missed.isEmpty()) {
+				Map<String, String> urls = getLocalUrls(projectName, cache, missed);
+				outbox.offer(s -> s.send(CHANGE_EVENT, version, missed, urls));
+			}
+			// Any change still to be broadcast is already included
+			outbox.sentVersion = version;
+			LOGGER.debug("Subscribed to '{}/{}'", projectName, subscriber.getAsset());
+		});
+		return true;
+	}
+
+	/**
+	 * As {@link #subscribe}, for a subscriber that only wants the next change
+	 * (e.g. a long-poll request), so says it has gone away after its first send.
+	 * Should nothing change within the timeout, it is sent a change with no
+	 * values instead.
+	 */
+	public boolean subscribeOnce(String projectName, IChangeSubscriber subscriber, SheetCache cache, long since,
+			long timeoutMillis) {
+		if (!subscribe(projectName, subscriber, cache, since)) {
+			return false;
+		}
+		executor.schedule(() -> {
+			List<Outbox> projectSubscribers = subscribers.get(projectName);
+			if (projectSubscribers == null) {
+				return;
+			}
+			for (Outbox outbox : projectSubscribers) {
+				if (outbox.subscriber == subscriber && projectSubscribers.remove(outbox)) {
+					long version = cache.getVersion();
+					outbox.offer(
+							s -> s.send(CHANGE_EVENT, version, Collections.emptyMap(), Collections.emptyMap()));
+				}
+			}
+		}, timeoutMillis, TimeUnit.MILLISECONDS);
+		return true;
+	}
+
+	/**
+	 * Stop sending to the given subscriber and close its connection, e.g. as the
+	 * client has closed it from its end.
+	 */
+	public void unsubscribe(String projectName, IChangeSubscriber subscriber) {
+		executor.execute(() -> {
+			List<Outbox> projectSubscribers = subscribers.get(projectName);
+			if (projectSubscribers != null) {
+				projectSubscribers.stream().filter(o -> o.subscriber == subscriber).forEach(Outbox::close);
+			}
+		});
+	}
+
+	/** Stop sending; should only be called on application shutdown. */
+	public void stop() {
+		executor.shutdownNow();
+		senders.shutdownNow();
+	}
+
+	private void broadcast(String projectName, String event, long version, Map<String, String> changedValues,
+			Map<String, String> changedUrls) {
+		List<Outbox> projectSubscribers = subscribers.get(projectName);
+		if (projectSubscribers == null) {
+			return;
+		}
+		for (Outbox outbox : projectSubscribers) {
+			if (CHANGE_EVENT.equals(event) && version <= outbox.sentVersion) {
+				continue;
+			}
+			Map<String, String> values = forSubscriber(outbox.subscriber, changedValues);
+			if (RELOAD_EVENT.equals(event) || !values.isEmpty()) {
+				Map<String, String> urls = forSubscriber(outbox.subscriber, changedUrls);
+				outbox.offer(s -> s.send(event, version, values, urls));
+			}
+		}
+	}
+
+	/** @return the urls of the local copies of those of the given cells that have one. */
+	private Map<String, String> getLocalUrls(String projectName, SheetCache cache, Map<String, String> values) {
+		Map<String, String> urls = new LinkedHashMap<>();
+		values.keySet().forEach(name -> localUrls.get(projectName, cache, name).ifPresent(url -> urls.put(name, url)));
+		return urls;
+	}
+
+	/** @return only the values the given subscriber is interested in. */
+	private static Map<String, String> forSubscriber(IChangeSubscriber subscriber, Map<String, String> values) {
+		String asset = subscriber.getAsset();
+		if (asset.isEmpty()) {
+			return values;
+		}
+		return values.containsKey(asset) ? Collections.singletonMap(asset, values.get(asset))
+				: Collections.emptyMap();
+	}
+
+	/**
+	 * @return an event as a single json object, for transports without a place of
+	 *         their own for the event name, e.g.
+	 *         '{"event":"change","version":12,"values":{"asset":"value"},"urls":{}}'
+	 */
+	static String toJson(String event, long version, Map<String, String> values, Map<String, String> urls) {
+		Map<String, Object> data = new LinkedHashMap<>();
+		data.put("event", event);
+		data.put("version", version);
+		data.put("values", values);
+		data.put("urls", urls);
+		return new GsonBuilder().create().toJson(data);
+	}
+
+	private void heartbeat() {
+		// Those with events waiting find out soon enough anyway
+		subscribers.values().forEach(list -> list.stream().filter(Outbox::isIdle)
+				.forEach(outbox -> outbox.offer(IChangeSubscriber::heartbeat)));
+	}
+
+	private void checkWrites() {
+		long now = System.nanoTime();
+		subscribers.values().forEach(list -> list.forEach(outbox -> outbox.checkWrite(now)));
+	}
+
+	/**
+	 * A subscriber's own queue of events, written out one at a time and in order
+	 * by whichever sender is free.
+	 */
+	private final class Outbox implements Runnable {
+		private final String projectName;
+		private final IChangeSubscriber subscriber;
+
+		private final Queue<Predicate<IChangeSubscriber>> pending = new ConcurrentLinkedQueue<>();
+		private final AtomicInteger pendingCount = new AtomicInteger();
+		/** Whether a sender has been given this outbox, and not yet found it empty. */
+		private final AtomicBoolean scheduled = new AtomicBoolean();
+		private final AtomicBoolean closed = new AtomicBoolean();
+		/** The latest version it has been caught up to; only touched from the broadcaster's thread. */
+		private long sentVersion;
+
+		/** The sender writing to the client right now, and since when; guarded by this. */
+		private Thread writer;
+		private long writeStartedNanos;
+
+		private Outbox(String projectName, IChangeSubscriber subscriber) {
+			this.projectName = projectName;
+			this.subscriber = subscriber;
+		}
+
+		private boolean isIdle() {
+			return pendingCount.get() == 0;
+		}
+
+		/**
+		 * Queue an event for the client.
+		 *
+		 * @param message
+		 *            sends the event, answering false should the client have gone
+		 *            away
+		 */
+		private void offer(Predicate<IChangeSubscriber> message) {
+			if (closed.get()) {
+				return;
+			}
+			if (pendingCount.incrementAndGet() > MAX_PENDING_EVENTS) {
+				LOGGER.debug("'{}/{}' fell more than {} events behind; letting it go", projectName,
+						subscriber.getAsset(), MAX_PENDING_EVENTS);
+				close();
+				return;
+			}
+			pending.add(message);
+			schedule();
+		}
+
+		private void schedule() {
+			if (scheduled.compareAndSet(false, true)) {
+				try {
+					senders.execute(this);
+				} catch (RejectedExecutionException e) {
+					// Shutting down
+				}
+			}
+		}
+
+		@Override
+		public void run() {
+			Predicate<IChangeSubscriber> message;
+			while (!closed.get() && (message = pending.poll()) != null) {
+				pendingCount.decrementAndGet();
+				synchronized (this) {
+					writer = Thread.currentThread();
+					writeStartedNanos = System.nanoTime();
+				}
+				boolean sent = false;
+				try {
+					sent = message.test(subscriber);
+				} catch (RuntimeException e) {
+					LOGGER.warn("Unable to send to '{}/{}'", projectName, subscriber.getAsset(), e);
+				} finally {
+					synchronized (this) {
+						writer = null;
+						// Should the write have been given up on, the interrupt is done with
+						Thread.interrupted();
+					}
+				}
+				if (!sent) {
+					close();
+					return;
+				}
+			}
+			scheduled.set(false);
+			// Anything offered after the queue was found empty, but before we let go
+			if (!closed.get() && !pending.isEmpty()) {
+				schedule();
+			}
+		}
+
+		/** Let go of the client should its current write have taken too long. */
+		private void checkWrite(long now) {
+			synchronized (this) {
+				if (writer == null || now - writeStartedNanos < writeTimeoutNanos) {
+					return;
+				}
+				// Under the lock, so it can only land on this write; ends a write blocked on a channel
+				writer.interrupt();
+			}
+			LOGGER.debug("Writing to '{}/{}' took too long; letting it go", projectName, subscriber.getAsset());
+			close();
+		}
+
+		/** Forget the subscriber, and close its connection; only ever done once. */
+		private void close() {
+			if (!closed.compareAndSet(false, true)) {
+				return;
+			}
+			subscriberCount.decrementAndGet();
+			List<Outbox> projectSubscribers = subscribers.get(projectName);
+			if (projectSubscribers != null) {
+				projectSubscribers.remove(this);
+			}
+			pending.clear();
+			try {
+				// Closing may itself block on a stalled client, so is left to a sender
+				senders.execute(subscriber::close);
+			} catch (RejectedExecutionException e) {
+				subscriber.close();
+			}
+		}
+	}
+}
@@ -0,0 +1,95 @@
+/**
+ * ClientFiles.java is part of the "SheetsIO" project (c) by Mark "Grandy" Bishop, 2021.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package application.services.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import lombok.Getter;
+import lombok.Value;
+
+/**
+ * SheetsIO's own client files (e.g. live.js), served from within the jar under
+ * '/_sheetsio/', so that pages never need to reach out to the internet.
+ *
+ * Each file is read once and kept, along with a hash of its contents; pages
+ * link to it with the hash in the url, so browsers can cache it for good and
+ * still pick up a new version when SheetsIO is upgraded.
+ *
+ * @author Mark "Grandy" Bishop
+ */
+class ClientFiles {
+	private static final Logger LOGGER = LogManager.getLogger(ClientFiles.class);
+
+	/** Location of the client files within the jar. */
+	private static final String RESOURCE_FOLDER = "/web/";
+
+	@Value
+	static class ClientFile {
+		byte[] body;
+		String hash;
+		/** The body gzipped, made on first being asked for by a client. */
+		@Getter(lazy = true)
+		byte[] gzipped = Compression.gzip(body);
+	}
+
+	/** Files that have been found, by name. */
+	private final Map<String, ClientFile> files = new ConcurrentHashMap<>();
+
+	/** @return the named client file, or nothing if there's no such file. */
+	Optional<ClientFile> get(String name) {
+		ClientFile file = files.get(name);
+		if (file == null) {
+			Optional<ClientFile> read = read(name);
+			read.ifPresent(f -> files.put(name, f));
+			return read;
+		}
+		return Optional.of(file);
+	}
+
+	/**
+	 * @return the url to reference the named client file by, including its hash,
+	 *         e.g. '/_sheetsio/live.js?v=0123456789abcdef'
+	 */
+	String getSrc(String name) {
+		String src = "/" + ConnectionRequest.CLIENT_PATH + "/" + name;
+		return get(name).map(f -> src + "?v=" + f.getHash()).orElse(src);
+	}
+
+	private static Optional<ClientFile> read(String name) {
+		if (!name.endsWith(".js")) {
+			return Optional.empty();
+		}
+		try (InputStream is = ClientFiles.class.getResourceAsStream(RESOURCE_FOLDER + name)) {
+			if (is == null) {
+				return Optional.empty();
+			}
+			byte[] body = IOUtils.toByteArray(is);
+			return Optional.of(new ClientFile(body, ContentHash.of(body)));
+		} catch (IOException e) {
+			LOGGER.error("Unable to read client file '{}'", name, e);
+			return Optional.empty();
+		}
+	}
+}
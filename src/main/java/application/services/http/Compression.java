@@ -0,0 +1,96 @@
+/**
+ * Compression.java is part of the "SheetsIO" project (c) by Mark "Grandy" Bishop, 2021.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package application.services.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * Gzip for text bodies (html, javascript, json), for clients that accept it;
+ * worth having when overlays are pulled from one SheetsIO box by other
+ * machines over Wi-Fi. Bodies that are sent often keep their gzipped variant,
+ * so each is only compressed once.
+ *
+ * @author Mark "Grandy" Bishop
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+class Compression {
+	/** Smaller bodies aren't worth the effort, and may even grow. */
+	static final int MIN_LENGTH = 256;
+	/** Added to the etag of the gzipped variant, as it's a different set of bytes. */
+	static final String GZIP_ETAG_SUFFIX = "-gzip";
+
+	/**
+	 * @return whether a body of the given length should be gzipped for the
+	 *         request, i.e. it's long enough and the client accepts gzip.
+	 */
+	static boolean isWanted(Headers requestHeaders, int length) {
+		return length >= MIN_LENGTH && acceptsGzip(requestHeaders.getFirst("Accept-Encoding"));
+	}
+
+	/** @return whether the given Accept-Encoding header allows gzip. */
+	static boolean acceptsGzip(String acceptEncoding) {
+		if (acceptEncoding == null) {
+			return false;
+		}
+		for (String coding : acceptEncoding.split(",")) {
+			String[] parts = coding.split(";");
+			String name = parts[0].trim();
+			if (name.equalsIgnoreCase("gzip") || name.equals("*")) {
+				// e.g. 'gzip;q=0' means it's specifically not wanted
+				return parts.length < 2 || !parts[1].trim().matches("q=0(\\.0*)?");
+			}
+		}
+		return false;
+	}
+
+	static byte[] gzip(byte[] body) {
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.length / 2);
+		try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+			gzip.write(body);
+		} catch (IOException e) {
+			// Never happens writing to memory
+			throw new UncheckedIOException(e);
+		}
+		return compressed.toByteArray();
+	}
+
+	/**
+	 * Respond 200 with the given body, which isn't worth keeping a gzipped
+	 * variant of (e.g. json that's only sent once), gzipping it if wanted.
+	 */
+	static void send(HttpExchange exchange, byte[] body) throws IOException {
+		exchange.getResponseHeaders().add("vary", "Accept-Encoding");
+		if (isWanted(exchange.getRequestHeaders(), body.length)) {
+			body = gzip(body);
+			exchange.getResponseHeaders().add("content-encoding", "gzip");
+		}
+		exchange.sendResponseHeaders(200, body.length);
+		try (OutputStream outputStream = exchange.getResponseBody()) {
+			outputStream.write(body);
+		}
+	}
+}
@@ -16,12 +16,12 @@
  */
 package application.services.http;
 
-import java.io.File;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Predicate;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -42,6 +42,26 @@ import lombok.ToString;
 @AllArgsConstructor(access = AccessLevel.PRIVATE)
 public class ConnectionRequest {
 	private static final Pattern URL_PATTERN = Pattern.compile("^/([^/]+)/([^?&/]+).*$");
+	/** e.g. /project/asset/_events or /project/asset/_changes */
+	private static final Pattern ASSET_ROUTE_PATTERN = Pattern.compile("^/([^/]+)/([^/]+)/(_[^/]+)$");
+	/** e.g. /project/_assets/0123456789abcdef.webm */
+	private static final Pattern HASHED_ASSET_PATTERN = Pattern.compile("^/([^/]+)/_assets/([^/]+)$");
+	/** e.g. /project/_scenes/scoreboard */
+	private static final Pattern SCENE_PATTERN = Pattern.compile("^/([^/]+)/_scenes/([^/]+)$");
+	/** e.g. /project */
+	private static final Pattern PROJECT_PATTERN = Pattern.compile("^/([^/]+)/?$");
+
+	/**
+	 * 'Project' under which SheetsIO's own client files are served, e.g.
+	 * /_sheetsio/live.js
+	 */
+	public static final String CLIENT_PATH = "_sheetsio";
+	/** Built-in routes begin with an underscore, to keep clear of cell names. */
+	public static final String EVENTS_ROUTE = "_events";
+	public static final String CHANGES_ROUTE = "_changes";
+	public static final String ASSETS_ROUTE = "_assets";
+	public static final String VALUES_ROUTE = "_values.json";
+	public static final String SCENES_ROUTE = "_scenes";
 
 	/** e.g. /project/asset */
 	@Getter
@@ -59,30 +79,78 @@ public class ConnectionRequest {
 	@Getter
 	private final ConnectionRequestType type;
 
+	/**
+	 * As {@link #from(URI, Predicate)}, for where no path is a file (e.g. only
+	 * changes are listened for).
+	 */
+	public static Optional<ConnectionRequest> from(URI uri) {
+		return from(uri, path -> false);
+	}
+
 	/**
 	 * @param url
 	 *            The request URL, e.g. '/project/asset.png' or '/project/thisText'
+	 * @param isFile
+	 *            whether a path is that of a local file, e.g. '/project/asset.png'
 	 * @return Optional<ConnectionRequest> With a split out request, or empty if the
 	 *         URL is invalid
 	 */
-	public static Optional<ConnectionRequest> from(URI uri) {
+	public static Optional<ConnectionRequest> from(URI uri, Predicate<String> isFile) {
 		String path = uri.getPath();
 		String paramString = uri.getQuery();
 
-		// Validate what type of asset this is by attempting to retrieve it
-		File file = new File(System.getProperty("user.dir") + "/files" + path);
-		ConnectionRequestType type = file.exists() ? ConnectionRequestType.FILE : ConnectionRequestType.HTML;
+		ConnectionRequestType type = isFile.test(path) ? ConnectionRequestType.FILE : ConnectionRequestType.HTML;
 
 		Matcher urlMatcher = URL_PATTERN.matcher(path);
+		Matcher assetRouteMatcher = ASSET_ROUTE_PATTERN.matcher(path);
+		Matcher hashedAssetMatcher = HASHED_ASSET_PATTERN.matcher(path);
+		Matcher sceneMatcher = SCENE_PATTERN.matcher(path);
+		Matcher projectMatcher = PROJECT_PATTERN.matcher(path);
 		String proj = "";
 		String asset = "";
-		if (urlMatcher.matches()) {
+		if (hashedAssetMatcher.matches()) {
+			// A local file by the hash of its contents
+			proj = hashedAssetMatcher.group(1);
+			asset = hashedAssetMatcher.group(2);
+			type = ConnectionRequestType.ASSET;
+		} else if (sceneMatcher.matches()) {
+			// Many cells in one page
+			proj = sceneMatcher.group(1);
+			asset = sceneMatcher.group(2);
+			type = ConnectionRequestType.SCENE;
+		} else if (assetRouteMatcher.matches() && getChangeRouteType(assetRouteMatcher.group(3)) != null) {
+			// Changes to a single asset
+			proj = assetRouteMatcher.group(1);
+			asset = assetRouteMatcher.group(2);
+			type = getChangeRouteType(assetRouteMatcher.group(3));
+		} else if (urlMatcher.matches()) {
 			proj = urlMatcher.group(1);
 			asset = urlMatcher.group(2);
+			if (CLIENT_PATH.equals(proj)) {
+				type = ConnectionRequestType.CLIENT;
+			} else if (VALUES_ROUTE.equals(asset)) {
+				// Every value in the project
+				type = ConnectionRequestType.VALUES;
+				asset = "";
+			} else if (getChangeRouteType(asset) != null) {
+				// Changes to the whole project
+				type = getChangeRouteType(asset);
+				asset = "";
+			}
 		} else if ("/favicon.ico".equals(path)) {
 			type = ConnectionRequestType.FAVICON;
 		} else if ("/update".equals(path)) {
 			type = ConnectionRequestType.UPDATE;
+		} else if ("/autoupdate".equals(path)) {
+			type = ConnectionRequestType.AUTO_UPDATE;
+		} else if ("/reload".equals(path)) {
+			type = ConnectionRequestType.RELOAD;
+		} else if ("/status".equals(path)) {
+			type = ConnectionRequestType.STATUS;
+		} else if (projectMatcher.matches() && !CLIENT_PATH.equals(projectMatcher.group(1))) {
+			// As /project/_values.json
+			proj = projectMatcher.group(1);
+			type = ConnectionRequestType.VALUES;
 		} else {
 			// Invalid URL, just use HTML
 			type = ConnectionRequestType.HTML;
@@ -95,11 +163,35 @@ public class ConnectionRequest {
 		return Optional.of(new ConnectionRequest(path, proj, asset, params, type));
 	}
 
+	/**
+	 * @return the type of route for hearing about changes, e.g. '_events', or null
+	 *         if it isn't one.
+	 */
+	private static ConnectionRequestType getChangeRouteType(String route) {
+		switch (route) {
+		case EVENTS_ROUTE:
+			return ConnectionRequestType.EVENTS;
+		case CHANGES_ROUTE:
+			return ConnectionRequestType.CHANGES;
+		default:
+			return null;
+		}
+	}
+
 	/** @return whether the request is for a valid resource. */
 	public boolean isValid() {
 		return asset != null && !asset.isEmpty();
 	}
 
+	/**
+	 * @return the value of a 'name=value' parameter in the query, if present.
+	 */
+	public Optional<String> getParam(String name) {
+		String prefix = name + "=";
+		return this.parameters.stream().filter(p -> p.startsWith(prefix)).map(p -> p.substring(prefix.length()))
+				.findFirst();
+	}
+
 	/**
 	 * @return whether the query's parameters contains an entry for the given
 	 *         parameter.
@@ -109,6 +201,27 @@ public class ConnectionRequest {
 	}
 
 	enum ConnectionRequestType {
-		FILE, HTML, FAVICON, UPDATE;
+		FILE, ASSET, HTML, FAVICON, UPDATE, AUTO_UPDATE, RELOAD, STATUS, EVENTS, CHANGES, CLIENT, VALUES, SCENE;
+
+		/** @return whether this controls the update loop, rather than serving an asset. */
+		public boolean isControl() {
+			switch (this) {
+			case UPDATE:
+			case AUTO_UPDATE:
+			case RELOAD:
+			case STATUS:
+				return true;
+			default:
+				return false;
+			}
+		}
+
+		/**
+		 * @return whether this control route changes how updates are made, so must
+		 *         not be reachable by a mere link or image on some other page.
+		 */
+		public boolean isPostOnly() {
+			return AUTO_UPDATE.equals(this) || RELOAD.equals(this);
+		}
 	}
 }
@@ -0,0 +1,76 @@
+/**
+ * ContentHash.java is part of the "SheetsIO" project (c) by Mark "Grandy" Bishop, 2021.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package application.services.http;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * Short hashes of content, for etags and for versioning urls; two different
+ * contents getting the same hash is not a practical concern.
+ *
+ * @author Mark "Grandy" Bishop
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+class ContentHash {
+	/** Length of the hex hash. */
+	private static final int LENGTH = 16;
+
+	/** @return a short hex hash of the given contents. */
+	static String of(byte[] contents) {
+		MessageDigest digest = newDigest();
+		digest.update(contents);
+		return toHex(digest.digest());
+	}
+
+	/** @return a short hex hash of the given file's contents. */
+	static String of(File file) throws IOException {
+		MessageDigest digest = newDigest();
+		byte[] buffer = new byte[64 * 1024];
+		try (InputStream is = Files.newInputStream(file.toPath())) {
+			int read;
+			while ((read = is.read(buffer)) != -1) {
+				digest.update(buffer, 0, read);
+			}
+		}
+		return toHex(digest.digest());
+	}
+
+	private static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			// Every JVM is required to have SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String toHex(byte[] digest) {
+		StringBuilder hex = new StringBuilder();
+		for (int i = 0; i < LENGTH / 2; i++) {
+			hex.append(String.format("%02x", digest[i]));
+		}
+		return hex.toString();
+	}
+}
@@ -0,0 +1,117 @@
+/**
+ * EventStreamSubscriber.java is part of the "SheetsIO" project (c) by Mark "Grandy" Bishop, 2021.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package application.services.http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.google.gson.GsonBuilder;
+import com.sun.net.httpserver.HttpExchange;
+
+import lombok.Getter;
+
+/**
+ * A client listening over server-sent events (an EventSource in the browser).
+ * The response is left open after the request has been handled, so no server
+ * thread is tied up while it waits; events are written to it as they happen.
+ *
+ * The response is only begun once the client has been subscribed (see
+ * {@link #start()}), so one turned away can still be answered otherwise.
+ *
+ * @author Mark "Grandy" Bishop
+ */
+class EventStreamSubscriber implements IChangeSubscriber {
+	/** How long the browser should wait before reconnecting, should we drop. */
+	private static final int RETRY_MILLIS = 1000;
+
+	private final HttpExchange exchange;
+	private final OutputStream outputStream;
+
+	@Getter
+	private final String asset;
+
+	/** Whether the response has been begun; guarded by this. */
+	private boolean started;
+
+	EventStreamSubscriber(HttpExchange exchange, String asset) {
+		this.exchange = exchange;
+		this.outputStream = exchange.getResponseBody();
+		this.asset = asset;
+	}
+
+	/**
+	 * Respond to the request with an (open-ended) event stream, unless the first
+	 * event sent has done so already.
+	 *
+	 * @return false should the client already have gone away
+	 */
+	synchronized boolean start() {
+		if (started) {
+			return true;
+		}
+		started = true;
+		exchange.getResponseHeaders().add("content-type", "text/event-stream; charset=utf-8");
+		exchange.getResponseHeaders().add("cache-control", "no-cache");
+		try {
+			exchange.sendResponseHeaders(200, 0);
+		} catch (IOException e) {
+			exchange.close();
+			return false;
+		}
+		return print("retry: " + RETRY_MILLIS + "\n\n");
+	}
+
+	@Override
+	public boolean send(String event, long version, Map<String, String> values, Map<String, String> urls) {
+		Map<String, Object> data = new LinkedHashMap<>();
+		data.put("version", version);
+		data.put("values", values);
+		data.put("urls", urls);
+		return write("id: " + version + "\nevent: " + event + "\ndata: " + new GsonBuilder().create().toJson(data)
+				+ "\n\n");
+	}
+
+	@Override
+	public boolean heartbeat() {
+		// Lines beginning with a colon are comments, ignored by the browser
+		return write(": ping\n\n");
+	}
+
+	@Override
+	public void close() {
+		exchange.close();
+	}
+
+	/** Synchronized, so nothing is written before the response is begun. */
+	private synchronized boolean write(String message) {
+		return start() && print(message);
+	}
+
+	private boolean print(String message) {
+		try {
+			outputStream.write(message.getBytes(StandardCharsets.UTF_8));
+			outputStream.flush();
+			return true;
+		} catch (IOException e) {
+			exchange.close();
+			return false;
+		}
+	}
+}
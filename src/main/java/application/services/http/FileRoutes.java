@@ -0,0 +1,130 @@
+/**
+ * FileRoutes.java is part of the "SheetsIO" project (c) by Mark "Grandy" Bishop, 2021.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package application.services.http;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import application.models.CellWrapper;
+import application.models.FileExtension;
+import application.models.FileExtension.FileExtensionType;
+import application.services.SheetCache;
+import lombok.Value;
+
+/**
+ * The local files the webserver serves, by request path (e.g.
+ * '/project/caster1Name.txt'), along with all that's needed to serve each. It's
+ * kept up to date as files are written, so a request never has to look at the
+ * disk to find out what (or whether) its path is.
+ *
+ * Only the files written for a project's cells are here, so nothing else in -
+ * or outside of - the files folder can be reached.
+ *
+ * @author Mark "Grandy" Bishop
+ */
+class FileRoutes {
+	@Value
+	static class FileRoute {
+		/** e.g. '/project/caster1Name.txt' */
+		String path;
+		String project;
+		File file;
+		FileExtensionType type;
+		long length;
+		String contentType;
+		long lastModified;
+		/** Changes whenever the file is written, e.g. '17a2b3c4d5e-1f40'. */
+		String version;
+	}
+
+	private final File folder;
+	private final Map<String, FileRoute> routes = new ConcurrentHashMap<>();
+
+	/**
+	 * @param folder
+	 *            the files folder, holding a folder per project
+	 */
+	FileRoutes(File folder) {
+		this.folder = folder;
+	}
+
+	/** @return the file at the given request path, if it's one we serve. */
+	Optional<FileRoute> get(String path) {
+		return Optional.ofNullable(routes.get(path));
+	}
+
+	/** @return the given cell's file, if it has been written. */
+	Optional<FileRoute> get(String project, String cellName, CellWrapper cell) {
+		return get(getPath(project, cellName, cell));
+	}
+
+	boolean contains(String path) {
+		return routes.containsKey(path);
+	}
+
+	/**
+	 * Route to the files of every cell in the given project, replacing those
+	 * before; paths that are in both carry on working throughout.
+	 */
+	void register(String project, SheetCache cache) {
+		Set<String> paths = new HashSet<>();
+		for (Entry<String, CellWrapper> cell : cache.getCellsByName().entrySet()) {
+			update(project, cell.getKey(), cell.getValue());
+			paths.add(getPath(project, cell.getKey(), cell.getValue()));
+		}
+		routes.values().removeIf(r -> r.getProject().equals(project) && !paths.contains(r.getPath()));
+	}
+
+	/** Take note of the given cell's file(s), just written. */
+	void fileWritten(String project, SheetCache cache, CellWrapper cell) {
+		for (Entry<String, CellWrapper> named : cache.getCellsByName().entrySet()) {
+			if (named.getValue().equals(cell)) {
+				update(project, named.getKey(), named.getValue());
+			}
+		}
+	}
+
+	void removeProject(String project) {
+		routes.values().removeIf(r -> r.getProject().equals(project));
+	}
+
+	private void update(String project, String cellName, CellWrapper cell) {
+		if (!cell.getFileExtension().isForFile()) {
+			return;
+		}
+		String path = getPath(project, cellName, cell);
+		FileExtension ext = cell.getFileExtension();
+		File file = new File(folder, project + File.separator + cellName + "." + ext.getExtension());
+		if (!file.isFile()) {
+			routes.remove(path);
+			return;
+		}
+		long lastModified = file.lastModified();
+		long length = file.length();
+		routes.put(path, new FileRoute(path, project, file, ext.getType(), length, ext.getContentType(), lastModified,
+				Long.toHexString(lastModified) + "-" + Long.toHexString(length)));
+	}
+
+	private static String getPath(String project, String cellName, CellWrapper cell) {
+		return "/" + project + "/" + cellName + "." + cell.getFileExtension().getExtension();
+	}
+}
@@ -27,14 +27,18 @@ public class HtmlResponseBuilder {
 
 	static String CORE_TEMPLATE = "<html>" //
 			+ "	<head>" //
-			+ "		<script type=\"text/javascript\" src=\"http://livejs.com/live.js\"></script>" //
+			+ "		<script type=\"text/javascript\" src=\"[client]\" data-version=\"[version]\" data-file=\"[file]\" data-ws-port=\"[wsPort]\"></script>" //
 			+ "		<style>body, iframe { margin: 0; padding: 0; background-color: rgba(0, 0, 0, 0); overflow: hidden; } [scale] </style>" //
 			+ "	</head>" //
 			+ "	<body>" //
 			+ "		<content></content>" //
 			+ " </body>" //
 			+ "</html>";
+	/** Our own client script, which keeps the page up to date. */
+	static final String CLIENT_FILE = "live.js";
+
 	static String SCALE_CSS = "#content { width: 100%; height: 100%; }";
+	static String FIT_CSS = " #content { object-fit: %s; }";
 	static String IFRAME_TEMPLATE = "<iframe src=\"%s\" id=\"content\" frameborder=\"0\"></iframe>";
 	static String IMG_TEMPLATE = "<img src=\"%s\" id=\"content\" />";
 	static String DIV_TEMPLATE = "<div id=\"content\"><span id=\"text\">%s</span></div>";
@@ -43,13 +47,23 @@ public class HtmlResponseBuilder {
 	static String EMPTY_IMG_SRC = "data:image/gif;base64,R0lGODlhAQABAIAAAP///wAAACH5BAEAAAAALAAAAAABAAEAAAICRAEAOw==";
 
 	private String innerContent;
+	private String clientSrc = "/" + ConnectionRequest.CLIENT_PATH + "/" + CLIENT_FILE;
 	private boolean scale = true;
 	private boolean loop = false;
+	private long version = 0;
+	private String file = "";
+	private String localSrc;
+	private ImageVariants.Size imageSize;
+	private int webSocketPort = 0;
 
 	public String build() {
 		return CORE_TEMPLATE.replace("<content></content>", innerContent) //
 				// Global parameters
-				.replace("[scale]", scale ? SCALE_CSS : "") //
+				.replace("[client]", clientSrc) //
+				.replace("[version]", Long.toString(version)) //
+				.replace("[file]", file) //
+				.replace("[wsPort]", Integer.toString(webSocketPort)) //
+				.replace("[scale]", getScaleCss()) //
 				.replace("[loop]", loop ? "loop" : "");
 	}
 
@@ -64,10 +78,10 @@ public class HtmlResponseBuilder {
 	}
 
 	/**
-	 * Build in an img tag with a src. If this image is a local file url, we instead
-	 * just use the filename as the src; this way, the browser will send a file GET
-	 * request, which is handled by {@link HttpService#handleFileGetRequest} and
-	 * serves it from disk.
+	 * Build in an img tag with a src. If the image has been downloaded already, or
+	 * is a local file url, we instead use the {@link #localSrc} (or failing that,
+	 * just the filename) as the src; this way, the browser will send a file GET
+	 * request, which is handled by {@link HttpService} and serves it from disk.
 	 * 
 	 * @param cell
 	 *            The {@link CellWrapper} that this request is for
@@ -76,7 +90,8 @@ public class HtmlResponseBuilder {
 	 * @return a html doc with an <img> tag for a given src url
 	 */
 	public HtmlResponseBuilder buildImgTemplate(CellWrapper cell, String url) {
-		String src = getSrc(cell, url, EMPTY_IMG_SRC);
+		String src = getSrc(url, EMPTY_IMG_SRC, sized(localSrc), sized(getLocalSrc(cell)));
+		this.file = sized(getLocalSrc(cell));
 		this.innerContent = String.format(IMG_TEMPLATE, src);
 		return this;
 	}
@@ -99,7 +114,8 @@ public class HtmlResponseBuilder {
 	 * @return a html doc with a <video> tag for a given src url and content-type
 	 */
 	public HtmlResponseBuilder buildVideoTemplate(CellWrapper cell, String url) {
-		String src = getSrc(cell, url, "");
+		String src = getSrc(url, "", localSrc, getLocalSrc(cell));
+		this.file = getLocalSrc(cell);
 		this.innerContent = VIDEO_TEMPLATE //
 				.replace("[src]", src) //
 				.replace("[type]", cell.getFileExtension().getContentType());
@@ -120,6 +136,58 @@ public class HtmlResponseBuilder {
 		return this;
 	}
 
+	/**
+	 * @return a builder whose page loads its client script from the given url,
+	 *         e.g. one with a version, so it can be cached.
+	 */
+	public HtmlResponseBuilder clientSrc(String clientSrc) {
+		this.clientSrc = clientSrc;
+		return this;
+	}
+
+	/**
+	 * @return a builder for content at the given version of the cell, so that the
+	 *         page's live updates only pick up anything newer.
+	 */
+	public HtmlResponseBuilder version(long version) {
+		this.version = version;
+		return this;
+	}
+
+	/**
+	 * @param localSrc
+	 *            the url of the cell's local file, e.g. one with a hash of its
+	 *            contents; used in place of the remote url (or plain file name for
+	 *            local file urls), so should only be given once the file has been
+	 *            written with the current value
+	 * @return a builder for img/video templates built after this
+	 */
+	public HtmlResponseBuilder localSrc(String localSrc) {
+		this.localSrc = localSrc;
+		return this;
+	}
+
+	/**
+	 * @param imageSize
+	 *            the size the page shows its image at, if known; the page then
+	 *            asks for a copy of its local file at that size (see
+	 *            {@link ImageVariants}), rather than the whole image
+	 * @return a builder for img templates built after this
+	 */
+	HtmlResponseBuilder imageSize(ImageVariants.Size imageSize) {
+		this.imageSize = imageSize;
+		return this;
+	}
+
+	/**
+	 * @return a builder whose page listens for changes over a WebSocket on the
+	 *         given port, or server-sent events if 0.
+	 */
+	public HtmlResponseBuilder webSocketPort(int webSocketPort) {
+		this.webSocketPort = webSocketPort;
+		return this;
+	}
+
 	/**
 	 * @return a builder that either loops its content or not (for video).
 	 */
@@ -128,13 +196,47 @@ public class HtmlResponseBuilder {
 		return this;
 	}
 
-	private static String getSrc(CellWrapper cell, String url, String emptyDefault) {
+	/** @return the given src of ours, asking for the {@link #imageSize}, if any. */
+	private String sized(String src) {
+		return src == null || imageSize == null ? src : imageSize.appendTo(src);
+	}
+
+	private String getScaleCss() {
+		if (!scale) {
+			return "";
+		}
+		// Shown as the copy was made, rather than stretched
+		return imageSize == null || ImageVariants.Fit.FILL.equals(imageSize.getFit()) ? SCALE_CSS
+				: SCALE_CSS + String.format(FIT_CSS, imageSize.getFit().getName());
+	}
+
+	/**
+	 * @return the src by which the cell's local file is served; also given to the
+	 *         page, so it can switch to it when patching in a new value.
+	 */
+	private static String getLocalSrc(CellWrapper cell) {
+		return cell.getName() + "." + cell.getFileExtension().getExtension();
+	}
+
+	/**
+	 * @param fileSrc
+	 *            the src by which the cell's local file is served, for local file
+	 *            urls
+	 * @return the src to show the given url by
+	 */
+	static String getSrc(String url, String emptyDefault, String localSrc, String fileSrc) {
 		String src = emptyDefault;
 		boolean isForLocalFile = url.contains("file://");
-		if (isForLocalFile) {
+		if (url.trim().isEmpty()) {
+			// Nothing to show
+		} else if (localSrc != null) {
+			// Already written to disk, so serve it ourselves rather than it being fetched again
+			src = localSrc;
+		} else if (isForLocalFile) {
 			// Use the file name as the src, resulting in a file GET request when served
-			src = cell.getName() + "." + cell.getFileExtension().getExtension();
-		} else if (url != null && !url.trim().isEmpty()) {
+			src = fileSrc;
+		} else {
+			// Not downloaded yet; use the remote url in the meantime
 			src = url;
 		}
 		return src;
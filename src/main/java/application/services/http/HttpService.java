@@ -20,24 +20,53 @@ import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.net.InetSocketAddress;
-import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
+import org.apache.commons.io.FilenameUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import com.google.gson.GsonBuilder;
+import com.sun.net.httpserver.Headers;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpServer;
 
+import application.AppUtil;
 import application.models.CellWrapper;
 import application.models.FileExtension.FileExtensionType;
 import application.models.PropertiesHolder;
+import application.models.SceneWrapper;
+import application.models.UpdateResult;
+import application.models.json.SceneCell;
+import application.services.FileUpdater;
+import application.services.ISheetCacheListener;
 import application.services.SheetCache;
+import application.services.http.ClientFiles.ClientFile;
+import application.services.http.PageCache.Page;
 import application.services.http.ConnectionRequest.ConnectionRequestType;
+import application.services.http.FileRoutes.FileRoute;
 import application.threads.ThreadCollector;
 import application.threads.UpdateRunnable;
 import lombok.AccessLevel;
@@ -51,17 +80,33 @@ import lombok.NoArgsConstructor;
  * '/files/project/caster1Name.txt') to be accessed from
  * 'http://server:port/project/caster1Name'.
  * 
+ * Several projects may be loaded at once; each registers its own
+ * {@link SheetCache}, and requests are routed to it by the 'project' part of
+ * the url. The server is bound once and left running; config changes only swap
+ * the route table, so connected browser sources never see a reset.
+ * 
  * To achieve realtime updating, we first construct a {@link ConnectionRequest}
  * to figure out what we're after, use the {@link SheetCache} to get the current
  * value, and serve a templated version of the value using
- * {@link HtmlResponseBuilder}. This template includes livejs, which is the
- * method by which we achieve the realtime updating.
+ * {@link HtmlResponseBuilder}. This template includes our own live.js client
+ * (served from /_sheetsio/), which is the method by which we achieve the
+ * realtime updating.
+ * 
+ * The client connects to '/project/asset/_events', over a WebSocket (on the
+ * {@link WebSocketServer}'s port) or failing that for server-sent events; the
+ * {@link ChangeBroadcaster} pushes the new value out as soon as the cell
+ * changes in the cache, and the page patches it in place. '/project/_events'
+ * does the same for every cell in the project. Clients that can use neither
+ * may long-poll '/project[/asset]/_changes?since=N' instead.
  * 
- * Livejs works by sending HEAD requests to the server every second, comparing
- * 'etag' (basically a version number) of the existing page to the etag from the
- * server response. If they differ, livejs then sends a GET request and reloads
- * the page. For our use case, we use the .hashCode() of the value String to
- * determine whether the cache's value has changed.
+ * Pages and files are served with strong etags, and answer conditional
+ * requests with a 304 (see {@link CacheHeaders}); HEAD requests get the same
+ * headers as a GET. Older pages still poll with HEAD every second, and reload
+ * once the etag changes.
+ * 
+ * Only so many requests are handled at once (see {@link RequestExecutor}); past
+ * that, requests are answered with a 503 and 'retry-after', which browser
+ * sources shrug off, rather than left to queue up.
  *
  * @author Mark "Grandy" Bishop
  */
@@ -70,12 +115,44 @@ public class HttpService implements HttpHandler {
 	private static final Logger LOGGER = LogManager.getLogger(HttpService.class);
 
 	private HttpServer server;
+	private RequestExecutor executor;
 	private InetSocketAddress socket;
 
-	private SheetCache sheetCache;
+	/**
+	 * Caches by project name. Never modified, only replaced as a whole, so each
+	 * request sees a consistent set of routes.
+	 */
+	private volatile Map<String, SheetCache> routes = Collections.emptyMap();
+	/** Scenes by project name, then scene name; replaced as a whole, as above. */
+	private volatile Map<String, Map<String, SceneWrapper>> scenes = Collections.emptyMap();
+
+	private final ChangeBroadcaster broadcaster = new ChangeBroadcaster(this::getLocalAssetUrl);
+	private final WebSocketServer webSocketServer = new WebSocketServer(broadcaster, p -> routes.get(p));
+
+	private final ClientFiles clientFiles = new ClientFiles();
+	private final FileRoutes files = new FileRoutes(new File(getFilesFolder()));
+	private final AssetStore assets = new AssetStore(files);
+	private final PageCache pages = new PageCache();
+	private final ImageVariants variants = new ImageVariants();
+	/** Never changes, so rendered only once. */
+	private volatile Page emptyPage;
+
+	/** How long a long-poll for changes waits, by default and at most. */
+	private static final long DEFAULT_LONG_POLL_SECONDS = 30;
+	private static final long MAX_LONG_POLL_SECONDS = 120;
+
+	/**
+	 * Answers '/update?wait=true' requests, once their update is done or they time
+	 * out; like long-polls, they hold no server thread while they wait, and the
+	 * update loop never waits on sending them.
+	 */
+	private final ScheduledExecutorService updateWaiters = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread thread = new Thread(r, "update-waiters");
+		thread.setDaemon(true);
+		return thread;
+	});
 
 	private static HttpService INSTANCE;
-	private static final ThreadPoolExecutor EXECUTOR = (ThreadPoolExecutor) Executors.newFixedThreadPool(10);
 
 	/** @return the singleton instance of {@link HttpService}. */
 	public static HttpService getInstance() {
@@ -87,33 +164,129 @@ public class HttpService implements HttpHandler {
 	}
 
 	/**
-	 * Begin the {@link HttpService} and begin listening on the port from
-	 * application.properties.
+	 * Begin listening on the port from application.properties; does nothing if
+	 * already listening. Connections are accepted and kept alive by the JDK's
+	 * server on a single thread of its own, so only requests in hand take up one
+	 * of our threads; see {@link RequestExecutor}.
 	 */
-	public void start(SheetCache sheetCache) throws IOException {
+	public synchronized void start() throws IOException {
 		if (server != null) {
-			LOGGER.info("Web server stopped");
-			server.stop(0);
+			return;
 		}
-		this.sheetCache = sheetCache;
-		int port = Integer.parseInt(PropertiesHolder.get().getProperty(PropertiesHolder.HTTP_PORT));
-		socket = new InetSocketAddress("localhost", port);
-		server = HttpServer.create(socket, 0);
+		PropertiesHolder properties = PropertiesHolder.get();
+		int port = Integer.parseInt(properties.getProperty(PropertiesHolder.HTTP_PORT));
+		int maxRequests = properties.getHttpMaxRequests().intValue();
+		configureConnections(properties);
+		String bindAddress = properties.getHttpBindAddress();
+		socket = new InetSocketAddress(bindAddress, port);
+		// Connections waiting to be accepted are bounded alike
+		server = HttpServer.create(socket, maxRequests);
 
 		server.createContext("/", this);
 
-		server.setExecutor(EXECUTOR);
+		executor = new RequestExecutor(properties.getProperty(PropertiesHolder.HTTP_THREADS), maxRequests);
+		server.setExecutor(executor);
 		server.start();
-		LOGGER.info("Web server began listening on port {}", port);
+		LOGGER.info("Web server began listening on {}:{}", bindAddress, port);
+		if (!socket.getAddress().isLoopbackAddress()) {
+			LOGGER.warn("Web server is reachable from other machines; '{}' is set to '{}'",
+					PropertiesHolder.HTTP_BIND_ADDRESS, bindAddress);
+		}
+
+		int webSocketPort = Integer.parseInt(PropertiesHolder.get().getProperty(PropertiesHolder.WEBSOCKET_PORT));
+		try {
+			// Reachable from wherever the pages are, so their live updates are too
+			webSocketServer.start(bindAddress, webSocketPort);
+		} catch (IOException e) {
+			// Not fatal; pages fall back to server-sent events on the main port
+			LOGGER.warn("Unable to listen for WebSockets on port {}", webSocketPort, e);
+		}
+	}
+
+	/**
+	 * Apply the connection timeouts to the JDK's http server, which only takes them
+	 * as system properties (in seconds), read as the first server is created. Any
+	 * given on the command line are left as they are.
+	 */
+	private static void configureConnections(PropertiesHolder properties) {
+		setServerProperty("sun.net.httpserver.maxReqTime", properties.getHttpReadTimeout());
+		setServerProperty("sun.net.httpserver.maxRspTime", properties.getHttpWriteTimeout());
+		setServerProperty("sun.net.httpserver.idleInterval", properties.getHttpKeepAlive());
+	}
+
+	private static void setServerProperty(String name, long millis) {
+		if (millis > 0 && System.getProperty(name) == null) {
+			// Rounded up, so a short timeout never becomes none
+			System.setProperty(name, Long.toString((millis + 999) / 1000));
+		}
+	}
+
+	/**
+	 * Serve the given project from the given {@link SheetCache}, replacing any
+	 * existing route for it; takes effect from the next request.
+	 */
+	public synchronized void register(String projectName, SheetCache sheetCache) {
+		sheetCache.addListener(broadcaster.listenerFor(projectName, sheetCache));
+		sheetCache.addListener(new ISheetCacheListener() {
+			@Override
+			public void cellsChanged(long version, Map<String, String> changedValues) {
+				pages.evict(projectName, changedValues.keySet());
+			}
+
+			@Override
+			public void fileWritten(CellWrapper cell) {
+				files.fileWritten(projectName, sheetCache, cell);
+			}
+		});
+		files.register(projectName, sheetCache);
+		pages.evictProject(projectName);
+		Map<String, SheetCache> newRoutes = new HashMap<>(this.routes);
+		newRoutes.put(projectName, sheetCache);
+		this.routes = Collections.unmodifiableMap(newRoutes);
+		broadcaster.projectReplaced(projectName);
+	}
+
+	/** Stop serving the given project. */
+	public synchronized void remove(String projectName) {
+		Map<String, SheetCache> newRoutes = new HashMap<>(this.routes);
+		newRoutes.remove(projectName);
+		this.routes = Collections.unmodifiableMap(newRoutes);
+		Map<String, Map<String, SceneWrapper>> newScenes = new HashMap<>(this.scenes);
+		newScenes.remove(projectName);
+		this.scenes = Collections.unmodifiableMap(newScenes);
+		files.removeProject(projectName);
+		pages.evictProject(projectName);
+		broadcaster.projectReplaced(projectName);
+	}
+
+	/**
+	 * Serve the given scenes of the project, replacing any it had before; takes
+	 * effect from the next request.
+	 */
+	public synchronized void setScenes(String projectName, List<SceneWrapper> projectScenes) {
+		Map<String, SceneWrapper> byName = new LinkedHashMap<>();
+		projectScenes.forEach(s -> byName.put(s.getName(), s));
+		Map<String, Map<String, SceneWrapper>> newScenes = new HashMap<>(this.scenes);
+		newScenes.put(projectName, Collections.unmodifiableMap(byName));
+		this.scenes = Collections.unmodifiableMap(newScenes);
+		// Rendered scene pages may be of the old ones
+		pages.evictProject(projectName);
 	}
 
 	/**
 	 * Forcibly stop the {@link HttpService} AND thread pool; should only be called
 	 * on application shutdown.
 	 */
-	public void stop() {
-		EXECUTOR.shutdownNow();
-		server.stop(0);
+	public synchronized void stop() {
+		if (executor != null) {
+			executor.shutdownNow();
+		}
+		broadcaster.stop();
+		updateWaiters.shutdownNow();
+		webSocketServer.stop();
+		if (server != null) {
+			server.stop(0);
+		}
 	}
 
 	@Override
@@ -122,51 +295,80 @@ public class HttpService implements HttpHandler {
 		String reqMethod = httpExchange.getRequestMethod();
 		LOGGER.trace("REQUEST: {} - {}", requestParamValue, reqMethod);
 
-		Optional<ConnectionRequest> request = ConnectionRequest.from(httpExchange.getRequestURI());
-		if (request.isPresent()) {
-			// Request format is valid; e.g. '/project/asset' or '/project/asset.png'
+		if (RequestExecutor.isShedding()) {
+			LOGGER.debug("Too busy; turned away {} {}", reqMethod, requestParamValue);
+			sendTooBusy(httpExchange);
+			return;
+		}
 
-			if (ConnectionRequestType.UPDATE.equals(request.get().getType())) {
-				// We don't care whether it's a GET or HEAD or PUSH
-				handleUpdateRequest(request.get(), httpExchange);
-				return;
-			}
+		Optional<ConnectionRequest> request = ConnectionRequest.from(httpExchange.getRequestURI(), files::contains);
+		if (!request.isPresent()) {
+			httpExchange.sendResponseHeaders(404, -1);
+			return;
+		}
+		// Request format is valid; e.g. '/project/asset' or '/project/asset.png'
+
+		if (request.get().getType().isControl()) {
+			handleControlRequest(request.get(), httpExchange);
+			return;
+		}
 
-			switch (reqMethod) {
-			case "GET":
-				// Respond with initial page body
-				handleGetRequest(request.get(), httpExchange);
-				break;
-			case "HEAD":
-				// Respond to a request for updates from livejs
-				handleHeadRequest(request.get(), httpExchange);
-				break;
-			default:
-				// Ignore
+		int refusal = getRefusal(request.get(), reqMethod);
+		if (refusal != 0) {
+			LOGGER.debug("Refused {} {} with a {}", reqMethod, requestParamValue, refusal);
+			if (refusal == 405) {
+				httpExchange.getResponseHeaders().add("allow",
+						String.join(", ", getAllowedMethods(request.get().getType())));
 			}
+			httpExchange.sendResponseHeaders(refusal, -1);
+			return;
+		}
+
+		if ("HEAD".equals(reqMethod)) {
+			// As GET without the body, for whatever has one to cache
+			handleHeadRequest(request.get(), httpExchange);
+		} else {
+			// Respond with initial page body
+			handleGetRequest(request.get(), httpExchange);
+		}
+	}
+
+	/**
+	 * Every request is answered, so browsers and tools aren't left waiting on
+	 * one we'll never serve.
+	 * 
+	 * @return the status to refuse a (non-control) request with: a 404 if the url
+	 *         is of nothing we serve, a 405 if it is but not by that method; or 0
+	 *         if it may go ahead.
+	 */
+	static int getRefusal(ConnectionRequest request, String method) {
+		if (ConnectionRequestType.HTML.equals(request.getType()) && !request.isValid()) {
+			// e.g. '/', which matched no route at all
+			return 404;
+		}
+		return getAllowedMethods(request.getType()).contains(method) ? 0 : 405;
+	}
+
+	/** @return the methods a (non-control) request may be made by. */
+	static List<String> getAllowedMethods(ConnectionRequestType type) {
+		switch (type) {
+		case EVENTS:
+		case CHANGES:
+			// Only have something to say once they're listening
+			return Collections.singletonList("GET");
+		default:
+			return Arrays.asList("GET", "HEAD");
 		}
 	}
 
 	/**
-	 * HEAD requests are sent in from livejs on the webpages served up every second.
+	 * HEAD requests are answered as GET would be, without the body. They are still
+	 * sent in every second by webpages served before live updates were pushed,
+	 * which reload once the etag changes.
 	 */
 	private void handleHeadRequest(ConnectionRequest req, HttpExchange httpExchange) throws IOException {
 		LOGGER.trace("HEAD -> {}", req);
-		if (ConnectionRequestType.HTML.equals(req.getType())) {
-			// Look up value from SheetCache for the value of the cell
-			CellWrapper cell = getCell(req);
-			String cellValue = sheetCache.get(cell);
-
-			/*
-			 * Send an etag with the current value; livejs will compare it to its existing
-			 * value and perform a GET request if it differs to what it already has.
-			 */
-			httpExchange.getResponseHeaders().add("etag", Integer.toString(cellValue.hashCode()));
-			httpExchange.getResponseHeaders().add("content-type", "text/html");
-			httpExchange.sendResponseHeaders(200, -1);
-		} else {
-			LOGGER.debug("Received an unexpected non-HTML HEAD request: {}", req);
-		}
+		handleGetRequest(req, httpExchange);
 	}
 
 	private void handleGetRequest(ConnectionRequest req, HttpExchange httpExchange) throws IOException {
@@ -174,11 +376,30 @@ public class HttpService implements HttpHandler {
 		case FILE:
 			handleFileGetRequest(req, httpExchange);
 			break;
+		case ASSET:
+			handleAssetGetRequest(req, httpExchange);
+			break;
 		case HTML:
 			handleHtmlGetRequest(req, httpExchange);
 			break;
 		case FAVICON:
-			// Just ignore it...
+			// We have none; answered, so browsers stop waiting on it
+			httpExchange.sendResponseHeaders(404, -1);
+			break;
+		case EVENTS:
+			handleEventsRequest(req, httpExchange);
+			break;
+		case CHANGES:
+			handleChangesRequest(req, httpExchange);
+			break;
+		case CLIENT:
+			handleClientRequest(req, httpExchange);
+			break;
+		case VALUES:
+			handleValuesRequest(req, httpExchange);
+			break;
+		case SCENE:
+			handleSceneRequest(req, httpExchange);
 			break;
 		default:
 			throw new IllegalArgumentException(
@@ -189,108 +410,635 @@ public class HttpService implements HttpHandler {
 	/**
 	 * GET request - serving new things, in this case it's files on our system.
 	 * 
-	 * TODO: This should not be hit right now, unless people manually try to access
-	 * e.g. "file.png" rather than "file". In the future, we may want to replace
-	 * most remote assets (images, videos etc) with local references, so we download
-	 * and serve locally - but not necessary for the moment.
+	 * Files are served under the same url whenever they change, so browsers must
+	 * check back each time; the etag (from the file's size and modified time) lets
+	 * them do so without downloading it again. All of which is known from when the
+	 * file was written (see {@link FileRoutes}), so the disk is only touched to
+	 * send it.
 	 */
 	private void handleFileGetRequest(ConnectionRequest req, HttpExchange httpExchange) throws IOException {
-		LOGGER.info("GET file -> {}", req);
-		LOGGER.debug(
-				"Attempted to get a file, this is unusual as webpages are only currently serving remote files (asides from file:// sources for images/videos): {}",
-				req);
+		LOGGER.trace("GET file -> {}", req);
+
+		Optional<FileRoute> file = files.get(req.getFullRequest());
+		if (!file.isPresent()) {
+			// Gone since the request was made, e.g. the project was reloaded
+			httpExchange.sendResponseHeaders(404, -1);
+			return;
+		}
+		sendFileOrVariant(req, httpExchange, file.get(), file.get().getVersion(), CacheHeaders.REVALIDATE);
+	}
 
-		String path = System.getProperty("user.dir") + "/files" + req.getFullRequest();
-		File file = new File(path);
-		httpExchange.sendResponseHeaders(200, file.length());
-		httpExchange.getResponseHeaders().add("content-type",
-				Files.probeContentType(Paths.get(file.getAbsolutePath())));
+	/**
+	 * GET request for a local file by the hash of its contents (see
+	 * {@link AssetStore}); what's behind the url never changes, so it may be
+	 * cached for good.
+	 */
+	private void handleAssetGetRequest(ConnectionRequest req, HttpExchange httpExchange) throws IOException {
+		LOGGER.debug("GET asset -> {}", req);
+		Optional<FileRoute> file = assets.get(req.getProject(), req.getAsset());
+		if (!file.isPresent()) {
+			httpExchange.sendResponseHeaders(404, -1);
+			return;
+		}
+		sendFileOrVariant(req, httpExchange, file.get(), FilenameUtils.getBaseName(req.getAsset()),
+				CacheHeaders.IMMUTABLE);
+	}
+
+	/**
+	 * Respond with the given file or, should the request ask for an image at a
+	 * size of its own (e.g. '?w=200&h=200&fit=cover'), a copy at that size; see
+	 * {@link ImageVariants}.
+	 */
+	private void sendFileOrVariant(ConnectionRequest req, HttpExchange httpExchange, FileRoute route, String etag,
+			String cacheControl) throws IOException {
+		Optional<ImageVariants.Size> size = ImageVariants.Size.from(req);
+		Optional<byte[]> variant = size.flatMap(s -> variants.get(route, s));
+		if (!variant.isPresent()) {
+			sendFile(httpExchange, route, etag, cacheControl);
+			return;
+		}
 
-		OutputStream outputStream = httpExchange.getResponseBody();
-		Files.copy(file.toPath(), outputStream);
-		outputStream.close();
+		byte[] body = variant.get();
+		httpExchange.getResponseHeaders().add("content-type", route.getContentType());
+		if (CacheHeaders.handleConditional(httpExchange, etag + "-" + size.get().getTag(), route.getLastModified(),
+				cacheControl)) {
+			return;
+		}
+		if (isHead(httpExchange)) {
+			sendHeadResponse(httpExchange, body.length);
+			return;
+		}
+		httpExchange.sendResponseHeaders(200, body.length);
+		try (OutputStream outputStream = httpExchange.getResponseBody()) {
+			outputStream.write(body);
+		}
+	}
+
+	/**
+	 * Respond with the given file, or just the range of it asked for (see
+	 * {@link ByteRange}). The file is sent straight from its channel, rather than
+	 * being copied through buffers of our own.
+	 */
+	private void sendFile(HttpExchange httpExchange, FileRoute route, String etag, String cacheControl)
+			throws IOException {
+		File file = route.getFile();
+		long lastModified = route.getLastModified();
+		long length = route.getLength();
+		httpExchange.getResponseHeaders().add("content-type", route.getContentType());
+		httpExchange.getResponseHeaders().add("accept-ranges", "bytes");
+		if (CacheHeaders.handleConditional(httpExchange, etag, lastModified, cacheControl)) {
+			return;
+		}
+		if (isHead(httpExchange)) {
+			sendHeadResponse(httpExchange, length);
+			return;
+		}
+
+		Optional<ByteRange> range = ByteRange.parse(httpExchange.getRequestHeaders().getFirst("Range"), length)
+				.filter(r -> CacheHeaders.isRangeCurrent(httpExchange.getRequestHeaders(), etag, lastModified));
+		if (range.isPresent()) {
+			httpExchange.getResponseHeaders().add("content-range", range.get().toContentRange(length));
+			if (!range.get().isSatisfiable()) {
+				httpExchange.sendResponseHeaders(416, -1);
+				return;
+			}
+		}
+		ByteRange toSend = range.orElse(ByteRange.whole(length));
+		// A length of 0 would mean a chunked response
+		httpExchange.sendResponseHeaders(range.isPresent() ? 206 : 200, length == 0 ? -1 : toSend.getLength());
+		if (length == 0) {
+			return;
+		}
+
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+				OutputStream outputStream = httpExchange.getResponseBody()) {
+			WritableByteChannel target = Channels.newChannel(outputStream);
+			long position = toSend.getStart();
+			long end = toSend.getEnd() + 1;
+			while (position < end) {
+				long sent = channel.transferTo(position, end - position, target);
+				if (sent <= 0) {
+					throw new IOException("'" + file + "' was shorter than expected");
+				}
+				position += sent;
+			}
+		}
+	}
+
+	/** @return the folder which each project's files are written into. */
+	private static String getFilesFolder() {
+		return System.getProperty("user.dir") + File.separator + FileUpdater.FOLDER_PREFIX;
+	}
+
+	/**
+	 * @return the hashed url of the cell's local file, or nothing if it has none
+	 *         or it's yet to be written with the current value (e.g. still
+	 *         downloading).
+	 */
+	private Optional<String> getLocalAssetUrl(String project, SheetCache sheetCache, CellWrapper cell) {
+		if (!sheetCache.isFileCurrent(cell) && !sheetCache.get(cell).contains("file://")) {
+			return Optional.empty();
+		}
+		return files.get(project, cell.getName(), cell).flatMap(assets::getUrl);
+	}
+
+	/**
+	 * @return the hashed url of the named cell's local file, if it's an image or
+	 *         video which has one.
+	 * @see #getLocalAssetUrl(String, SheetCache, CellWrapper)
+	 */
+	private Optional<String> getLocalAssetUrl(String project, SheetCache sheetCache, String name) {
+		CellWrapper cell = sheetCache.getCellsByName().get(name);
+		if (cell == null) {
+			return Optional.empty();
+		}
+		FileExtensionType type = cell.getFileExtension().getType();
+		return FileExtensionType.IMAGE.equals(type) || FileExtensionType.VIDEO.equals(type)
+				? getLocalAssetUrl(project, sheetCache, cell)
+				: Optional.empty();
 	}
 
 	/**
 	 * GET request - non-file, so assume it's serving a cell value from the cache in
 	 * its appropriate form.
+	 * 
+	 * The page is tagged with a hash of itself, and dated from when the cell last
+	 * changed, so a browser source reloading a page it already has gets a 304.
+	 * Rendered pages are kept in the {@link PageCache} until the cell changes.
 	 */
 	private void handleHtmlGetRequest(ConnectionRequest req, HttpExchange httpExchange) throws IOException {
-		LOGGER.info("GET html -> {}", req);
-		OutputStream outputStream = httpExchange.getResponseBody();
-
-		HtmlResponseBuilder templater = new HtmlResponseBuilder().empty();
+		LOGGER.trace("GET html -> {}", req);
 
 		// Look up value from SheetCache for the value of the cell
-		CellWrapper cell = getCell(req);
+		SheetCache sheetCache = routes.get(req.getProject());
+		CellWrapper cell = getCell(sheetCache, req);
+		Page page;
 		// Cell could be null if we haven't hit 'update now' for the first time
-		if (cell != null) {
-			String cellValue = sheetCache.get(cell);
-			LOGGER.debug("Cell value is '{}' with file extension '{}'", cellValue, cell.getFileExtension());
-
-			// TODO: Use downloaded version of file rather than passing in remote url?
-			switch (cell.getFileExtension().getType()) {
-			case IMAGE:
-				templater = templater.buildImgTemplate(cell, cellValue);
-				break;
-			case TEXT:
-				templater = templater.buildDivTemplate(cellValue);
-				break;
-			case VIDEO:
-				templater = templater.buildVideoTemplate(cell, cellValue);
-				break;
-			case HTTP:
-				templater = templater.buildIframeTemplate(cellValue);
-				break;
-			default:
-				throw new IllegalArgumentException("Unable to handle " + FileExtensionType.class.getName() + " "
-						+ cell.getFileExtension().getType());
-			}
+		if (cell == null) {
+			page = getEmptyPage();
+		} else {
+			// Read before the value, so the page is never newer than its version
+			long version = sheetCache.getVersion(cell);
+			FileExtensionType type = cell.getFileExtension().getType();
+			String localSrc = FileExtensionType.IMAGE.equals(type) || FileExtensionType.VIDEO.equals(type)
+					? getLocalAssetUrl(req.getProject(), sheetCache, cell).orElse(null)
+					: null;
+			boolean noscale = req.hasParam("noscale");
+			boolean loop = req.hasParam("loop");
+			// Its image asked for at the size the page is shown at, if it says
+			ImageVariants.Size imageSize = FileExtensionType.IMAGE.equals(type)
+					? ImageVariants.Size.from(req).orElse(null)
+					: null;
+			page = pages.get(req.getProject(), cell.getName(), noscale, loop,
+					imageSize == null ? "" : imageSize.getTag(), sheetCache, version, localSrc,
+					() -> renderPage(sheetCache, cell, version, localSrc, noscale, loop, imageSize));
+		}
+
+		httpExchange.getResponseHeaders().add("content-type", "text/html; charset=utf-8");
+		sendBody(httpExchange, page.getBody(), page::getGzipped, page.getEtag(), page.getLastModified(),
+				CacheHeaders.REVALIDATE);
+	}
+
+	/** @return a page showing the cell's current value in its appropriate form. */
+	private Page renderPage(SheetCache sheetCache, CellWrapper cell, long version, String localSrc, boolean noscale,
+			boolean loop, ImageVariants.Size imageSize) {
+		String cellValue = sheetCache.get(cell);
+		LOGGER.debug("Rendering cell value '{}' with file extension '{}'", cellValue, cell.getFileExtension());
+		HtmlResponseBuilder templater = new HtmlResponseBuilder()
+				.clientSrc(clientFiles.getSrc(HtmlResponseBuilder.CLIENT_FILE)).version(version)
+				.webSocketPort(webSocketServer.getPort()).localSrc(localSrc).imageSize(imageSize);
+
+		switch (cell.getFileExtension().getType()) {
+		case IMAGE:
+			templater = templater.buildImgTemplate(cell, cellValue);
+			break;
+		case TEXT:
+			templater = templater.buildDivTemplate(cellValue);
+			break;
+		case VIDEO:
+			templater = templater.buildVideoTemplate(cell, cellValue);
+			break;
+		case HTTP:
+			templater = templater.buildIframeTemplate(cellValue);
+			break;
+		default:
+			throw new IllegalArgumentException("Unable to handle " + FileExtensionType.class.getName() + " "
+					+ cell.getFileExtension().getType());
+		}
+
+		String builtHtmlResponse = templater.scale(!noscale).loop(loop).build();
+		LOGGER.trace("Rendered html:\n{}", builtHtmlResponse);
+		return Page.of(builtHtmlResponse, sheetCache.getLastModified(cell));
+	}
+
+	/** @return the page served for cells that can't be found. */
+	private Page getEmptyPage() {
+		if (emptyPage == null) {
+			emptyPage = Page.of(new HtmlResponseBuilder().empty()
+					.clientSrc(clientFiles.getSrc(HtmlResponseBuilder.CLIENT_FILE)).build(), 0);
+		}
+		return emptyPage;
+	}
+
+	private static boolean isHead(HttpExchange httpExchange) {
+		return "HEAD".equals(httpExchange.getRequestMethod());
+	}
+
+	/** Respond to a HEAD request, giving the length the GET's body would have. */
+	private static void sendHeadResponse(HttpExchange httpExchange, long contentLength) throws IOException {
+		httpExchange.getResponseHeaders().set("content-length", Long.toString(contentLength));
+		httpExchange.sendResponseHeaders(200, -1);
+	}
+
+	/**
+	 * GET request for server-sent events, for a single asset or (with no asset) the
+	 * whole project. The response stays open, and is handed to the
+	 * {@link ChangeBroadcaster} to write to from then on.
+	 * 
+	 * The client's version is taken from the 'since' parameter, or the
+	 * Last-Event-ID header when the browser reconnects; anything newer is sent
+	 * straight away. Projects that aren't loaded get a 404, rather than a stream
+	 * nothing will ever be sent on; with too many clients already listening, a 503
+	 * (see {@link ChangeBroadcaster#MAX_SUBSCRIBERS}), as the browser tries again.
+	 */
+	private void handleEventsRequest(ConnectionRequest req, HttpExchange httpExchange) throws IOException {
+		LOGGER.debug("GET events -> {}", req);
+		SheetCache sheetCache = routes.get(req.getProject());
+		if (sheetCache == null) {
+			httpExchange.sendResponseHeaders(404, -1);
+			return;
+		}
+		long since = Math.max(parseVersion(req.getParam("since").orElse(null)),
+				parseVersion(httpExchange.getRequestHeaders().getFirst("Last-Event-ID")));
+
+		EventStreamSubscriber subscriber = new EventStreamSubscriber(httpExchange, req.getAsset());
+		if (!broadcaster.subscribe(req.getProject(), subscriber, sheetCache, since)) {
+			sendTooBusy(httpExchange);
+			return;
+		}
+		if (!subscriber.start()) {
+			LOGGER.debug("Event stream closed before it began");
+			broadcaster.unsubscribe(req.getProject(), subscriber);
+		}
+	}
+
+	/**
+	 * GET request to long-poll for changes, for a single asset or (with no asset)
+	 * the whole project. Answered straight away if anything has changed since the
+	 * 'since' version, otherwise as soon as something does or the 'timeout' (in
+	 * seconds) passes. Projects that aren't loaded get a 404, and too many clients
+	 * a 503, as for events.
+	 */
+	private void handleChangesRequest(ConnectionRequest req, HttpExchange httpExchange) throws IOException {
+		LOGGER.debug("GET changes -> {}", req);
+		SheetCache sheetCache = routes.get(req.getProject());
+		if (sheetCache == null) {
+			httpExchange.sendResponseHeaders(404, -1);
+			return;
+		}
+		long since = parseVersion(req.getParam("since").orElse(null));
+		long timeoutSeconds = parseVersion(req.getParam("timeout").orElse(null));
+		if (timeoutSeconds <= 0) {
+			timeoutSeconds = DEFAULT_LONG_POLL_SECONDS;
+		}
+		timeoutSeconds = Math.min(timeoutSeconds, MAX_LONG_POLL_SECONDS);
+
+		if (!broadcaster.subscribeOnce(req.getProject(), new LongPollSubscriber(httpExchange, req.getAsset()),
+				sheetCache, since, TimeUnit.SECONDS.toMillis(timeoutSeconds))) {
+			sendTooBusy(httpExchange);
+		}
+	}
+
+	/** Turn the client away for now, as those shed are (see {@link #handle}). */
+	private static void sendTooBusy(HttpExchange httpExchange) throws IOException {
+		httpExchange.getResponseHeaders().add("retry-after", "1");
+		httpExchange.sendResponseHeaders(503, -1);
+	}
+
+	/** @return the given version number, or 0 if there isn't a valid one. */
+	static long parseVersion(String version) {
+		try {
+			return version == null ? 0 : Long.parseLong(version.trim());
+		} catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+
+	/**
+	 * GET/HEAD request for every cell of a project at once, as json, for overlays
+	 * of our own that want them all in one go, e.g.
+	 * '{"project":"p","version":12,"cells":{"caster1Name":{"value":"Grandy","type":"text","version":3}}}'.
+	 * Images and videos also have the 'url' of their local copy, once downloaded.
+	 * 
+	 * Kept, and tagged, as pages are; so an overlay polling an unchanged project
+	 * gets a 304 without anything being rendered.
+	 */
+	private void handleValuesRequest(ConnectionRequest req, HttpExchange httpExchange) throws IOException {
+		LOGGER.debug("GET values -> {}", req);
+		SheetCache sheetCache = routes.get(req.getProject());
+		if (sheetCache == null) {
+			httpExchange.sendResponseHeaders(404, -1);
+			return;
+		}
+		// Read before the values, so the json is never newer than its version
+		long version = sheetCache.getVersion();
+		// Files may catch up with their values after the version has moved on
+		Map<String, String> urls = new LinkedHashMap<>();
+		sheetCache.getCellsByName().keySet().forEach(name -> getLocalAssetUrl(req.getProject(), sheetCache, name)
+				.ifPresent(url -> urls.put(name, url)));
+		Page page = pages.get(req.getProject(), ConnectionRequest.VALUES_ROUTE, false, false, sheetCache, version,
+				urls.toString(), () -> renderValues(req.getProject(), sheetCache, version, urls));
+
+		httpExchange.getResponseHeaders().add("content-type", "application/json; charset=utf-8");
+		// Usable from overlays served elsewhere, e.g. a scoreboard's dev server
+		httpExchange.getResponseHeaders().add("access-control-allow-origin", "*");
+		sendBody(httpExchange, page.getBody(), page::getGzipped, page.getEtag(), page.getLastModified(),
+				CacheHeaders.REVALIDATE);
+	}
+
+	/**
+	 * GET/HEAD request for a scene, e.g. '/project/_scenes/scoreboard'; a page
+	 * showing many cells at once, so one browser source can stand in for many.
+	 * Kept as pages are, against the version of the whole project.
+	 */
+	private void handleSceneRequest(ConnectionRequest req, HttpExchange httpExchange) throws IOException {
+		LOGGER.debug("GET scene -> {}", req);
+		SheetCache sheetCache = routes.get(req.getProject());
+		SceneWrapper scene = scenes.getOrDefault(req.getProject(), Collections.emptyMap()).get(req.getAsset());
+		if (sheetCache == null || scene == null) {
+			httpExchange.sendResponseHeaders(404, -1);
+			return;
+		}
+		// Read before the values, so the page is never newer than its version
+		long version = sheetCache.getVersion();
+		Map<String, String> localSrcs = new LinkedHashMap<>();
+		sheetCache.getCellsByName().keySet().forEach(name -> getLocalAssetUrl(req.getProject(), sheetCache, name)
+				.ifPresent(url -> localSrcs.put(name, url)));
+		Page page = pages.get(req.getProject(), ConnectionRequest.SCENES_ROUTE + "/" + scene.getName(), false, false,
+				sheetCache, version, localSrcs.toString(),
+				() -> renderScene(req.getProject(), scene, sheetCache, version, localSrcs));
+
+		httpExchange.getResponseHeaders().add("content-type", "text/html; charset=utf-8");
+		sendBody(httpExchange, page.getBody(), page::getGzipped, page.getEtag(), page.getLastModified(),
+				CacheHeaders.REVALIDATE);
+	}
 
-			if (req.hasParam("noscale")) {
-				templater = templater.scale(false);
+	private Page renderScene(String project, SceneWrapper scene, SheetCache sheetCache, long version,
+			Map<String, String> localSrcs) {
+		SceneResponseBuilder builder = new SceneResponseBuilder(project, scene)
+				.clientSrc(clientFiles.getSrc(HtmlResponseBuilder.CLIENT_FILE)).version(version)
+				.webSocketPort(webSocketServer.getPort());
+		// A template may show any of the cells; otherwise, only those laid out are needed
+		Set<String> shown = scene.getCells().stream().map(SceneCell::getName).collect(Collectors.toSet());
+		long lastModified = 0;
+		for (Entry<String, CellWrapper> named : sheetCache.getCellsByName().entrySet()) {
+			if (!scene.hasTemplate() && !shown.contains(named.getKey())) {
+				continue;
 			}
-			if (req.hasParam("loop")) {
-				templater = templater.loop(true);
+			CellWrapper cell = named.getValue();
+			builder.value(named.getKey(), cell, sheetCache.get(cell), localSrcs.get(named.getKey()));
+			lastModified = Math.max(lastModified, sheetCache.getLastModified(cell));
+		}
+		String html = builder.build();
+		LOGGER.trace("Scene response: {}", html);
+		return Page.of(html, lastModified);
+	}
+
+	private static Page renderValues(String project, SheetCache sheetCache, long version, Map<String, String> urls) {
+		Map<String, Object> cells = new LinkedHashMap<>();
+		long lastModified = 0;
+		for (Entry<String, CellWrapper> named : sheetCache.getCellsByName().entrySet()) {
+			CellWrapper cell = named.getValue();
+			Map<String, Object> value = new LinkedHashMap<>();
+			value.put("value", sheetCache.get(cell));
+			value.put("type", cell.getFileExtension().getType().name().toLowerCase());
+			value.put("version", sheetCache.getVersion(cell));
+			if (urls.containsKey(named.getKey())) {
+				value.put("url", urls.get(named.getKey()));
 			}
+			cells.put(named.getKey(), value);
+			lastModified = Math.max(lastModified, sheetCache.getLastModified(cell));
 		}
+		Map<String, Object> values = new LinkedHashMap<>();
+		values.put("project", project);
+		values.put("version", version);
+		values.put("cells", cells);
+		return Page.of(new GsonBuilder().create().toJson(values), lastModified);
+	}
 
-		String builtHtmlResponse = templater.build();
-		LOGGER.debug("Responding with html:\n{}", builtHtmlResponse);
-		httpExchange.sendResponseHeaders(200, builtHtmlResponse.length());
-		outputStream.write(builtHtmlResponse.getBytes());
-		outputStream.flush();
-		outputStream.close();
+	/**
+	 * GET/HEAD request for one of our own client files, e.g. '/_sheetsio/live.js'.
+	 * When asked for by its current hash (as pages do), it's cached for good;
+	 * otherwise the browser must check back, though an unchanged file costs it
+	 * only a 304.
+	 */
+	private void handleClientRequest(ConnectionRequest req, HttpExchange httpExchange) throws IOException {
+		Optional<ClientFile> file = clientFiles.get(req.getAsset());
+		if (!file.isPresent()) {
+			httpExchange.sendResponseHeaders(404, -1);
+			return;
+		}
+		String hash = file.get().getHash();
+		boolean versioned = req.getParam("v").map(hash::equals).orElse(false);
+		httpExchange.getResponseHeaders().add("content-type", "application/javascript; charset=utf-8");
+		sendBody(httpExchange, file.get().getBody(), file.get()::getGzipped, hash, 0,
+				versioned ? CacheHeaders.IMMUTABLE : CacheHeaders.REVALIDATE);
 	}
 
 	/**
-	 * Handle (any kind of) request (GET/PUSH for example) to the /update route;
-	 * should force the sheets update loop to run.
+	 * Respond with a body held in memory - gzipped, from its kept variant, should
+	 * the client accept it - or a 304 should the client's copy still be current.
+	 * The gzipped variant is tagged apart from the plain one, as it's a different
+	 * set of bytes.
+	 */
+	private static void sendBody(HttpExchange httpExchange, byte[] body, Supplier<byte[]> gzipped, String etag,
+			long lastModified, String cacheControl) throws IOException {
+		boolean gzip = Compression.isWanted(httpExchange.getRequestHeaders(), body.length);
+		httpExchange.getResponseHeaders().add("vary", "Accept-Encoding");
+		if (gzip) {
+			body = gzipped.get();
+			etag += Compression.GZIP_ETAG_SUFFIX;
+			httpExchange.getResponseHeaders().add("content-encoding", "gzip");
+		}
+		if (CacheHeaders.handleConditional(httpExchange, etag, lastModified, cacheControl)) {
+			return;
+		}
+		if (isHead(httpExchange)) {
+			sendHeadResponse(httpExchange, body.length);
+			return;
+		}
+		httpExchange.sendResponseHeaders(200, body.length);
+		try (OutputStream outputStream = httpExchange.getResponseBody()) {
+			outputStream.write(body);
+		}
+	}
+
+	/**
+	 * Handle a request to the control routes, which let the update loop be driven
+	 * remotely (e.g. when running headless):
+	 * <ul>
+	 * <li>/update - force the sheets update loop to run; with '?wait=true', only
+	 * answered once it has (see {@link #waitForUpdate})</li>
+	 * <li>/autoupdate - POST only; turn automatic updating on, or off with
+	 * '?off'</li>
+	 * <li>/reload - POST only; re-read every config from disk</li>
+	 * <li>/status - json describing the update loop and its projects</li>
+	 * </ul>
 	 * 
-	 * Responds to request with a 404 if no update loop present, or 200.
+	 * Responds to request with a 405 if it should have been a POST, a 403 if a
+	 * browser sent it from some other site's page, a 404 if no update loop
+	 * present, or 200.
 	 */
-	public void handleUpdateRequest(ConnectionRequest request, HttpExchange httpExchange) throws IOException {
+	public void handleControlRequest(ConnectionRequest request, HttpExchange httpExchange) throws IOException {
+		int refusal = getControlRefusal(request.getType(), httpExchange.getRequestMethod(),
+				httpExchange.getRequestHeaders());
+		if (refusal != 0) {
+			LOGGER.warn("Refused {} {} (origin {}) with a {}", httpExchange.getRequestMethod(),
+					request.getFullRequest(), httpExchange.getRequestHeaders().getFirst("origin"), refusal);
+			if (refusal == 405) {
+				httpExchange.getResponseHeaders().add("allow", "POST");
+			}
+			httpExchange.sendResponseHeaders(refusal, -1);
+			return;
+		}
+
 		Optional<UpdateRunnable> updateLoop = ThreadCollector.getUpdateLoop();
-		int responseCode = 404;
-		if (updateLoop.isPresent()) {
-			LOGGER.debug("Requested an update call from {}", HttpService.class.getName());
-			updateLoop.get().runOnce();
-			responseCode = 200;
-		} else {
-			LOGGER.debug(
-					"Attempted to perform an update using {}'s /update call, but there was no updateLoop available",
-					HttpService.class.getName());
+		if (!updateLoop.isPresent()) {
+			LOGGER.debug("Attempted to use {}'s {} call, but there was no updateLoop available",
+					HttpService.class.getName(), request.getFullRequest());
+			httpExchange.sendResponseHeaders(404, -1);
+			return;
+		}
+
+		LOGGER.debug("Requested {} from {}", request.getType(), HttpService.class.getName());
+		UpdateRunnable loop = updateLoop.get();
+		switch (request.getType()) {
+		case UPDATE:
+			CompletableFuture<UpdateResult> update = loop.runOnce();
+			if ("true".equals(request.getParam("wait").orElse(null))) {
+				waitForUpdate(request, httpExchange, update);
+				return;
+			}
+			break;
+		case AUTO_UPDATE:
+			loop.setAutoUpdate(!request.hasParam("off"));
+			break;
+		case RELOAD:
+			loop.reloadAll();
+			break;
+		case STATUS:
+			Map<String, Object> status = new LinkedHashMap<>();
+			status.put("status", loop.getStatus());
+			status.put("detail", loop.getStatusDetail());
+			status.put("projects", loop.getProjectNames());
+			byte[] body = new GsonBuilder().create().toJson(status).getBytes(StandardCharsets.UTF_8);
+			httpExchange.getResponseHeaders().add("content-type", "application/json");
+			Compression.send(httpExchange, body);
+			return;
+		default:
+			throw new IllegalArgumentException("Not a control request: " + request.getType());
+		}
+		httpExchange.sendResponseHeaders(200, -1);
+	}
+
+	/**
+	 * Routes changing how updates are made mustn't be reachable by a mere link or
+	 * image, nor by a form on some other site's page.
+	 * 
+	 * @return the status to refuse the control request with, or 0 if it may go
+	 *         ahead.
+	 */
+	static int getControlRefusal(ConnectionRequestType type, String method, Headers requestHeaders) {
+		if (!type.isPostOnly()) {
+			return 0;
+		}
+		if (!"POST".equals(method)) {
+			return 405;
+		}
+		return isCrossSite(requestHeaders) ? 403 : 0;
+	}
+
+	/**
+	 * @return whether the request was sent by a browser from a page served by
+	 *         anyone other than us, e.g. a form posting to /reload; tools such as
+	 *         curl send no origin at all.
+	 */
+	static boolean isCrossSite(Headers requestHeaders) {
+		String origin = requestHeaders.getFirst("origin");
+		if (origin == null) {
+			return false;
+		}
+		String host = requestHeaders.getFirst("host");
+		return host == null || !origin.equalsIgnoreCase("http://" + host);
+	}
+
+	/**
+	 * Answer an '/update?wait=true' once the update it asked for has written out
+	 * its files, with what changed and how long it took, e.g.
+	 * '{"completed":true,"changed":{"project":["caster1Name"]},"timings":{"waitedMillis":1,"fetchMillis":250,"writeMillis":12,"totalMillis":262}}'.
+	 * 
+	 * Should the update fail, it's answered with a 502 and the reason; should it
+	 * not be done within the 'timeout' (in seconds), with a 202, as it is still
+	 * going to happen.
+	 */
+	private void waitForUpdate(ConnectionRequest req, HttpExchange httpExchange,
+			CompletableFuture<UpdateResult> update) {
+		long timeoutSeconds = parseVersion(req.getParam("timeout").orElse(null));
+		if (timeoutSeconds <= 0) {
+			timeoutSeconds = DEFAULT_LONG_POLL_SECONDS;
+		}
+		timeoutSeconds = Math.min(timeoutSeconds, MAX_LONG_POLL_SECONDS);
+
+		// Whichever comes first answers it
+		AtomicBoolean answered = new AtomicBoolean(false);
+		ScheduledFuture<?> timeout = updateWaiters.schedule(() -> {
+			if (answered.compareAndSet(false, true)) {
+				sendUpdateResult(httpExchange, 202, Collections.singletonMap("completed", false));
+			}
+		}, timeoutSeconds, TimeUnit.SECONDS);
+		update.whenCompleteAsync((result, e) -> {
+			if (!answered.compareAndSet(false, true)) {
+				return;
+			}
+			timeout.cancel(false);
+			Map<String, Object> body = new LinkedHashMap<>();
+			body.put("completed", e == null);
+			if (e != null) {
+				body.put("error", AppUtil.get().sanitiseApiKey(e.toString()));
+				sendUpdateResult(httpExchange, 502, body);
+				return;
+			}
+			Map<String, Long> timings = new LinkedHashMap<>();
+			timings.put("waitedMillis", result.getWaitedMillis());
+			timings.put("fetchMillis", result.getFetchMillis());
+			timings.put("writeMillis", result.getWriteMillis());
+			timings.put("totalMillis", result.getTotalMillis());
+			body.put("changed", result.getChangedCells());
+			body.put("timings", timings);
+			sendUpdateResult(httpExchange, 200, body);
+		}, updateWaiters);
+	}
+
+	private static void sendUpdateResult(HttpExchange httpExchange, int status, Map<String, ?> result) {
+		byte[] body = new GsonBuilder().create().toJson(result).getBytes(StandardCharsets.UTF_8);
+		try {
+			httpExchange.getResponseHeaders().add("content-type", "application/json; charset=utf-8");
+			httpExchange.getResponseHeaders().add("cache-control", "no-cache");
+			httpExchange.sendResponseHeaders(status, body.length);
+			httpExchange.getResponseBody().write(body);
+		} catch (IOException e) {
+			LOGGER.debug("Update waiter went away before it could be answered", e);
+		} finally {
+			httpExchange.close();
 		}
-		LOGGER.debug("Responding for update with {}", responseCode);
-		httpExchange.sendResponseHeaders(responseCode, -1);
 	}
 
 	/**
 	 * @return {@link CellWrapper} from the cache, using the details from the
 	 *         url/request.
 	 */
-	private CellWrapper getCell(ConnectionRequest req) {
-		Optional<CellWrapper> cell = sheetCache.findByName(req.getAsset());
+	private CellWrapper getCell(SheetCache sheetCache, ConnectionRequest req) {
+		Optional<CellWrapper> cell = sheetCache == null ? Optional.empty() : sheetCache.findByName(req.getAsset());
 		if (cell.isPresent()) {
 			return cell.get();
 		} else if (req.isValid()) {
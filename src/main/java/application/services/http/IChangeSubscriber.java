@@ -0,0 +1,63 @@
+/**
+ * IChangeSubscriber.java is part of the "SheetsIO" project (c) by Mark "Grandy" Bishop, 2021.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package application.services.http;
+
+import java.util.Map;
+
+/**
+ * A client connected to be told about changes to a project's cells, e.g. over
+ * server-sent events. Sent to by the {@link ChangeBroadcaster}'s senders, one
+ * event at a time.
+ *
+ * @author Mark "Grandy" Bishop
+ */
+interface IChangeSubscriber {
+	/**
+	 * @return the name of the single asset this subscriber cares about, or empty
+	 *         for every cell in the project.
+	 */
+	String getAsset();
+
+	/**
+	 * Send the given event to the client.
+	 * 
+	 * @param event
+	 *            'change' for new values, or 'reload' when the whole project has
+	 *            been replaced
+	 * @param values
+	 *            the changed values by cell name (only the subscriber's asset, if
+	 *            it has one)
+	 * @param urls
+	 *            the urls of the local copies of those values that have one, by
+	 *            cell name
+	 * @return false if the client has gone away, and should be forgotten
+	 */
+	boolean send(String event, long version, Map<String, String> values, Map<String, String> urls);
+
+	/**
+	 * Keep the connection alive, and find out whether the client is still there.
+	 * 
+	 * @return false if the client has gone away, and should be forgotten
+	 */
+	boolean heartbeat();
+
+	/**
+	 * Let go of the connection, e.g. as the client has stopped taking what it's
+	 * sent; may be called from any thread, including while a send is under way.
+	 */
+	void close();
+}
@@ -0,0 +1,269 @@
+/**
+ * ImageVariants.java is part of the "SheetsIO" project (c) by Mark "Grandy" Bishop, 2021.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package application.services.http;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+import javax.imageio.ImageIO;
+
+import org.apache.commons.io.FilenameUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import application.models.FileExtension.FileExtensionType;
+import application.services.http.FileRoutes.FileRoute;
+import lombok.Value;
+
+/**
+ * Smaller copies of local images, for browser sources showing them far smaller
+ * than they are (e.g. a 4K logo in a 200x200 slot), so each only downloads and
+ * decodes what it shows. Asked for with '?w=200&h=200&fit=contain' on the
+ * image's url.
+ *
+ * Each is made from the file SheetsIO has already written, on first being asked
+ * for, and kept against the version of the file it was made from; the least
+ * recently used are let go once there are too many, or they take up too much
+ * between them. A copy is never made bigger than the image, nor of a gif, which
+ * would lose its animation, nor of anything that can't be decoded (e.g. a webp
+ * saved as '.png'); the image itself is served instead, and that is kept too, so
+ * it isn't tried again.
+ *
+ * @author Mark "Grandy" Bishop
+ */
+class ImageVariants {
+	private static final Logger LOGGER = LogManager.getLogger(ImageVariants.class);
+
+	/** Largest width or height that may be asked for. */
+	static final int MAX_DIMENSION = 4096;
+	private static final long DEFAULT_MAX_BYTES = 32L * 1024 * 1024;
+	private static final int MAX_VARIANTS = 1000;
+
+	/** Kept in place of a copy, for sizes served by the image itself. */
+	private static final byte[] ORIGINAL = new byte[0];
+
+	/** As css's object-fit. */
+	enum Fit {
+		/** Keeps the aspect ratio, within the size. */
+		CONTAIN,
+		/** Keeps the aspect ratio, cropped to the size. */
+		COVER,
+		/** Stretched to the size. */
+		FILL;
+
+		/** @return as used in urls and css, e.g. 'contain'. */
+		String getName() {
+			return name().toLowerCase(Locale.ROOT);
+		}
+	}
+
+	@Value
+	static class Size {
+		/** In pixels; 0 to follow the other, keeping the aspect ratio. */
+		int width;
+		int height;
+		Fit fit;
+
+		/** @return the size asked for by the request's 'w', 'h' and 'fit', if any. */
+		static Optional<Size> from(ConnectionRequest req) {
+			int width = parseDimension(req.getParam("w").orElse(null));
+			int height = parseDimension(req.getParam("h").orElse(null));
+			if (width == 0 && height == 0) {
+				return Optional.empty();
+			}
+			Fit fit = Fit.CONTAIN;
+			for (Fit f : Fit.values()) {
+				if (f.getName().equals(req.getParam("fit").orElse(""))) {
+					fit = f;
+				}
+			}
+			return Optional.of(new Size(width, height, fit));
+		}
+
+		private static int parseDimension(String dimension) {
+			try {
+				return dimension == null ? 0 : Math.min(Math.max(0, Integer.parseInt(dimension.trim())), MAX_DIMENSION);
+			} catch (NumberFormatException e) {
+				return 0;
+			}
+		}
+
+		/** @return the given url, asking for this size, e.g. 'logo.png?w=200&h=200&fit=contain'. */
+		String appendTo(String url) {
+			return url + (url.contains("?") ? "&" : "?") + "w=" + width + "&h=" + height + "&fit=" + fit.getName();
+		}
+
+		/** @return a tag for this size, to set its copies' etags apart, e.g. '200x200-contain'. */
+		String getTag() {
+			return width + "x" + height + "-" + fit.getName();
+		}
+	}
+
+	@Value
+	private static class Key {
+		File file;
+		String version;
+		Size size;
+	}
+
+	private final long maxBytes;
+	/** In order of use, least recent first. */
+	private final LinkedHashMap<Key, byte[]> variants = new LinkedHashMap<>(16, 0.75f, true);
+	private long bytes = 0;
+
+	ImageVariants() {
+		this(DEFAULT_MAX_BYTES);
+	}
+
+	/**
+	 * @param maxBytes
+	 *            how much the copies kept may take up between them
+	 */
+	ImageVariants(long maxBytes) {
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * @return a copy of the image at the given size, in its own format, or nothing
+	 *         if the image itself should be served instead
+	 */
+	Optional<byte[]> get(FileRoute route, Size size) {
+		String format = FilenameUtils.getExtension(route.getFile().getName()).toLowerCase(Locale.ROOT);
+		if (!FileExtensionType.IMAGE.equals(route.getType()) || "gif".equals(format)) {
+			return Optional.empty();
+		}
+
+		Key key = new Key(route.getFile(), route.getVersion(), size);
+		byte[] variant;
+		synchronized (this) {
+			variant = variants.get(key);
+		}
+		if (variant == null) {
+			// Made outside the lock; at worst, two requests make the same copy
+			try {
+				variant = resize(route.getFile(), format, size);
+			} catch (IOException e) {
+				// Kept as such, so it's neither read nor logged again until rewritten
+				LOGGER.warn("Unable to resize '{}'; serving it as it is: {}", route.getFile(), e.getMessage());
+				LOGGER.debug("Resize failed", e);
+				variant = null;
+			}
+			put(key, variant == null ? ORIGINAL : variant);
+		}
+		return variant == null || variant == ORIGINAL ? Optional.empty() : Optional.of(variant);
+	}
+
+	private synchronized void put(Key key, byte[] variant) {
+		// Copies of an older version of the file are of no more use
+		for (Iterator<Map.Entry<Key, byte[]>> it = variants.entrySet().iterator(); it.hasNext();) {
+			Map.Entry<Key, byte[]> entry = it.next();
+			if (entry.getKey().getFile().equals(key.getFile()) && !entry.getKey().getVersion().equals(key.getVersion())) {
+				bytes -= entry.getValue().length;
+				it.remove();
+			}
+		}
+		byte[] previous = variants.put(key, variant);
+		bytes += variant.length - (previous == null ? 0 : previous.length);
+
+		for (Iterator<byte[]> it = variants.values().iterator(); it.hasNext()
+				&& (bytes > maxBytes || variants.size() > MAX_VARIANTS);) {
+			bytes -= it.next().length;
+			it.remove();
+		}
+	}
+
+	/**
+	 * @return the image at the given size, encoded in the given format, or null if
+	 *         it would be no smaller than the image
+	 * @throws IOException
+	 *             should the image be unreadable
+	 */
+	static byte[] resize(File file, String format, Size size) throws IOException {
+		BufferedImage image = ImageIO.read(file);
+		if (image == null) {
+			throw new IOException("Unable to read image '" + file + "'");
+		}
+		int width = image.getWidth();
+		int height = image.getHeight();
+		// A missing side follows the other, keeping the aspect ratio
+		double scaleX = size.getWidth() > 0 ? (double) size.getWidth() / width : (double) size.getHeight() / height;
+		double scaleY = size.getHeight() > 0 ? (double) size.getHeight() / height : scaleX;
+		boolean cover = Fit.COVER.equals(size.getFit());
+		if (!Fit.FILL.equals(size.getFit())) {
+			// Covering never needs more than the image, only less of it
+			double scale = cover ? Math.min(1, Math.max(scaleX, scaleY)) : Math.min(scaleX, scaleY);
+			scaleX = scale;
+			scaleY = scale;
+		}
+		int scaledWidth = Math.max(1, (int) Math.round(width * scaleX));
+		int scaledHeight = Math.max(1, (int) Math.round(height * scaleY));
+		int cropWidth = cover && size.getWidth() > 0 ? Math.min(size.getWidth(), scaledWidth) : scaledWidth;
+		int cropHeight = cover && size.getHeight() > 0 ? Math.min(size.getHeight(), scaledHeight) : scaledHeight;
+		if (scaledWidth > width || scaledHeight > height || (cropWidth == width && cropHeight == height)) {
+			// The browser can do as well with the image itself
+			return null;
+		}
+
+		// Jpgs have no alpha channel to write
+		boolean alpha = image.getColorModel().hasAlpha() && !format.startsWith("jp");
+		int type = alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+		BufferedImage resized = scaledWidth == width && scaledHeight == height ? image
+				: scale(image, scaledWidth, scaledHeight, type);
+		if (cropWidth != scaledWidth || cropHeight != scaledHeight) {
+			resized = resized.getSubimage((scaledWidth - cropWidth) / 2, (scaledHeight - cropHeight) / 2, cropWidth,
+					cropHeight);
+		}
+
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		if (!ImageIO.write(resized, format, os)) {
+			throw new IOException("Unable to write images as '" + format + "'");
+		}
+		return os.toByteArray();
+	}
+
+	/**
+	 * @return the image scaled down to the given size; by halves until the last
+	 *         step, as a single bilinear step from far bigger skips most of the
+	 *         image, and looks it.
+	 */
+	private static BufferedImage scale(BufferedImage image, int width, int height, int type) {
+		BufferedImage current = image;
+		int currentWidth = image.getWidth();
+		int currentHeight = image.getHeight();
+		do {
+			currentWidth = Math.max(width, currentWidth / 2);
+			currentHeight = Math.max(height, currentHeight / 2);
+			BufferedImage next = new BufferedImage(currentWidth, currentHeight, type);
+			Graphics2D graphics = next.createGraphics();
+			graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+			graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+			graphics.drawImage(current, 0, 0, currentWidth, currentHeight, null);
+			graphics.dispose();
+			current = next;
+		} while (currentWidth != width || currentHeight != height);
+		return current;
+	}
+}
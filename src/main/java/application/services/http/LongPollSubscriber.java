@@ -0,0 +1,77 @@
+/**
+ * LongPollSubscriber.java is part of the "SheetsIO" project (c) by Mark "Grandy" Bishop, 2021.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package application.services.http;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * A long-poll request, for clients that can use neither server-sent events nor
+ * WebSockets. Like an event stream, it is left open without tying up a server
+ * thread; the first event (or the timeout) is sent as the whole response, e.g.
+ * '{"event":"change","version":12,"values":{"asset":"value"},"urls":{}}', and the client
+ * asks again with '?since=12'.
+ *
+ * @author Mark "Grandy" Bishop
+ */
+@RequiredArgsConstructor
+class LongPollSubscriber implements IChangeSubscriber {
+	private static final Logger LOGGER = LogManager.getLogger(LongPollSubscriber.class);
+
+	private final HttpExchange exchange;
+
+	@Getter
+	private final String asset;
+
+	@Override
+	public boolean send(String event, long version, Map<String, String> values, Map<String, String> urls) {
+		byte[] body = ChangeBroadcaster.toJson(event, version, values, urls).getBytes(StandardCharsets.UTF_8);
+		try {
+			exchange.getResponseHeaders().add("content-type", "application/json; charset=utf-8");
+			exchange.getResponseHeaders().add("cache-control", "no-cache");
+			// Usable from overlays served elsewhere, e.g. a scoreboard's dev server
+			exchange.getResponseHeaders().add("access-control-allow-origin", "*");
+			Compression.send(exchange, body);
+		} catch (IOException e) {
+			LOGGER.debug("Long-poll client went away before it could be answered", e);
+		} finally {
+			exchange.close();
+		}
+		// Answered; there's nothing more to send it
+		return false;
+	}
+
+	@Override
+	public boolean heartbeat() {
+		// Still waiting; the timeout will see to it
+		return true;
+	}
+
+	@Override
+	public void close() {
+		exchange.close();
+	}
+}
@@ -0,0 +1,147 @@
+/**
+ * PageCache.java is part of the "SheetsIO" project (c) by Mark "Grandy" Bishop, 2021.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package application.services.http;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import application.services.SheetCache;
+import lombok.Getter;
+import lombok.Value;
+
+/**
+ * Pages rendered by {@link HtmlResponseBuilder}, kept as ready-to-send bytes so
+ * a scene full of browser sources loading at once costs a lookup each, not a
+ * render each.
+ *
+ * One page is kept per cell and set of parameters (the size of its image
+ * included, see {@link ImageVariants}), along with the version of
+ * the cell (and the local file url) it was rendered for; a page for any other
+ * version is rendered afresh and replaces it. Pages are also evicted as soon as
+ * their cell changes, so nothing stale is held on to.
+ *
+ * Only so many sizes are kept per cell, as a page may be asked for at any size
+ * at all; past that, the cell's other sized pages are let go of.
+ *
+ * A project's values json is kept alike, under the name of its route, against
+ * the project's version.
+ *
+ * @author Mark "Grandy" Bishop
+ */
+class PageCache {
+	/** Sizes of a cell's image that are kept at once. */
+	static final int MAX_IMAGE_SIZES = 16;
+
+	@Value
+	static class Page {
+		byte[] body;
+		String etag;
+		/** When the content last changed, in millis, or 0 if unknown. */
+		long lastModified;
+		/** The body gzipped, made on first being asked for by a client. */
+		@Getter(lazy = true)
+		byte[] gzipped = Compression.gzip(body);
+
+		static Page of(String html, long lastModified) {
+			byte[] body = html.getBytes(StandardCharsets.UTF_8);
+			return new Page(body, ContentHash.of(body), lastModified);
+		}
+	}
+
+	@Value
+	private static class Key {
+		String project;
+		String cellName;
+		boolean noscale;
+		boolean loop;
+		/** e.g. '200x200-contain', or empty if at its own size. */
+		String imageSize;
+	}
+
+	@Value
+	private static class Entry {
+		SheetCache source;
+		long version;
+		String localSrc;
+		Page page;
+	}
+
+	private final Map<Key, Entry> pages = new ConcurrentHashMap<>();
+
+	/**
+	 * @param source
+	 *            the cache the cell is from; pages from a replaced cache are never
+	 *            used, even at the same version
+	 * @param version
+	 *            the cell's current version; must be read before the value the
+	 *            page is rendered from, so a page is never kept under a newer
+	 *            version than its content
+	 * @param localSrc
+	 *            the url of the cell's local file, if the page uses one
+	 * @param render
+	 *            renders the page, should there be none for this version
+	 * @return the page for the given cell and parameters
+	 */
+	Page get(String project, String cellName, boolean noscale, boolean loop, SheetCache source, long version,
+			String localSrc, Supplier<Page> render) {
+		return get(project, cellName, noscale, loop, "", source, version, localSrc, render);
+	}
+
+	/**
+	 * As {@link #get(String, String, boolean, boolean, SheetCache, long, String, Supplier)},
+	 * for a page showing its image at the given size.
+	 */
+	Page get(String project, String cellName, boolean noscale, boolean loop, String imageSize, SheetCache source,
+			long version, String localSrc, Supplier<Page> render) {
+		Key key = new Key(project, cellName, noscale, loop, imageSize);
+		Entry entry = pages.get(key);
+		if (entry == null || entry.getSource() != source || entry.getVersion() != version
+				|| !Objects.equals(entry.getLocalSrc(), localSrc)) {
+			entry = new Entry(source, version, localSrc, render.get());
+			if (!imageSize.isEmpty() && !pages.containsKey(key)) {
+				limitImageSizes(project, cellName);
+			}
+			pages.put(key, entry);
+		}
+		return entry.getPage();
+	}
+
+	/** Make room for another size of the given cell's image, if it has too many. */
+	private void limitImageSizes(String project, String cellName) {
+		if (pages.keySet().stream().filter(k -> isImageSizeOf(k, project, cellName)).count() >= MAX_IMAGE_SIZES) {
+			pages.keySet().removeIf(k -> isImageSizeOf(k, project, cellName));
+		}
+	}
+
+	private static boolean isImageSizeOf(Key key, String project, String cellName) {
+		return key.getProject().equals(project) && key.getCellName().equals(cellName) && !key.getImageSize().isEmpty();
+	}
+
+	/** Forget the pages of the given cells, e.g. as they have changed. */
+	void evict(String project, Collection<String> cellNames) {
+		pages.keySet().removeIf(k -> k.getProject().equals(project) && cellNames.contains(k.getCellName()));
+	}
+
+	/** Forget every page of the given project, e.g. as it has been replaced. */
+	void evictProject(String project) {
+		pages.keySet().removeIf(k -> k.getProject().equals(project));
+	}
+}
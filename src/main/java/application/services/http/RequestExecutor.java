@@ -0,0 +1,137 @@
+/**
+ * RequestExecutor.java is part of the "SheetsIO" project (c) by Mark "Grandy" Bishop, 2021.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package application.services.http;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Runs the http server's requests, with a cap on how many may be in hand at
+ * once (being handled, or waiting for a thread). Any over the cap are handled
+ * with {@link #isShedding()} set, to be answered with a quick 503 rather than
+ * queued without limit; so a burst of scene loads can't leave every browser
+ * source waiting behind it.
+ *
+ * Requests are handled on a fixed pool of threads, or - given 'virtual' as the
+ * number of threads, and a JVM that has them (Java 21+) - on a virtual thread
+ * each.
+ *
+ * @author Mark "Grandy" Bishop
+ */
+class RequestExecutor implements Executor {
+	private static final Logger LOGGER = LogManager.getLogger(RequestExecutor.class);
+
+	static final String VIRTUAL_THREADS = "virtual";
+	static final int DEFAULT_THREADS = 10;
+	/**
+	 * How many turned away requests may wait to be answered; any more are answered
+	 * on the server's own thread.
+	 */
+	private static final int MAX_SHED = 100;
+
+	private static final ThreadLocal<Boolean> SHEDDING = ThreadLocal.withInitial(() -> false);
+
+	private final ExecutorService workers;
+	private final ExecutorService shedder;
+	private final Semaphore permits;
+
+	/**
+	 * @param threads
+	 *            how many threads to handle requests on, or 'virtual'
+	 * @param maxRequests
+	 *            how many requests may be in hand at once
+	 */
+	RequestExecutor(String threads, int maxRequests) {
+		this.workers = newWorkers(threads);
+		this.permits = new Semaphore(maxRequests);
+		this.shedder = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(MAX_SHED),
+				daemon("http-shedder"), new ThreadPoolExecutor.CallerRunsPolicy());
+	}
+
+	/** @return whether the current request is over the cap, so should be turned away. */
+	static boolean isShedding() {
+		return SHEDDING.get();
+	}
+
+	@Override
+	public void execute(Runnable request) {
+		if (permits.tryAcquire()) {
+			workers.execute(() -> {
+				try {
+					request.run();
+				} finally {
+					permits.release();
+				}
+			});
+		} else {
+			shedder.execute(() -> {
+				SHEDDING.set(true);
+				try {
+					request.run();
+				} finally {
+					SHEDDING.set(false);
+				}
+			});
+		}
+	}
+
+	/** Stop handling requests; should only be called on shutdown. */
+	void shutdownNow() {
+		workers.shutdownNow();
+		shedder.shutdownNow();
+	}
+
+	private static ExecutorService newWorkers(String threads) {
+		if (VIRTUAL_THREADS.equalsIgnoreCase(threads)) {
+			try {
+				return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+			} catch (ReflectiveOperationException e) {
+				LOGGER.warn("Virtual threads need Java 21 or later; handling requests on a pool of {} threads instead",
+						DEFAULT_THREADS);
+				threads = Integer.toString(DEFAULT_THREADS);
+			}
+		}
+		int count;
+		try {
+			count = Integer.parseInt(threads);
+		} catch (NumberFormatException e) {
+			LOGGER.warn("'{}' isn't a number of threads; using {}", threads, DEFAULT_THREADS);
+			count = DEFAULT_THREADS;
+		}
+		// The queue is bounded by the permits, not by itself
+		return new ThreadPoolExecutor(count, count, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+				daemon("http-worker"));
+	}
+
+	private static ThreadFactory daemon(String name) {
+		return r -> {
+			Thread thread = new Thread(r, name);
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+}
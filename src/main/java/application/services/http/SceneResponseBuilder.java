@@ -0,0 +1,226 @@
+/**
+ * SceneResponseBuilder.java is part of the "SheetsIO" project (c) by Mark "Grandy" Bishop, 2021.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package application.services.http;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.google.gson.GsonBuilder;
+
+import application.models.CellWrapper;
+import application.models.SceneWrapper;
+import application.models.json.SceneCell;
+
+/**
+ * Builder mechanism for the Html of a scene: many cells in one page, each
+ * placed where the scene says (or wherever its own template puts them), and
+ * all kept up to date by one connection.
+ *
+ * Images of a laid-out scene are asked for at the size of their place in it
+ * (see {@link ImageVariants}), rather than as big as they are.
+ *
+ * Alongside the client script, the page is given each cell's src and local
+ * file as json; a template scene is filled in from these as it loads, as its
+ * html is never changed by us beyond adding the scripts.
+ *
+ * @author Mark "Grandy" Bishop
+ */
+public class SceneResponseBuilder {
+
+	static String SCRIPTS_TEMPLATE = "<script type=\"text/javascript\" src=\"[client]\" data-version=\"[version]\" data-ws-port=\"[wsPort]\" data-scene=\"[scene]\"[fill]></script>" //
+			+ "<script type=\"application/json\" id=\"sheetsio-scene\">[cells]</script>";
+	static String CORE_TEMPLATE = "<html>" //
+			+ "	<head>" //
+			+ "		<scripts></scripts>" //
+			+ "		<style>body { margin: 0; padding: 0; background-color: rgba(0, 0, 0, 0); overflow: hidden; position: relative; width: [width]px; height: [height]px; }" //
+			+ " .cell { position: absolute; overflow: hidden; } .cell .content { width: 100%; height: 100%; border: 0; }</style>" //
+			+ "	</head>" //
+			+ "	<body>" //
+			+ "		<content></content>" //
+			+ " </body>" //
+			+ "</html>";
+	static String CELL_TEMPLATE = "<div class=\"cell\" data-cell=\"[name]\" style=\"left: [x]px; top: [y]px; width: [width]px; height: [height]px; [style]\">[inner]</div>";
+	static String IFRAME_TEMPLATE = "<iframe class=\"content\" src=\"%s\" frameborder=\"0\"></iframe>";
+	static String IMG_TEMPLATE = "<img class=\"content\" src=\"%s\" />";
+	static String SPAN_TEMPLATE = "<span class=\"text\">%s</span>";
+	static String VIDEO_TEMPLATE = "<video class=\"content\" autoplay [loop]><source src=\"[src]\" type=\"[type]\"></video>";
+
+	/** Where a template's scripts go, at the end of its head. */
+	private static final Pattern HEAD_END = Pattern.compile("</head>", Pattern.CASE_INSENSITIVE);
+
+	private static class CellValue {
+		private CellWrapper cell;
+		private String value;
+		private String src;
+		private String file;
+	}
+
+	private final String project;
+	private final SceneWrapper scene;
+	private final Map<String, CellValue> values = new LinkedHashMap<>();
+
+	private String clientSrc = "/" + ConnectionRequest.CLIENT_PATH + "/" + HtmlResponseBuilder.CLIENT_FILE;
+	private long version = 0;
+	private int webSocketPort = 0;
+
+	public SceneResponseBuilder(String project, SceneWrapper scene) {
+		this.project = project;
+		this.scene = scene;
+	}
+
+	/**
+	 * @param name
+	 *            the name of the cell, as used in the scene
+	 * @param value
+	 *            the cell's current value
+	 * @param localSrc
+	 *            the url of the cell's local file, as for
+	 *            {@link HtmlResponseBuilder#localSrc}, or null
+	 * @return a builder which shows the given value for the cell
+	 */
+	public SceneResponseBuilder value(String name, CellWrapper cell, String value, String localSrc) {
+		CellValue cellValue = new CellValue();
+		cellValue.cell = cell;
+		cellValue.value = value;
+		// Served under the project, wherever the scene itself is
+		cellValue.file = "/" + project + "/" + cell.getName() + "." + cell.getFileExtension().getExtension();
+		switch (cell.getFileExtension().getType()) {
+		case IMAGE:
+			Optional<ImageVariants.Size> size = getImageSize(name);
+			if (size.isPresent()) {
+				cellValue.file = size.get().appendTo(cellValue.file);
+				localSrc = localSrc == null ? null : size.get().appendTo(localSrc);
+			}
+			cellValue.src = HtmlResponseBuilder.getSrc(value, HtmlResponseBuilder.EMPTY_IMG_SRC, localSrc,
+					cellValue.file);
+			break;
+		case VIDEO:
+			cellValue.src = HtmlResponseBuilder.getSrc(value, "", localSrc, cellValue.file);
+			break;
+		default:
+			cellValue.src = value;
+		}
+		values.put(name, cellValue);
+		return this;
+	}
+
+	/**
+	 * @return the size the cell is shown at, stretched as its css does; the
+	 *         biggest of them, should it be placed more than once. Nothing for
+	 *         templates, whose sizes aren't known.
+	 */
+	private Optional<ImageVariants.Size> getImageSize(String name) {
+		int width = 0;
+		int height = 0;
+		for (SceneCell sceneCell : scene.hasTemplate() ? Collections.<SceneCell>emptyList() : scene.getCells()) {
+			if (sceneCell.getName().equals(name)) {
+				width = Math.max(width, sceneCell.getWidth());
+				height = Math.max(height, sceneCell.getHeight());
+			}
+		}
+		return width > 0 && height > 0 ? Optional.of(new ImageVariants.Size(width, height, ImageVariants.Fit.FILL))
+				: Optional.empty();
+	}
+
+	/** @see HtmlResponseBuilder#clientSrc */
+	public SceneResponseBuilder clientSrc(String clientSrc) {
+		this.clientSrc = clientSrc;
+		return this;
+	}
+
+	/**
+	 * @return a builder for the scene as of the given version of its project, so
+	 *         that the page's live updates only pick up anything newer.
+	 */
+	public SceneResponseBuilder version(long version) {
+		this.version = version;
+		return this;
+	}
+
+	/** @see HtmlResponseBuilder#webSocketPort */
+	public SceneResponseBuilder webSocketPort(int webSocketPort) {
+		this.webSocketPort = webSocketPort;
+		return this;
+	}
+
+	public String build() {
+		Map<String, Object> cells = new LinkedHashMap<>();
+		values.forEach((name, v) -> {
+			Map<String, String> cell = new LinkedHashMap<>();
+			cell.put("src", v.src);
+			cell.put("file", v.file);
+			cells.put(name, cell);
+		});
+		String scripts = SCRIPTS_TEMPLATE //
+				.replace("[client]", clientSrc) //
+				.replace("[version]", Long.toString(version)) //
+				.replace("[wsPort]", Integer.toString(webSocketPort)) //
+				.replace("[scene]", scene.getName()) //
+				.replace("[fill]", scene.hasTemplate() ? " data-fill=\"true\"" : "") //
+				// Escapes '<', so can't close the script early
+				.replace("[cells]", new GsonBuilder().create().toJson(Collections.singletonMap("cells", cells)));
+
+		if (scene.hasTemplate()) {
+			Matcher headEnd = HEAD_END.matcher(scene.getTemplate());
+			return headEnd.find()
+					? scene.getTemplate().substring(0, headEnd.start()) + scripts
+							+ scene.getTemplate().substring(headEnd.start())
+					: scripts + scene.getTemplate();
+		}
+
+		StringBuilder content = new StringBuilder();
+		for (SceneCell sceneCell : scene.getCells()) {
+			CellValue v = values.get(sceneCell.getName());
+			if (v != null) {
+				content.append(CELL_TEMPLATE //
+						.replace("[name]", sceneCell.getName()) //
+						.replace("[x]", Integer.toString(sceneCell.getX())) //
+						.replace("[y]", Integer.toString(sceneCell.getY())) //
+						.replace("[width]", Integer.toString(sceneCell.getWidth())) //
+						.replace("[height]", Integer.toString(sceneCell.getHeight())) //
+						.replace("[style]", sceneCell.getStyle() == null ? "" : sceneCell.getStyle()) //
+						.replace("[inner]", getInner(v, sceneCell.isLoop())));
+			}
+		}
+		// Values last, so nothing in them is mistaken for part of the template
+		return CORE_TEMPLATE.replace("[width]", Integer.toString(scene.getWidth())) //
+				.replace("[height]", Integer.toString(scene.getHeight())) //
+				.replace("<scripts></scripts>", scripts) //
+				.replace("<content></content>", content.toString());
+	}
+
+	/** @return the html showing the given value, as a single-cell page would. */
+	private static String getInner(CellValue v, boolean loop) {
+		switch (v.cell.getFileExtension().getType()) {
+		case IMAGE:
+			return String.format(IMG_TEMPLATE, v.src);
+		case VIDEO:
+			return VIDEO_TEMPLATE //
+					.replace("[loop]", loop ? "loop" : "") //
+					.replace("[src]", v.src) //
+					.replace("[type]", v.cell.getFileExtension().getContentType());
+		case HTTP:
+			return String.format(IFRAME_TEMPLATE, v.src);
+		default:
+			return String.format(SPAN_TEMPLATE, v.src);
+		}
+	}
+}
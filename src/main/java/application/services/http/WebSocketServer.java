@@ -0,0 +1,260 @@
+/**
+ * WebSocketServer.java is part of the "SheetsIO" project (c) by Mark "Grandy" Bishop, 2021.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package application.services.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import application.models.PropertiesHolder;
+import application.services.SheetCache;
+import application.services.http.ConnectionRequest.ConnectionRequestType;
+
+/**
+ * Accepts WebSocket connections on a port of its own, for browser sources to
+ * receive cell changes over; the JDK's http server has no way to hand over a
+ * connection once it has been upgraded, hence the separate listener.
+ *
+ * Clients connect to the same routes as for server-sent events (e.g.
+ * 'ws://localhost:8002/project/asset/_events?since=12'), and once the handshake
+ * is done they are handed to the {@link ChangeBroadcaster} as a
+ * {@link WebSocketSubscriber}, whose connection is then read from on a thread
+ * of its own until the client closes it. With as many connections as there may
+ * be subscribers, any more are closed with a 1013 (try again later).
+ *
+ * @author Mark "Grandy" Bishop
+ */
+class WebSocketServer {
+	private static final Logger LOGGER = LogManager.getLogger(WebSocketServer.class);
+
+	/** Appended to the client's key to prove we understood it; from RFC 6455. */
+	private static final String ACCEPT_GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+	private static final int HANDSHAKE_TIMEOUT_MILLIS = 5000;
+	private static final int MAX_HANDSHAKE_BYTES = 8192;
+	/** Handshakes in hand at once; connections past this are dropped, to retry. */
+	private static final int MAX_HANDSHAKES = 100;
+	private static final long READER_STACK_BYTES = 128 * 1024;
+
+	private final ChangeBroadcaster broadcaster;
+	/** Looks up the current cache for a project, if any. */
+	private final Function<String, SheetCache> routes;
+
+	private final ExecutorService handshakes = new ThreadPoolExecutor(0, MAX_HANDSHAKES, 60, TimeUnit.SECONDS,
+			new SynchronousQueue<>(), r -> {
+				Thread thread = new Thread(r, "websocket-handshake");
+				thread.setDaemon(true);
+				return thread;
+			});
+
+	/**
+	 * Reads from each connection until it's closed; threads mostly sat waiting, so
+	 * given little stack.
+	 */
+	private final ExecutorService readers = new ThreadPoolExecutor(0, ChangeBroadcaster.MAX_SUBSCRIBERS, 60,
+			TimeUnit.SECONDS, new SynchronousQueue<>(), r -> {
+				Thread thread = new Thread(null, r, "websocket-reader", READER_STACK_BYTES);
+				thread.setDaemon(true);
+				return thread;
+			});
+
+	private ServerSocket serverSocket;
+
+	WebSocketServer(ChangeBroadcaster broadcaster, Function<String, SheetCache> routes) {
+		this.broadcaster = broadcaster;
+		this.routes = routes;
+	}
+
+	/**
+	 * Begin listening on the given port, of the given address; as for the web
+	 * server, see {@link PropertiesHolder#HTTP_BIND_ADDRESS}.
+	 */
+	synchronized void start(String bindAddress, int port) throws IOException {
+		serverSocket = new ServerSocket(port, 0, InetAddress.getByName(bindAddress));
+		Thread acceptor = new Thread(this::accept, "websocket-accept");
+		acceptor.setDaemon(true);
+		acceptor.start();
+		LOGGER.info("WebSocket server began listening on port {}", port);
+	}
+
+	/** @return the port being listened on, or 0 if not listening. */
+	synchronized int getPort() {
+		return serverSocket == null ? 0 : serverSocket.getLocalPort();
+	}
+
+	synchronized void stop() {
+		handshakes.shutdownNow();
+		readers.shutdownNow();
+		if (serverSocket != null) {
+			try {
+				serverSocket.close();
+			} catch (IOException e) {
+				LOGGER.debug("Unable to close the WebSocket server", e);
+			}
+		}
+	}
+
+	private void accept() {
+		ServerSocket listening = this.serverSocket;
+		while (!listening.isClosed()) {
+			try {
+				Socket socket = listening.accept();
+				try {
+					handshakes.execute(() -> handshake(socket));
+				} catch (RejectedExecutionException e) {
+					LOGGER.debug("Too busy; dropped a WebSocket connection");
+					close(socket);
+				}
+			} catch (SocketException e) {
+				// Closed on shutdown
+			} catch (IOException e) {
+				LOGGER.warn("Unable to accept a WebSocket connection", e);
+			}
+		}
+	}
+
+	/**
+	 * Read the client's upgrade request and, if it's for a valid route, answer it
+	 * and subscribe the connection to changes.
+	 */
+	private void handshake(Socket socket) {
+		try {
+			socket.setSoTimeout(HANDSHAKE_TIMEOUT_MILLIS);
+			String[] lines = readRequest(socket.getInputStream()).split("\r\n");
+			String[] requestLine = lines[0].split(" ");
+			Map<String, String> headers = new HashMap<>();
+			for (int i = 1; i < lines.length; i++) {
+				int colon = lines[i].indexOf(':');
+				if (colon > 0) {
+					headers.put(lines[i].substring(0, colon).trim().toLowerCase(), lines[i].substring(colon + 1).trim());
+				}
+			}
+
+			String key = headers.get("sec-websocket-key");
+			if (requestLine.length < 2 || !"GET".equals(requestLine[0]) || key == null
+					|| !"websocket".equalsIgnoreCase(headers.get("upgrade"))) {
+				reject(socket, "400 Bad Request");
+				return;
+			}
+			Optional<ConnectionRequest> request = ConnectionRequest.from(new URI(requestLine[1]));
+			// Nor is there anything to hear about a project that isn't loaded
+			SheetCache cache = request.map(r -> routes.apply(r.getProject())).orElse(null);
+			if (!request.isPresent() || !ConnectionRequestType.EVENTS.equals(request.get().getType())
+					|| cache == null) {
+				reject(socket, "404 Not Found");
+				return;
+			}
+
+			OutputStream outputStream = socket.getOutputStream();
+			outputStream.write(("HTTP/1.1 101 Switching Protocols\r\n" //
+					+ "Upgrade: websocket\r\n" //
+					+ "Connection: Upgrade\r\n" //
+					+ "Sec-WebSocket-Accept: " + acceptKey(key) + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+			outputStream.flush();
+			socket.setSoTimeout(0);
+			socket.setTcpNoDelay(true);
+
+			ConnectionRequest req = request.get();
+			long since = HttpService.parseVersion(req.getParam("since").orElse(null));
+			LOGGER.debug("WebSocket events -> {}", req);
+			WebSocketSubscriber subscriber = new WebSocketSubscriber(socket, req.getAsset());
+			if (!broadcaster.subscribe(req.getProject(), subscriber, cache, since)) {
+				subscriber.closeTooBusy();
+				return;
+			}
+			try {
+				readers.execute(() -> {
+					subscriber.readUntilClosed();
+					broadcaster.unsubscribe(req.getProject(), subscriber);
+				});
+			} catch (RejectedExecutionException e) {
+				// Too busy, or shutting down
+				LOGGER.debug("No reader free for WebSocket events -> {}", req);
+				broadcaster.unsubscribe(req.getProject(), subscriber);
+				subscriber.closeTooBusy();
+			}
+		} catch (IOException | URISyntaxException e) {
+			LOGGER.debug("WebSocket handshake failed", e);
+			close(socket);
+		}
+	}
+
+	/** @return the request line and headers, up to the blank line ending them. */
+	private static String readRequest(InputStream inputStream) throws IOException {
+		ByteArrayOutputStream request = new ByteArrayOutputStream();
+		int matched = 0;
+		while (matched < 4) {
+			int b = inputStream.read();
+			if (b == -1 || request.size() >= MAX_HANDSHAKE_BYTES) {
+				throw new IOException("Incomplete WebSocket handshake");
+			}
+			request.write(b);
+			// Looking for \r\n\r\n
+			matched = (b == (matched % 2 == 0 ? '\r' : '\n')) ? matched + 1 : (b == '\r' ? 1 : 0);
+		}
+		return request.toString(StandardCharsets.US_ASCII.name());
+	}
+
+	private static void reject(Socket socket, String status) throws IOException {
+		socket.getOutputStream()
+				.write(("HTTP/1.1 " + status + "\r\nContent-Length: 0\r\nConnection: close\r\n\r\n")
+						.getBytes(StandardCharsets.US_ASCII));
+		close(socket);
+	}
+
+	static void close(Socket socket) {
+		try {
+			socket.close();
+		} catch (IOException e) {
+			LOGGER.trace("Unable to close WebSocket", e);
+		}
+	}
+
+	/** @return the Sec-WebSocket-Accept value for the client's key. */
+	static String acceptKey(String key) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-1")
+					.digest((key + ACCEPT_GUID).getBytes(StandardCharsets.US_ASCII));
+			return Base64.getEncoder().encodeToString(digest);
+		} catch (NoSuchAlgorithmException e) {
+			// Every JVM is required to have SHA-1
+			throw new IllegalStateException(e);
+		}
+	}
+}
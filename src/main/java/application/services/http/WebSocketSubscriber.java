@@ -0,0 +1,187 @@
+/**
+ * WebSocketSubscriber.java is part of the "SheetsIO" project (c) by Mark "Grandy" Bishop, 2021.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package application.services.http;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import lombok.Getter;
+
+/**
+ * A client listening over a WebSocket. Each event is sent as a single text
+ * message, e.g. '{"event":"change","version":12,"values":{"asset":"value"},"urls":{}}'.
+ *
+ * The client only ever needs to listen, but what it does send is read (see
+ * {@link #readUntilClosed()}), so that its pings are answered and its closing
+ * of the connection is too, as RFC 6455 asks.
+ *
+ * @author Mark "Grandy" Bishop
+ */
+class WebSocketSubscriber implements IChangeSubscriber {
+	private static final Logger LOGGER = LogManager.getLogger(WebSocketSubscriber.class);
+
+	private static final int OPCODE_TEXT = 0x1;
+	private static final int OPCODE_CLOSE = 0x8;
+	private static final int OPCODE_PING = 0x9;
+	private static final int OPCODE_PONG = 0xA;
+
+	/** Close codes, from RFC 6455. */
+	private static final int CLOSE_PROTOCOL_ERROR = 1002;
+	private static final int CLOSE_TOO_BIG = 1009;
+	private static final int CLOSE_TRY_AGAIN_LATER = 1013;
+	/** Clients have nothing to tell us; control frames are at most 125 bytes. */
+	private static final int MAX_CLIENT_PAYLOAD = 1024;
+
+	private final Socket socket;
+	private final OutputStream outputStream;
+
+	@Getter
+	private final String asset;
+
+	WebSocketSubscriber(Socket socket, String asset) throws IOException {
+		this.socket = socket;
+		this.outputStream = socket.getOutputStream();
+		this.asset = asset;
+	}
+
+	@Override
+	public boolean send(String event, long version, Map<String, String> values, Map<String, String> urls) {
+		return write(frame(OPCODE_TEXT,
+				ChangeBroadcaster.toJson(event, version, values, urls).getBytes(StandardCharsets.UTF_8)));
+	}
+
+	@Override
+	public boolean heartbeat() {
+		return write(frame(OPCODE_PING, new byte[0]));
+	}
+
+	@Override
+	public void close() {
+		// Also ends any write blocked on a client that has stopped reading
+		WebSocketServer.close(socket);
+	}
+
+	/** Tell the client we're too busy for it, to try again later, and let it go. */
+	void closeTooBusy() {
+		write(frame(OPCODE_CLOSE, closePayload(CLOSE_TRY_AGAIN_LATER)));
+		close();
+	}
+
+	/**
+	 * Read frames from the client until it closes the connection or goes away:
+	 * pings are answered with a pong, a close with a close, and anything else
+	 * (e.g. pongs to our heartbeats) is ignored. Blocks throughout, so is run on a
+	 * thread of its own; the connection is closed by the time it returns.
+	 */
+	void readUntilClosed() {
+		try {
+			DataInputStream inputStream = new DataInputStream(socket.getInputStream());
+			while (true) {
+				int first = inputStream.read();
+				if (first == -1) {
+					return;
+				}
+				int opcode = first & 0x0F;
+				int second = inputStream.readUnsignedByte();
+				long length = readLength(inputStream, second & 0x7F);
+				boolean tooBig = length < 0 || length > MAX_CLIENT_PAYLOAD;
+				if ((second & 0x80) == 0 || tooBig) {
+					// Clients must mask what they send, and have little to say
+					write(frame(OPCODE_CLOSE, closePayload(tooBig ? CLOSE_TOO_BIG : CLOSE_PROTOCOL_ERROR)));
+					return;
+				}
+				byte[] mask = new byte[4];
+				inputStream.readFully(mask);
+				byte[] payload = new byte[(int) length];
+				inputStream.readFully(payload);
+				for (int i = 0; i < payload.length; i++) {
+					payload[i] ^= mask[i % 4];
+				}
+
+				if (opcode == OPCODE_CLOSE) {
+					// Echo the status code, if given
+					write(frame(OPCODE_CLOSE, Arrays.copyOf(payload, Math.min(2, payload.length))));
+					return;
+				} else if (opcode == OPCODE_PING) {
+					write(frame(OPCODE_PONG, payload));
+				}
+			}
+		} catch (IOException e) {
+			LOGGER.trace("WebSocket client went away", e);
+		} finally {
+			close();
+		}
+	}
+
+	private static long readLength(DataInputStream inputStream, int length) throws IOException {
+		if (length == 126) {
+			return inputStream.readUnsignedShort();
+		} else if (length == 127) {
+			return inputStream.readLong();
+		}
+		return length;
+	}
+
+	private static byte[] closePayload(int code) {
+		return new byte[] { (byte) (code >> 8), (byte) code };
+	}
+
+	/** Synchronized, as the reader answers the client alongside events being sent. */
+	private synchronized boolean write(byte[] frame) {
+		try {
+			outputStream.write(frame);
+			outputStream.flush();
+			return true;
+		} catch (IOException e) {
+			WebSocketServer.close(socket);
+			return false;
+		}
+	}
+
+	/**
+	 * @return a single, final, unmasked frame (as sent by servers) with the given
+	 *         opcode and payload.
+	 */
+	static byte[] frame(int opcode, byte[] payload) {
+		int headerLength = payload.length < 126 ? 2 : payload.length <= 0xFFFF ? 4 : 10;
+		byte[] frame = new byte[headerLength + payload.length];
+		frame[0] = (byte) (0x80 | opcode);
+		if (headerLength == 2) {
+			frame[1] = (byte) payload.length;
+		} else if (headerLength == 4) {
+			frame[1] = 126;
+			frame[2] = (byte) (payload.length >> 8);
+			frame[3] = (byte) payload.length;
+		} else {
+			frame[1] = 127;
+			// Payloads are never near 2^32 bytes, so the top four bytes stay zero
+			for (int i = 0; i < 4; i++) {
+				frame[6 + i] = (byte) (payload.length >> (8 * (3 - i)));
+			}
+		}
+		System.arraycopy(payload, 0, frame, headerLength, payload.length);
+		return frame;
+	}
+}
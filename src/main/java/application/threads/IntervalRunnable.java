@@ -16,64 +16,115 @@
  */
 package application.threads;
 
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import application.IExceptionHandler;
+import lombok.AccessLevel;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 
 /**
  * Base class for interval/tick-based {@link Runnable}s in the application; can
  * be paused and resumed at will, and handles exceptions off to a provided
  * {@link IExceptionHandler} - usually the panel it is being controlled from.
+ * 
+ * Control methods only flip volatile state and never take a lock, so they can
+ * be safely called from the JavaFX thread (or the http server) while a
+ * {@link #perform()} is mid-flight. {@link #wakeUp()} cuts the current wait
+ * short so that the next cycle begins immediately.
  *
  * @author Mark "Grandy" Bishop
  */
 @RequiredArgsConstructor
 public abstract class IntervalRunnable implements Runnable {
 	private static final Logger LOGGER = LogManager.getLogger(IntervalRunnable.class);
-	private boolean doStop = false;
+	private volatile boolean doStop = false;
 
 	private final IExceptionHandler exceptionHandler;
+	@Getter(AccessLevel.PROTECTED)
 	private final long interval;
 
-	private boolean paused;
+	private volatile boolean paused;
+
+	/** Permits are released to end the current wait early; drained per cycle. */
+	private final Semaphore wakeSignal = new Semaphore(0);
 
 	@Override
 	public void run() {
 		while (keepRunning()) {
+			// Anything asked for up until now is covered by this cycle
+			wakeSignal.drainPermits();
 			try {
 				if (!paused) {
 					perform();
 				}
-				Thread.sleep(interval);
 			} catch (Exception e) {
 				exceptionHandler.handleException(e);
 				paused = true;
+				onPausedByError(e);
+			}
+
+			try {
+				waitForNextCycle(paused ? interval : getNextWait());
+			} catch (InterruptedException e) {
+				LOGGER.debug("Interrupted; halting.");
+				Thread.currentThread().interrupt();
+				return;
 			}
 		}
 	}
 
 	protected abstract void perform() throws Exception;
 
+	/**
+	 * Wait for the given time to pass, or until {@link #wakeUp()} is called
+	 * (including during the cycle just run).
+	 */
+	private void waitForNextCycle(long wait) throws InterruptedException {
+		wakeSignal.tryAcquire(wait, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * @return how long to wait after a cycle before beginning the next; by
+	 *         default the interval.
+	 */
+	protected long getNextWait() {
+		return interval;
+	}
+
+	/** Called once a failure has paused the thread. */
+	protected void onPausedByError(Exception e) {
+		// Do nothing by default
+	}
+
+	/** Begin the next cycle straight away, rather than waiting out the interval. */
+	protected void wakeUp() {
+		wakeSignal.release();
+	}
+
 	/** Pause the thread. */
-	public synchronized void pause() {
+	public void pause() {
 		LOGGER.debug("Pausing.");
 		this.paused = true;
 	}
 
 	/* Unpause the thread. */
-	public synchronized void unpause() {
+	public void unpause() {
 		LOGGER.debug("Resuming.");
 		this.paused = false;
 	}
 
 	/** Completely halt the thread; should only be used when exiting the app. */
-	public synchronized void doStop() {
+	public void doStop() {
 		this.doStop = true;
+		wakeUp();
 	}
 
-	private synchronized boolean keepRunning() {
+	private boolean keepRunning() {
 		return this.doStop == false;
 	}
 }
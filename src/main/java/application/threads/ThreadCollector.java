@@ -19,6 +19,9 @@ package application.threads;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import application.services.http.HttpService;
 
@@ -35,6 +38,17 @@ public final class ThreadCollector {
 
 	private static HttpService httpServiceInstance;
 
+	/**
+	 * For one-off work that shouldn't hold up the UI thread, e.g. the stages of
+	 * startup; daemon threads, so never keep the app alive by themselves.
+	 */
+	private static final AtomicInteger BACKGROUND_THREAD_COUNT = new AtomicInteger();
+	private static final ExecutorService BACKGROUND_EXECUTOR = Executors.newCachedThreadPool(r -> {
+		Thread thread = new Thread(r, "background-" + BACKGROUND_THREAD_COUNT.incrementAndGet());
+		thread.setDaemon(true);
+		return thread;
+	});
+
 	public static void setHttpService(HttpService httpService) {
 		if (httpServiceInstance == null) {
 			httpServiceInstance = httpService;
@@ -44,7 +58,10 @@ public final class ThreadCollector {
 	}
 
 	public static void stopAllThreads() {
-		updateLoop.doStop();
+		BACKGROUND_EXECUTOR.shutdownNow();
+		if (updateLoop != null) {
+			updateLoop.doStop();
+		}
 		runnables.forEach(l -> l.doStop());
 		if (httpServiceInstance != null) {
 			httpServiceInstance.stop();
@@ -61,7 +78,11 @@ public final class ThreadCollector {
 		return loop;
 	}
 
+	public static ExecutorService getBackgroundExecutor() {
+		return BACKGROUND_EXECUTOR;
+	}
+
 	public static Optional<UpdateRunnable> getUpdateLoop() {
-		return Optional.of(updateLoop);
+		return Optional.ofNullable(updateLoop);
 	}
 }
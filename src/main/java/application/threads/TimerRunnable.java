@@ -74,7 +74,7 @@ public class TimerRunnable extends IntervalRunnable {
 	}
 
 	@Override
-	public synchronized void doStop() {
+	public void doStop() {
 		try {
 			writeFile("");
 		} catch (IOException e) {
@@ -16,58 +16,490 @@
  */
 package application.threads;
 
+import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import application.AppUtil;
 import application.IExceptionHandler;
+import application.IUpdateStatusListener;
 import application.Main;
-import application.exceptions.IllegalFileExtensionException;
+import application.exceptions.ProjectUpdateException;
 import application.models.ConfigHolder;
 import application.models.PropertiesHolder;
+import application.models.SheetsPayload;
+import application.models.UpdateResult;
+import application.models.UpdateStatus;
+import application.services.SheetsClient;
 import application.services.UpdateController;
+import application.services.http.HttpService;
+import lombok.Getter;
 
 /**
  * Meat of the thread running the update loop. Runs continuously based on the
- * updateInterval, but can be triggered "manually" (on next cycle) or
+ * updateInterval, but can be triggered "manually" (immediately) or
  * "automatically" (every cycle), as per the controls in {@link Main}.
+ * 
+ * Any number of projects (configs) can be run at once, each with its own
+ * {@link UpdateController}; projects reading the same spreadsheet share a single
+ * request per cycle through the {@link SheetsClient}.
+ * 
+ * All work - config changes included - happens on the loop's own thread; the
+ * public methods only record what was asked for and wake the loop, so callers
+ * never wait on a fetch that is already in progress. A config that can't be
+ * applied is reported straight away, leaving the other projects be.
+ * 
+ * Each project is looked after on its own: network blips, rate limiting and
+ * Google-side errors when fetching a spreadsheet are retried with backoff for
+ * just the projects reading it (reported as {@link UpdateStatus#DEGRADED}).
+ * Anything else, such as a bad spreadsheetId or a download failing, needs the
+ * user's attention and pauses just that project until it is updated manually
+ * or its config is applied again. Healthy projects keep to the interval.
+ * 
+ * Manual updates asked for before the next cycle begins are all answered by
+ * that one cycle, with an {@link UpdateResult} once its files are written.
  *
  * @author Mark "Grandy" Bishop
  */
 public class UpdateRunnable extends IntervalRunnable {
 	private static final Logger LOGGER = LogManager.getLogger(UpdateRunnable.class);
 
-	private UpdateController updater;
-	private boolean runOnce = false;
+	/** Controllers by config; only ever touched from the loop thread. */
+	private final Map<ConfigHolder, UpdateController> updaters = new LinkedHashMap<>();
+	/** How each project's updates are going; only ever touched from the loop thread. */
+	private final Map<UpdateController, ProjectHealth> health = new HashMap<>();
+	private final SheetsClient sheetsClient;
+	private final Function<ConfigHolder, UpdateController> controllerFactory;
 
-	public UpdateRunnable(IExceptionHandler handler) {
+	/** The manual update asked for since the last cycle began, if any. */
+	private final AtomicReference<ManualUpdate> runOnce = new AtomicReference<>();
+	private final Queue<ConfigChange> configChanges = new ConcurrentLinkedQueue<>();
+
+	private final IExceptionHandler exceptionHandler;
+	private final IUpdateStatusListener statusListener;
+	private final long maxBackoff;
+	@Getter
+	private volatile UpdateStatus status = UpdateStatus.OK;
+	@Getter
+	private volatile String statusDetail = "";
+
+	/** Names of the projects being run, for reporting from other threads. */
+	@Getter
+	private volatile List<String> projectNames = Collections.emptyList();
+
+	public UpdateRunnable(IExceptionHandler handler, IUpdateStatusListener statusListener) {
+		this(handler, statusListener, new SheetsClient(), UpdateController::new);
+	}
+
+	/** Dependency injection, for use in tests. */
+	UpdateRunnable(IExceptionHandler handler, IUpdateStatusListener statusListener, SheetsClient sheetsClient,
+			Function<ConfigHolder, UpdateController> controllerFactory) {
 		super(handler, PropertiesHolder.get().getUpdateInterval());
+		this.exceptionHandler = handler;
+		this.statusListener = statusListener;
+		this.sheetsClient = sheetsClient;
+		this.controllerFactory = controllerFactory;
+		this.maxBackoff = PropertiesHolder.get().getMaxUpdateBackoff();
 	}
 
 	@Override
-	public synchronized void perform() throws Exception {
-		LOGGER.trace("Updater: {}\n" + "Auto update: {}\n" + "RunOnce: {}", this.updater,
-				ConfigHolder.get().isAutoUpdate(), this.runOnce);
-		if (this.updater != null && (ConfigHolder.get().isAutoUpdate() || this.runOnce)) {
-			this.runOnce = false;
-			updater.update();
+	public void perform() throws Exception {
+		ConfigChange change;
+		while ((change = configChanges.poll()) != null) {
+			try {
+				change.apply();
+			} catch (Exception e) {
+				// Nothing a later cycle would fix, so the user is told, but the other projects carry on
+				LOGGER.warn("Unable to apply a change to the projects being run", e);
+				exceptionHandler.handleException(e);
+			}
+		}
+
+		// Always consume the request, so that simultaneous requests collapse into one
+		ManualUpdate manual = this.runOnce.getAndSet(null);
+		long requestedNanos = manual == null ? System.nanoTime() : manual.requestedNanos;
+		long now = System.nanoTime();
+		List<UpdateController> due = updaters.entrySet().stream() //
+				.filter(e -> !healthOf(e.getValue()).unapplied) //
+				.filter(e -> manual != null || (e.getKey().isAutoUpdate() && healthOf(e.getValue()).isDue(now))) //
+				.map(Entry::getValue) //
+				.collect(Collectors.toList());
+		LOGGER.trace("Projects: {}\n" + "Due: {}\n" + "RunOnce: {}", this.updaters.size(), due.size(), manual != null);
+		if (due.isEmpty()) {
+			if (manual != null) {
+				manual.complete(UpdateResult.none(millisSince(requestedNanos)));
+			}
+			return;
+		}
+
+		List<Exception> failures = new ArrayList<>();
+		UpdateResult result = update(due, requestedNanos, failures);
+		reportStatus();
+		if (manual != null) {
+			if (failures.isEmpty()) {
+				manual.complete(result);
+			} else {
+				manual.completeExceptionally(failures.get(0));
+			}
 		}
 	}
 
-	public synchronized void updateConfig(boolean fromScratch) throws IOException, IllegalFileExtensionException {
-		this.unpause();
+	/**
+	 * Fetch each spreadsheet once, and hand it to every project reading it. One
+	 * project failing doesn't hold up the rest; each failure is dealt with for
+	 * just the projects it affects.
+	 * 
+	 * @param requestedNanos
+	 *            when the cycle was asked for, as of {@link System#nanoTime()}
+	 * @param failures
+	 *            filled with the failures met along the way, if any
+	 */
+	private UpdateResult update(List<UpdateController> due, long requestedNanos, List<Exception> failures) {
+		long startedNanos = System.nanoTime();
+		long fetchNanos = 0;
+		Map<String, List<String>> changedCells = new LinkedHashMap<>();
+		for (Entry<String, List<String>> spreadsheet : SheetsClient.groupBySpreadsheet(due).entrySet()) {
+			List<UpdateController> readers = due.stream() //
+					.filter(u -> spreadsheet.getKey().equals(u.getSpreadsheetId())) //
+					.collect(Collectors.toList());
+			SheetsPayload payload;
+			try {
+				long fetchStartedNanos = System.nanoTime();
+				payload = sheetsClient.fetch(spreadsheet.getKey(), spreadsheet.getValue());
+				fetchNanos += System.nanoTime() - fetchStartedNanos;
+			} catch (Exception e) {
+				failures.add(e);
+				// Only failing to hear back from Google is worth retrying by itself
+				if (AppUtil.isTransient(e)) {
+					readers.forEach(u -> retryLater(u, e));
+				} else {
+					readers.forEach(u -> pauseProject(u, e));
+				}
+				continue;
+			}
+			for (UpdateController updater : readers) {
+				try {
+					changedCells.put(updater.getProjectName(), updater.update(payload, spreadsheet.getValue())
+							.stream().map(cu -> cu.getCellWrapper().getName()).collect(Collectors.toList()));
+					healthOf(updater).succeeded(updater.getProjectName());
+				} catch (Exception e) {
+					// e.g. a download failing; these need the user, however network-y they look
+					failures.add(e);
+					pauseProject(updater, e);
+				}
+			}
+		}
+		long totalNanos = System.nanoTime() - startedNanos;
+		return new UpdateResult(changedCells, TimeUnit.NANOSECONDS.toMillis(startedNanos - requestedNanos),
+				TimeUnit.NANOSECONDS.toMillis(fetchNanos), TimeUnit.NANOSECONDS.toMillis(totalNanos - fetchNanos),
+				TimeUnit.NANOSECONDS.toMillis(totalNanos));
+	}
+
+	/** Hold off updating the project for a while, backing off further each time. */
+	private void retryLater(UpdateController updater, Exception e) {
+		ProjectHealth projectHealth = healthOf(updater);
+		int attempt = ++projectHealth.consecutiveFailures;
+		long retryIn = getBackoff(attempt);
+		projectHealth.retryAtNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(retryIn);
+		projectHealth.problem = String.format("attempt %d failed (%s); retrying in %ds", attempt,
+				e.getClass().getSimpleName(), Math.max(1, retryIn / 1000));
+		LOGGER.warn("Update of project '{}' failed (attempt {}); retrying in {}ms: {}", updater.getProjectName(),
+				attempt, retryIn, AppUtil.get().sanitiseApiKey(e.toString()));
+	}
+
+	/** Stop updating the project until the user steps in, and tell them why. */
+	private void pauseProject(UpdateController updater, Exception e) {
+		ProjectHealth projectHealth = healthOf(updater);
+		projectHealth.paused = true;
+		projectHealth.problem = String.format("paused (%s)", e.getClass().getSimpleName());
+		LOGGER.warn("Update of project '{}' failed; pausing it", updater.getProjectName(), e);
+		exceptionHandler.handleException(new ProjectUpdateException(updater.getProjectName(), e));
+	}
+
+	/**
+	 * Doubles the interval per failed attempt, capped at the max backoff, then
+	 * picks a random point in the upper half so that many clients hitting the same
+	 * outage don't all retry in lockstep.
+	 */
+	long getBackoff(int attempt) {
+		long interval = getInterval();
+		long max = Math.max(interval, maxBackoff);
+		// Avoid overflowing the shift for long outages
+		int shift = Math.min(attempt - 1, 30);
+		long ceiling = Math.min(max, interval << shift);
+		long half = ceiling / 2;
+		return half + ThreadLocalRandom.current().nextLong(half + 1);
+	}
+
+	private ProjectHealth healthOf(UpdateController updater) {
+		return this.health.computeIfAbsent(updater, u -> new ProjectHealth());
+	}
 
-		if (this.updater == null) {
-			this.updater = new UpdateController();
+	/** Wake in time for the soonest retry, should it come before the interval is up. */
+	@Override
+	protected long getNextWait() {
+		long now = System.nanoTime();
+		long wait = getInterval();
+		for (Entry<ConfigHolder, UpdateController> updater : this.updaters.entrySet()) {
+			ProjectHealth projectHealth = healthOf(updater.getValue());
+			if (updater.getKey().isAutoUpdate() && !projectHealth.paused && projectHealth.consecutiveFailures > 0) {
+				wait = Math.min(wait, TimeUnit.NANOSECONDS.toMillis(projectHealth.retryAtNanos - now));
+			}
 		}
-		this.updater.setConfig(fromScratch);
+		return Math.max(0, wait);
 	}
 
-	/** Perform a single update, on next update iteration. */
-	public synchronized void runOnce() {
+	private static long millisSince(long nanos) {
+		return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - nanos);
+	}
+
+	/**
+	 * Sum up the health of every project as one status: paused if any project is,
+	 * degraded if any is being retried; the detail says which and why.
+	 */
+	private void reportStatus() {
+		UpdateStatus newStatus = UpdateStatus.OK;
+		List<String> problems = new ArrayList<>();
+		for (UpdateController updater : this.updaters.values()) {
+			ProjectHealth projectHealth = healthOf(updater);
+			if (projectHealth.paused || projectHealth.unapplied) {
+				newStatus = UpdateStatus.PAUSED;
+			} else if (projectHealth.consecutiveFailures > 0 && UpdateStatus.OK.equals(newStatus)) {
+				newStatus = UpdateStatus.DEGRADED;
+			}
+			if (projectHealth.problem != null) {
+				problems.add(String.format("'%s': %s", updater.getProjectName(), projectHealth.problem));
+			}
+		}
+		String detail = String.join("\n", problems);
+		if (!newStatus.equals(this.status) || !detail.equals(this.statusDetail)) {
+			setStatus(newStatus, detail);
+		}
+	}
+
+	@Override
+	protected void onPausedByError(Exception e) {
+		setStatus(UpdateStatus.PAUSED, "");
+	}
+
+	private void setStatus(UpdateStatus status, String detail) {
+		this.status = status;
+		this.statusDetail = detail;
+		statusListener.handleUpdateStatus(status, detail);
+	}
+
+	/**
+	 * Apply the config, adding it as a project only once it has been applied. A
+	 * project already running whose new config can't be applied (or read again)
+	 * keeps serving what it had, but isn't updated again until a config is; the
+	 * user is told either way.
+	 * 
+	 * @param reload
+	 *            whether to read the config's file again first
+	 */
+	private void applyConfig(ConfigHolder configHolder, boolean fromScratch, boolean reload) throws Exception {
+		UpdateController existing = this.updaters.get(configHolder);
+		try {
+			if (reload) {
+				configHolder.reload();
+			}
+			// Projects are told apart by name, in both the files folder and the urls
+			String projectName = configHolder.getProjectName();
+			for (ConfigHolder other : this.updaters.keySet()) {
+				if (other != configHolder && projectName.equals(other.getProjectName())) {
+					throw new IllegalArgumentException(
+							"A project named '" + projectName + "' is already loaded; project names must be unique");
+				}
+			}
+			UpdateController updater = existing != null ? existing : this.controllerFactory.apply(configHolder);
+			updater.setConfig(fromScratch);
+			this.updaters.put(configHolder, updater);
+			// A fresh start for a project that had been failing
+			this.health.remove(updater);
+		} catch (Exception e) {
+			if (existing == null) {
+				throw e;
+			}
+			ProjectHealth projectHealth = healthOf(existing);
+			projectHealth.unapplied = true;
+			projectHealth.problem = String.format("config not applied (%s)", e.getClass().getSimpleName());
+			throw new ProjectUpdateException(existing.getProjectName(), e);
+		} finally {
+			updateProjectNames();
+			reportStatus();
+		}
+	}
+
+	private void removeProject(ConfigHolder configHolder) {
+		UpdateController removed = this.updaters.remove(configHolder);
+		if (removed != null) {
+			removed.close();
+			this.health.remove(removed);
+		}
+		updateProjectNames();
+		reportStatus();
+	}
+
+	private void updateProjectNames() {
+		List<String> names = new ArrayList<>();
+		this.updaters.values().forEach(u -> names.add(u.getProjectName()));
+		this.projectNames = Collections.unmodifiableList(names);
+	}
+
+	/**
+	 * Apply the given loaded config at the start of the next cycle, which begins
+	 * immediately, adding it as a project if it isn't already running. Any errors
+	 * are passed to the exception handler.
+	 * 
+	 * @param fromScratch
+	 *            whether to also wipe the cache and output files
+	 */
+	public void updateConfig(ConfigHolder configHolder, boolean fromScratch) {
+		queueConfigChange(() -> applyConfig(configHolder, fromScratch, false));
+	}
+
+	/**
+	 * Read the given config file into its holder, then apply it as
+	 * {@link #updateConfig} does; read on the loop's thread, so the holder never
+	 * changes while a cycle is using it.
+	 * 
+	 * @return completed once the file has been read, before it's applied; should
+	 *         reading it fail, it's up to the caller to say so
+	 */
+	public CompletableFuture<Void> loadConfig(ConfigHolder configHolder, File file) {
+		CompletableFuture<Void> loaded = new CompletableFuture<>();
+		queueConfigChange(() -> {
+			try {
+				configHolder.loadFile(file);
+			} catch (Exception e) {
+				loaded.completeExceptionally(e);
+				return;
+			}
+			loaded.complete(null);
+			applyConfig(configHolder, true, false);
+		});
+		return loaded;
+	}
+
+	/** Stop updating (and serving) the given config's project. */
+	public void removeConfig(ConfigHolder configHolder) {
+		queueConfigChange(() -> removeProject(configHolder));
+	}
+
+	/**
+	 * Bind the webserver straight away (in the background), rather than waiting
+	 * for the first config; it then stays bound for good. Should it fail, e.g. as
+	 * the port is taken, the user is told directly; no update would fix it.
+	 */
+	public void startHttpService() {
+		ThreadCollector.getBackgroundExecutor().execute(() -> {
+			try {
+				HttpService.getInstance().start();
+			} catch (Exception e) {
+				LOGGER.error("Unable to start the webserver", e);
+				exceptionHandler.handleException(new IOException(
+						"Unable to start the webserver, so nothing can be served; is another program using its port? "
+								+ e.getMessage(),
+						e));
+			}
+		});
+	}
+
+	/** Re-read every project's config file from disk, starting each anew. */
+	public void reloadAll() {
+		queueConfigChange(() -> reload(new ArrayList<>(this.updaters.keySet())));
+	}
+
+	/**
+	 * Re-read the given configs from disk, starting each anew, whether or not it
+	 * is running yet. Each is applied on its own, so one broken config doesn't
+	 * hold back the rest; any that can't be are reported project by project.
+	 */
+	public void reload(List<ConfigHolder> configHolders) {
+		configHolders.forEach(h -> queueConfigChange(() -> applyConfig(h, true, true)));
+	}
+
+	/** Turn automatic updating on or off for every project. */
+	public void setAutoUpdate(boolean autoUpdate) {
+		queueConfigChange(() -> {
+			this.updaters.keySet().forEach(h -> h.setAutoUpdate(autoUpdate));
+			statusListener.handleAutoUpdateChange(autoUpdate);
+		});
+	}
+
+	private void queueConfigChange(ConfigChange change) {
+		this.configChanges.add(change);
+		this.unpause();
+		wakeUp();
+	}
+
+	/**
+	 * Perform a single update, immediately; coalesced with any pending request.
+	 * 
+	 * @return completed once the update has been written out (or has failed);
+	 *         shared by everyone asking before it begins
+	 */
+	public CompletableFuture<UpdateResult> runOnce() {
 		this.unpause();
-		LOGGER.debug("Updating on next tick...");
-		this.runOnce = true;
+		LOGGER.debug("Updating now...");
+		ManualUpdate update = this.runOnce.updateAndGet(pending -> pending == null ? new ManualUpdate() : pending);
+		wakeUp();
+		return update;
+	}
+
+	/** A manual update, answered by the next cycle to begin. */
+	private static final class ManualUpdate extends CompletableFuture<UpdateResult> {
+		private final long requestedNanos = System.nanoTime();
+	}
+
+	/** How a project's updates are going. */
+	private static final class ProjectHealth {
+		/** Failed attempts in a row that are worth retrying. */
+		private int consecutiveFailures;
+		/** When the next retry is due, as of {@link System#nanoTime()}. */
+		private long retryAtNanos;
+		/** Whether the project needs the user's attention before updating again. */
+		private boolean paused;
+		/** Whether its latest config couldn't be applied; not updated until one is. */
+		private boolean unapplied;
+		/** What went wrong last, for the user's benefit; null if nothing. */
+		private String problem;
+
+		private boolean isDue(long now) {
+			return !paused && (consecutiveFailures == 0 || now - retryAtNanos >= 0);
+		}
+
+		private void succeeded(String projectName) {
+			if (consecutiveFailures > 0 || paused) {
+				LOGGER.info("Project '{}' recovered after {} failed attempt(s)", projectName,
+						Math.max(1, consecutiveFailures));
+			}
+			consecutiveFailures = 0;
+			paused = false;
+			problem = null;
+		}
+	}
+
+	/** A change to the projects being run, applied from the loop thread. */
+	@FunctionalInterface
+	private interface ConfigChange {
+		void apply() throws Exception;
 	}
 }
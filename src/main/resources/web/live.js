@@ -0,0 +1,185 @@
+/**
+ * live.js is part of the "SheetsIO" project (c) by Mark "Grandy" Bishop, 2021.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * Keeps a browser source up to date without reloading it; listens for changes
+ * to its cell, over a WebSocket or failing that server-sent events, and patches
+ * the new value straight into the page. Anything that can't be patched in place
+ * (e.g. the page was empty, or the config reloaded) reloads the page instead.
+ *
+ * On a scene, it listens for changes to the whole project, and patches each
+ * element with a 'data-cell' attribute; those of a scene's own template are
+ * first filled in with the values the page was served with.
+ *
+ * Browsers with neither fall back to asking for the page's etag with a HEAD
+ * request every second, reloading when it changes (as livejs.com's live.js did).
+ */
+(function () {
+	var RETRY_MILLIS = 1000;
+	var POLL_MILLIS = 1000;
+	var EMPTY_IMG_SRC = "data:image/gif;base64,R0lGODlhAQABAIAAAP///wAAACH5BAEAAAAALAAAAAABAAEAAAICRAEAOw==";
+
+	var script = document.currentScript || document.querySelector("script[data-version]");
+	var version = Number(script.getAttribute("data-version")) || 0;
+	var file = script.getAttribute("data-file") || "";
+	var webSocketPort = Number(script.getAttribute("data-ws-port")) || 0;
+	var scene = script.getAttribute("data-scene");
+	var path = location.pathname.replace(/\/+$/, "");
+	var asset = decodeURIComponent(path.substring(path.lastIndexOf("/") + 1));
+	// A scene's cells, by name: the src each was served with, and its local file
+	var cells = scene ? JSON.parse(document.getElementById("sheetsio-scene").textContent).cells : {};
+
+	/**
+	 * @param url
+	 *            the url of our own copy of the value, if the change came with one
+	 * @return the src for the given value, as the server would have given it.
+	 */
+	function srcFor(value, file, url) {
+		if (url) {
+			// Our own copy, asked for at the same size as the page's was
+			var query = file.indexOf("?");
+			return query === -1 ? url : url + (url.indexOf("?") === -1 ? "?" : "&") + file.substring(query + 1);
+		}
+		if (value.indexOf("file://") !== -1) {
+			// Served by us under the same name (at the same size); the version makes sure it's refetched
+			return file + (file.indexOf("?") === -1 ? "?" : "&") + "v=" + version;
+		}
+		return value.trim();
+	}
+
+	/**
+	 * @return whether what shows a value within the given element (or, for an
+	 *         element of a scene, the element itself) could be changed to show
+	 *         the new value in place.
+	 */
+	function patch(root, value, file, url, isCell) {
+		var target = root.querySelector("#text, .text, video, img, iframe") || (isCell ? root : null);
+		if (!target) {
+			return false;
+		}
+		switch (target.tagName) {
+		case "VIDEO":
+			(target.querySelector("source") || target).src = srcFor(value, file, url);
+			target.load();
+			break;
+		case "IMG":
+			target.src = srcFor(value, file, url) || EMPTY_IMG_SRC;
+			break;
+		case "IFRAME":
+			target.src = value;
+			break;
+		default:
+			target.innerHTML = value;
+		}
+		return true;
+	}
+
+	/** Patch every element of the scene showing one of the given cells. */
+	function patchScene(values, urls) {
+		var elements = document.querySelectorAll("[data-cell]");
+		for (var i = 0; i < elements.length; i++) {
+			var name = elements[i].getAttribute("data-cell");
+			if (values.hasOwnProperty(name)) {
+				patch(elements[i], values[name], cells[name] ? cells[name].file : "", urls[name], true);
+			}
+		}
+	}
+
+	function handle(event, data) {
+		if (event === "change") {
+			version = data.version;
+			var urls = data.urls || {};
+			if (scene) {
+				patchScene(data.values, urls);
+				return;
+			}
+			if (!data.values.hasOwnProperty(asset) || patch(document, data.values[asset], file, urls[asset], false)) {
+				return;
+			}
+		}
+		location.reload();
+	}
+
+	function eventsUrl() {
+		// A scene hears about every cell of its project
+		return (scene ? path.substring(0, path.indexOf("/", 1)) : path) + "/_events?since=" + version;
+	}
+
+	function listenForEvents() {
+		var events = new EventSource(eventsUrl());
+		["change", "reload"].forEach(function (event) {
+			events.addEventListener(event, function (e) {
+				handle(event, JSON.parse(e.data));
+			});
+		});
+	}
+
+	function listenOnWebSocket() {
+		var socket = new WebSocket("ws://" + location.hostname + ":" + webSocketPort + eventsUrl());
+		var opened = false;
+		socket.onopen = function () {
+			opened = true;
+		};
+		socket.onmessage = function (e) {
+			var data = JSON.parse(e.data);
+			handle(data.event, data);
+		};
+		socket.onclose = function () {
+			if (opened) {
+				// Dropped; reconnect, catching up from the version we have
+				setTimeout(listenOnWebSocket, RETRY_MILLIS);
+			} else {
+				listenForEvents();
+			}
+		};
+	}
+
+	function pollHead() {
+		var etag = null;
+		setInterval(function () {
+			var request = new XMLHttpRequest();
+			request.open("HEAD", location.href);
+			request.onload = function () {
+				var latest = request.getResponseHeader("etag");
+				if (etag !== null && latest !== etag) {
+					location.reload();
+				}
+				etag = latest;
+			};
+			request.send();
+		}, POLL_MILLIS);
+	}
+
+	if (scene && script.hasAttribute("data-fill")) {
+		document.addEventListener("DOMContentLoaded", function () {
+			var values = {};
+			Object.keys(cells).forEach(function (name) {
+				values[name] = cells[name].src;
+			});
+			// Their srcs are already our own copies, where we have them
+			patchScene(values, {});
+		});
+	}
+
+	if (webSocketPort && window.WebSocket) {
+		listenOnWebSocket();
+	} else if (window.EventSource) {
+		listenForEvents();
+	} else {
+		pollHead();
+	}
+})();
@@ -18,11 +18,26 @@ package application;
 
 import static org.junit.jupiter.api.Assertions.fail;
 
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.BindException;
+import java.net.ConnectException;
 import java.net.MalformedURLException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLHandshakeException;
+import javax.net.ssl.SSLPeerUnverifiedException;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import application.exceptions.GoogleSheetsException;
+import application.exceptions.IllegalFileExtensionException;
+
 public class AppUtilTest {
 
 	@Test
@@ -60,6 +75,52 @@ public class AppUtilTest {
 		Assertions.assertEquals(AppUtil.encodeUrlContent("This.has-a mix"), "This%2Ehas%2Da%20mix");
 	}
 
+	@Test
+	public void test_toBatchRanges() {
+		Assertions.assertEquals("ranges=%27Teams%27&ranges=%27Team%20Scores%27",
+				AppUtil.toBatchRanges(Arrays.asList("Teams", "Team Scores")));
+	}
+
+	@Test
+	public void test_toBatchRanges_namesLikeRanges() {
+		// Quoted, so each is read as the whole of a worksheet by that name
+		Assertions.assertEquals("ranges=%27A1%27&ranges=%27Sheet1%21B2%27&ranges=%27Grandy%27%27s%27",
+				AppUtil.toBatchRanges(Arrays.asList("A1", "Sheet1!B2", "Grandy's")));
+	}
+
+	@Test
+	public void test_isTransient_networkErrors() {
+		Assertions.assertTrue(AppUtil.isTransient(new UnknownHostException("sheets.googleapis.com")));
+		Assertions.assertTrue(AppUtil.isTransient(new ConnectException("Connection refused")));
+		Assertions.assertTrue(AppUtil.isTransient(new SocketTimeoutException("Read timed out")));
+		Assertions.assertTrue(AppUtil.isTransient(new IOException("Wrapped", new UnknownHostException())));
+	}
+
+	@Test
+	public void test_isTransient_sslErrors() {
+		Assertions.assertTrue(AppUtil.isTransient(new SSLException("Connection reset", new SocketException("Connection reset"))));
+		Assertions.assertTrue(AppUtil.isTransient(new SSLException("Truncated", new EOFException())));
+		Assertions.assertFalse(AppUtil.isTransient(new SSLHandshakeException("PKIX path building failed")));
+		Assertions.assertFalse(AppUtil.isTransient(new SSLPeerUnverifiedException("peer not authenticated")));
+		Assertions.assertFalse(AppUtil.isTransient(new SSLException("Unsupported record version")));
+	}
+
+	@Test
+	public void test_isTransient_googleErrors() {
+		Assertions.assertTrue(AppUtil.isTransient(new GoogleSheetsException("url", 429, "message", "status")));
+		Assertions.assertTrue(AppUtil.isTransient(new GoogleSheetsException("url", 503, "message", "status")));
+		Assertions.assertFalse(AppUtil.isTransient(new GoogleSheetsException("url", 400, "message", "status")));
+		Assertions.assertFalse(AppUtil.isTransient(new GoogleSheetsException("url", 403, "message", "status")));
+	}
+
+	@Test
+	public void test_isTransient_configErrors() {
+		Assertions.assertFalse(AppUtil.isTransient(new IllegalFileExtensionException("bad")));
+		Assertions.assertFalse(AppUtil.isTransient(new MalformedURLException("bad")));
+		Assertions.assertFalse(AppUtil.isTransient(new IOException("Unable to create folder")));
+		Assertions.assertFalse(AppUtil.isTransient(new BindException("Address already in use")));
+	}
+
 	private void assertNoEncodeForUrlIssues(String url) {
 		try {
 			AppUtil.encodeForUrl(url);
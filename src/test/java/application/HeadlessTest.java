@@ -0,0 +1,61 @@
+/**
+ * HttpServiceTest.java is part of the "SheetsIO" project (c) by Mark "Grandy" Bishop, 2021.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package application;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import application.models.PropertiesHolder;
+
+public class HeadlessTest {
+	private String lastConfig;
+	private String extraConfigs;
+
+	@BeforeEach
+	public void setUp() {
+		lastConfig = PropertiesHolder.get().getProperty(PropertiesHolder.LAST_CONFIG);
+		extraConfigs = PropertiesHolder.get().getProperty(PropertiesHolder.EXTRA_CONFIGS);
+	}
+
+	@AfterEach
+	public void tearDown() {
+		PropertiesHolder.get().setProperty(PropertiesHolder.LAST_CONFIG, lastConfig);
+		PropertiesHolder.get().setProperty(PropertiesHolder.EXTRA_CONFIGS, extraConfigs);
+	}
+
+	@Test
+	public void test_getConfigPathsFromProperties() {
+		PropertiesHolder.get().setProperty(PropertiesHolder.LAST_CONFIG, "C:/configs/stage1.json");
+		PropertiesHolder.get().setProperty(PropertiesHolder.EXTRA_CONFIGS, "C:/configs/stage2.json; ;C:/configs/stage3.json");
+
+		Assertions.assertEquals(
+				Arrays.asList("C:/configs/stage1.json", "C:/configs/stage2.json", "C:/configs/stage3.json"),
+				Headless.getConfigPathsFromProperties());
+	}
+
+	@Test
+	public void test_getConfigPathsFromProperties_noLastConfig() {
+		PropertiesHolder.get().setProperty(PropertiesHolder.LAST_CONFIG, "");
+		PropertiesHolder.get().setProperty(PropertiesHolder.EXTRA_CONFIGS, "C:/configs/stage2.json");
+
+		Assertions.assertEquals(Arrays.asList("C:/configs/stage2.json"), Headless.getConfigPathsFromProperties());
+	}
+}
@@ -55,4 +55,12 @@ class GoogleSheetsExceptionTest {
 		Assertions.assertEquals(ex.getStatus(),
 				"Unable to parse response from Google - expected json but received the following");
 	}
+
+	@Test
+	void test_invalidError_usesResponseCode() {
+		GoogleSheetsException ex = GoogleSheetsException.fromJsonString(url, 502, invalidError);
+
+		Assertions.assertEquals(ex.getCode(), 502);
+		Assertions.assertTrue(ex.isTransient());
+	}
 }
@@ -27,13 +27,14 @@ public class CellDataTest {
 	public void test_equality() throws Exception {
 		// Especially important as we hit this in {@link SheetCache} with Map keys
 
-		CellWrapper data1 = CellWrapper.fromGoogleCoord(1, 3);
+		CellWrapper data1 = new CellWrapper(new Cell("Other", "'Sheet1'!B4"));
 		Cell cell = new Cell("Test", "B4");
-		CellWrapper data2 = new CellWrapper(cell);
+		CellWrapper data2 = new CellWrapper(cell, "Sheet1");
 
 		Assertions.assertEquals(1, data2.getCol());
 		Assertions.assertEquals(3, data2.getRow());
 		Assertions.assertTrue(data1.equals(data2), "Expected data1 to equal data2");
+		Assertions.assertFalse(data1.equals(new CellWrapper(cell, "Sheet2")), "Expected worksheets to differ");
 	}
 
 	@Test
@@ -45,13 +46,4 @@ public class CellDataTest {
 		Assertions.assertEquals(5, data.getCol());
 		Assertions.assertEquals(6, data.getRow());
 	}
-
-	@Test
-	public void test_constructor_fromInts() {
-		CellWrapper data = CellWrapper.fromGoogleCoord(5, 6);
-
-		Assertions.assertEquals("N/A", data.getCoordString()); // not calculated as not needed
-		Assertions.assertEquals(5, data.getCol());
-		Assertions.assertEquals(6, data.getRow());
-	}
 }
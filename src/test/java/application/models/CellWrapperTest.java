@@ -58,6 +58,32 @@ public class CellWrapperTest {
 		Assertions.assertEquals("RG1552", coord.getCoordString());
 	}
 
+	@Test
+	void test_worksheetQualified() throws Exception {
+		CellWrapper coord = new CellWrapper(createCell("Scores!B4"), "Sheet1");
+		Assertions.assertEquals("Scores", coord.getWorksheet());
+		Assertions.assertEquals(1, coord.getCol());
+		Assertions.assertEquals(3, coord.getRow());
+		Assertions.assertEquals("B4", coord.getCoordString());
+		Assertions.assertEquals("Scores!B4", coord.getCell());
+	}
+
+	@Test
+	void test_worksheetQuoted() throws Exception {
+		CellWrapper coord = new CellWrapper(createCell("'Team Stats'!C2"), "Sheet1");
+		Assertions.assertEquals("Team Stats", coord.getWorksheet());
+		Assertions.assertEquals("C2", coord.getCoordString());
+	}
+
+	@Test
+	void test_worksheetDefault() throws Exception {
+		CellWrapper coord = new CellWrapper(createCell("B4"), "Sheet1");
+		Assertions.assertEquals("Sheet1", coord.getWorksheet());
+		// Unqualified refs on the default sheet are the same cell as qualified ones
+		Assertions.assertEquals(new CellWrapper(createCell("Sheet1!B4"), "Other"), coord);
+		Assertions.assertNotEquals(new CellWrapper(createCell("Other!B4"), "Sheet1"), coord);
+	}
+
 	private Cell createCell(String ref) {
 		return new CellBuilder().withName(ref).withCell(ref).build();
 	}
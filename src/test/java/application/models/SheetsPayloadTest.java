@@ -0,0 +1,72 @@
+/**
+ * SheetsPayloadTest.java is part of the "SheetsIO" project (c) by Mark "Grandy" Bishop, 2021.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package application.models;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import application.models.json.GoogleSheetsBatchResponse;
+import application.models.json.GoogleSheetsResponse;
+
+public class SheetsPayloadTest {
+	private static final String RESPONSE = "{\"range\": \"Sheet1!A1:B2\", \"majorDimension\": \"COLUMNS\", "
+			+ "\"values\": [[\"a1\", \"a2\"], [\"b1\"]]}";
+
+	@Test
+	public void test_isSameAs_identicalBody() throws Exception {
+		Assertions.assertTrue(read(RESPONSE).isSameAs(read(RESPONSE).getFingerprint()));
+	}
+
+	@Test
+	public void test_isSameAs_differentBody() throws Exception {
+		Assertions.assertFalse(read(RESPONSE).isSameAs(read(RESPONSE.replace("b1", "b1!")).getFingerprint()));
+	}
+
+	@Test
+	public void test_isSameAs_null() throws Exception {
+		Assertions.assertFalse(read(RESPONSE).isSameAs(null));
+	}
+
+	@Test
+	public void test_parse() throws Exception {
+		GoogleSheetsResponse data = read(RESPONSE).parse(GoogleSheetsResponse.class);
+
+		Assertions.assertEquals("a2", data.getValue(0, 1));
+		Assertions.assertEquals("b1", data.getValue(1, 0));
+		Assertions.assertNull(data.getValue(1, 1));
+	}
+
+	@Test
+	public void test_parse_batch() throws Exception {
+		String batch = "{\"spreadsheetId\": \"abc\", \"valueRanges\": [" + RESPONSE + ", "
+				+ RESPONSE.replace("a1", "scores a1") + "]}";
+		Map<String, GoogleSheetsResponse> data = read(batch).parse(GoogleSheetsBatchResponse.class)
+				.byWorksheet(Arrays.asList("Teams", "Scores"));
+
+		Assertions.assertEquals("a1", data.get("Teams").getValue(0, 0));
+		Assertions.assertEquals("scores a1", data.get("Scores").getValue(0, 0));
+	}
+
+	private SheetsPayload read(String body) throws Exception {
+		return SheetsPayload.read(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+	}
+}
@@ -0,0 +1,42 @@
+/**
+ * CellTest.java is part of the "SheetsIO" project (c) by Mark "Grandy" Bishop, 2021.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package application.models.json;
+
+import javax.validation.Validation;
+import javax.validation.Validator;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class CellTest {
+	private final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+	@Test
+	public void test_validate_worksheetQualifier() {
+		Assertions.assertTrue(isValid("B4"));
+		Assertions.assertTrue(isValid("Scores!B4"));
+		Assertions.assertTrue(isValid("'My Scores'!B4"));
+
+		Assertions.assertFalse(isValid("!B4"));
+		Assertions.assertFalse(isValid(" !B4"));
+		Assertions.assertFalse(isValid("''!B4"));
+	}
+
+	private boolean isValid(String ref) {
+		return validator.validate(new CellBuilder().withName("name").withCell(ref).build()).isEmpty();
+	}
+}
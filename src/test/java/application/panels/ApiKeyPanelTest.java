@@ -20,6 +20,10 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
 
 import org.greenrobot.eventbus.EventBus;
 import org.junit.jupiter.api.AfterEach;
@@ -63,6 +67,12 @@ public class ApiKeyPanelTest {
 		testee = new ApiKeyPanel(props, util);
 		testee.setGui(gui);
 		testee.setApp(ops);
+		// Run 'background' and UI work immediately, on the test's thread
+		testee.setExecutor(Runnable::run);
+		Mockito.doAnswer(invocation -> {
+			((Runnable) invocation.getArguments()[0]).run();
+			return null;
+		}).when(ops).runLater(Mockito.any(Runnable.class));
 
 		when(ops.getEventBus()).thenReturn(eventBus);
 		when(props.getProperty(PropertiesHolder.API_KEY)).thenReturn(SAMPLE_KEY);
@@ -93,7 +103,75 @@ public class ApiKeyPanelTest {
 				.getGoogleSheetsData(String.format(AppUtil.SPREADSHEET_URL_FORMAT, SAMPLE_ID, SAMPLE_BOOK, SAMPLE_KEY));
 
 		// Success
-		verifyUpdateUI(ApiKeyStatus.LOADED, false);
+		verifyUpdateUI(ApiKeyStatus.CHECKING, ApiKeyStatus.LOADED);
+	}
+
+	@Test
+	public void test_handleSetApiKeyPress_validKeyOnlyCheckedOnce() throws IOException, GoogleSheetsException {
+		testee.handleSetApiKeyPress(SAMPLE_KEY);
+		testee.handleSetApiKeyPress(SAMPLE_KEY);
+
+		verify(props, Mockito.times(2)).setProperty(PropertiesHolder.API_KEY, SAMPLE_KEY);
+		verify(props, Mockito.times(2)).flush();
+		verify(props, Mockito.times(2)).getProperty(PropertiesHolder.API_KEY_TEST_SPREADSHEET_ID);
+		verify(props, Mockito.times(2)).getProperty(PropertiesHolder.API_KEY_TEST_WORKBOOK_ID);
+		verify(util, Mockito.times(1))
+				.getGoogleSheetsData(String.format(AppUtil.SPREADSHEET_URL_FORMAT, SAMPLE_ID, SAMPLE_BOOK, SAMPLE_KEY));
+
+		verify(gui, Mockito.times(2)).setCircle(ApiKeyStatus.CHECKING);
+		verify(gui, Mockito.times(2)).setCircle(ApiKeyStatus.LOADED);
+		verify(gui, Mockito.times(2)).showHelpLink(true);
+		verify(gui, Mockito.times(2)).showHelpLink(false);
+	}
+
+	@Test
+	public void test_handleSetApiKeyPress_invalidKeyCheckedAgain() throws IOException, GoogleSheetsException {
+		Mockito.when(util.getGoogleSheetsData(Mockito.any()))
+				.thenThrow(new GoogleSheetsException("url", 1, "message", "status"));
+		testee.handleSetApiKeyPress(SAMPLE_KEY);
+		testee.handleSetApiKeyPress(SAMPLE_KEY);
+
+		verify(props, Mockito.times(2)).setProperty(PropertiesHolder.API_KEY, SAMPLE_KEY);
+		verify(props, Mockito.times(2)).flush();
+		verify(props, Mockito.times(2)).getProperty(PropertiesHolder.API_KEY_TEST_SPREADSHEET_ID);
+		verify(props, Mockito.times(2)).getProperty(PropertiesHolder.API_KEY_TEST_WORKBOOK_ID);
+		verify(util, Mockito.times(2))
+				.getGoogleSheetsData(String.format(AppUtil.SPREADSHEET_URL_FORMAT, SAMPLE_ID, SAMPLE_BOOK, SAMPLE_KEY));
+
+		verify(gui, Mockito.times(2)).setCircle(ApiKeyStatus.CHECKING);
+		verify(gui, Mockito.times(2)).setCircle(ApiKeyStatus.ERROR);
+		verify(gui, Mockito.times(4)).showHelpLink(true);
+		verify(gui, Mockito.times(2)).showErrorDialog(Mockito.anyString(), Mockito.anyString());
+	}
+
+	@Test
+	public void test_handleSetApiKeyPress_earlierCheckFinishingLastIgnored() throws IOException, GoogleSheetsException {
+		String badKey = "654321";
+		String badUrl = String.format(AppUtil.SPREADSHEET_URL_FORMAT, SAMPLE_ID, SAMPLE_BOOK, badKey);
+		Mockito.when(util.getGoogleSheetsData(badUrl)).thenThrow(new GoogleSheetsException("url", 1, "message", "status"));
+		List<Runnable> checks = new ArrayList<>();
+		testee.setExecutor(checks::add);
+
+		testee.handleSetApiKeyPress(SAMPLE_KEY);
+		testee.handleSetApiKeyPress(badKey);
+		// The second key's check finishes first; the first key's is then too late to count
+		checks.get(1).run();
+		checks.get(0).run();
+
+		verify(props).setProperty(PropertiesHolder.API_KEY, SAMPLE_KEY);
+		verify(props).setProperty(PropertiesHolder.API_KEY, badKey);
+		verify(props, Mockito.times(2)).flush();
+		verify(props, Mockito.times(2)).getProperty(PropertiesHolder.API_KEY_TEST_SPREADSHEET_ID);
+		verify(props, Mockito.times(2)).getProperty(PropertiesHolder.API_KEY_TEST_WORKBOOK_ID);
+		verify(util)
+				.getGoogleSheetsData(String.format(AppUtil.SPREADSHEET_URL_FORMAT, SAMPLE_ID, SAMPLE_BOOK, SAMPLE_KEY));
+		verify(util).getGoogleSheetsData(badUrl);
+
+		verify(gui, Mockito.times(2)).setCircle(ApiKeyStatus.CHECKING);
+		verify(gui).setCircle(ApiKeyStatus.ERROR);
+		verify(gui, Mockito.never()).setCircle(ApiKeyStatus.LOADED);
+		verify(gui, Mockito.times(3)).showHelpLink(true);
+		verify(gui).showErrorDialog(Mockito.anyString(), Mockito.anyString());
 	}
 
 	@Test
@@ -116,7 +194,7 @@ public class ApiKeyPanelTest {
 				.getGoogleSheetsData(String.format(AppUtil.SPREADSHEET_URL_FORMAT, SAMPLE_ID, SAMPLE_BOOK, SAMPLE_KEY));
 
 		// Fail
-		verifyUpdateUI(ApiKeyStatus.ERROR, true);
+		verifyUpdateUI(ApiKeyStatus.CHECKING, ApiKeyStatus.ERROR);
 		verify(gui).showErrorDialog("1 - status", "url\n\nmessage\n" + BasePanel.GENERIC_ERROR_END);
 
 	}
@@ -134,17 +212,23 @@ public class ApiKeyPanelTest {
 		verify(props).flush();
 
 		// Fail
-		verifyUpdateUI(ApiKeyStatus.MISSING, true);
+		verifyUpdateUI(ApiKeyStatus.MISSING);
 		verify(gui).showErrorDialog("No apiKey given", "Please provide an apiKey");
 
 	}
 
-	private void verifyUpdateUI(ApiKeyStatus status, boolean helpLinkEnabled) {
+	/** Verify the UI went through each of the given statuses, in order. */
+	private void verifyUpdateUI(ApiKeyStatus... statuses) {
 		ArgumentCaptor<ApiKeySetEvent> arg = ArgumentCaptor.forClass(ApiKeySetEvent.class);
-		verify(eventBus).post(arg.capture());
-		Assertions.assertEquals(status, arg.getValue().getStatus());
-
-		verify(gui).setCircle(status);
-		verify(gui).showHelpLink(helpLinkEnabled);
+		verify(eventBus, Mockito.times(statuses.length)).post(arg.capture());
+		Assertions.assertEquals(Arrays.asList(statuses),
+				arg.getAllValues().stream().map(ApiKeySetEvent::getStatus).collect(Collectors.toList()));
+
+		long withHelpLink = Arrays.stream(statuses).filter(s -> !ApiKeyStatus.LOADED.equals(s)).count();
+		for (ApiKeyStatus status : statuses) {
+			verify(gui).setCircle(status);
+		}
+		verify(gui, Mockito.times((int) withHelpLink)).showHelpLink(true);
+		verify(gui, Mockito.times(statuses.length - (int) withHelpLink)).showHelpLink(false);
 	}
 }
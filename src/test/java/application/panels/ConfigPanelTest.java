@@ -21,9 +21,12 @@ import static org.mockito.Mockito.when;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
 
 import org.greenrobot.eventbus.EventBus;
 import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
@@ -34,6 +37,7 @@ import application.AppUtil;
 import application.IApplicationOps;
 import application.models.ConfigHolder;
 import application.models.PropertiesHolder;
+import application.models.UpdateStatus;
 import application.services.FileIO;
 import application.services.FileUpdater;
 import application.threads.UpdateRunnable;
@@ -74,6 +78,12 @@ public class ConfigPanelTest {
 		testee.setGui(gui);
 
 		testee.setApp(app);
+		// Run 'background' and UI work immediately, on the test's thread
+		testee.setExecutor(Runnable::run);
+		Mockito.doAnswer(invocation -> {
+			((Runnable) invocation.getArguments()[0]).run();
+			return null;
+		}).when(app).runLater(Mockito.any(Runnable.class));
 		when(app.getEventBus()).thenReturn(eventBus);
 		when(file.getAbsolutePath()).thenReturn(FILE_PATH);
 		when(file.getAbsoluteFile()).thenReturn(file);
@@ -94,6 +104,23 @@ public class ConfigPanelTest {
 		verify(fileIO).createFolder(FileUpdater.FOLDER_PREFIX);
 		verify(fileIO).createFolder(ConfigPanel.TEMP_FOLDER);
 		verify(props).getProperty(PropertiesHolder.LAST_CONFIG);
+		verify(props).getExtraConfigs();
+		verify(updateRunnable).startHttpService();
+	}
+
+	@Test
+	public void test_initialise_extraConfigMissing() throws IOException {
+		when(props.getExtraConfigs()).thenReturn(Arrays.asList("doesNotExist.json"));
+
+		testee.initialise();
+		verify(gui).init();
+		verify(fileIO).createFolder(ConfigPanel.LOGS_FOLDER);
+		verify(fileIO).createFolder(FileUpdater.FOLDER_PREFIX);
+		verify(fileIO).createFolder(ConfigPanel.TEMP_FOLDER);
+		verify(props).getProperty(PropertiesHolder.LAST_CONFIG);
+		verify(props).getExtraConfigs();
+		verify(updateRunnable).startHttpService();
+		verify(gui).showErrorDialog(Mockito.anyString(), Mockito.anyString());
 	}
 
 	@Test
@@ -105,14 +132,16 @@ public class ConfigPanelTest {
 		verify(fileIO).createFolder(ConfigPanel.LOGS_FOLDER);
 		verify(gui).showErrorDialog(Mockito.anyString(), Mockito.anyString());
 		verify(props).getProperty(PropertiesHolder.LAST_CONFIG);
+		verify(props).getExtraConfigs();
+		verify(updateRunnable).startHttpService();
 	}
 
 	@Test
 	public void test_handleConfigSelection() throws Exception {
+		when(updateRunnable.loadConfig(configHolder, file)).thenReturn(CompletableFuture.completedFuture(null));
 		testee.handleConfigSelection(file);
 
-		verify(configHolder).loadFile(file);
-		verify(updateRunnable).updateConfig(true);
+		verify(updateRunnable).loadConfig(configHolder, file);
 
 		verify(gui).setConfigChooserDirectory(parentFile);
 		verify(gui).setConfigLabel(FILE_NAME);
@@ -126,20 +155,44 @@ public class ConfigPanelTest {
 	@Test
 	public void test_handleConfigSelection_configLoadFileFail() throws Exception {
 		Mockito.doThrow(new IOException("Error")).when(configHolder).loadFile(file);
+		UpdateRunnable loop = new UpdateRunnable(e -> testee.handleException(e), testee);
+		testee = new ConfigPanel(configHolder, fileIO, loop, appUtil, props);
+		testee.setGui(gui);
+		testee.setApp(app);
+		testee.setExecutor(Runnable::run);
 
-		testee.handleConfigSelection(file);
+		runLoop(loop, () -> {
+			testee.handleConfigSelection(file);
+			verify(gui, Mockito.timeout(5000)).showErrorDialog(Mockito.anyString(), Mockito.anyString());
+		});
 		verify(configHolder).loadFile(file);
-		verify(gui).showErrorDialog(Mockito.anyString(), Mockito.anyString());
 	}
 
 	@Test
 	public void test_handleConfigSelection_runnableConfigUpdate() throws Exception {
-		Mockito.doThrow(new IOException("Error")).when(updateRunnable).updateConfig(true);
-
-		testee.handleConfigSelection(file);
+		// Applied on the update loop, which passes any failure back to the panel
+		when(configHolder.getProjectName()).thenThrow(new IllegalStateException("Error"));
+		UpdateRunnable loop = new UpdateRunnable(e -> testee.handleException(e), testee);
+		testee = new ConfigPanel(configHolder, fileIO, loop, appUtil, props);
+		testee.setGui(gui);
+		testee.setApp(app);
+		testee.setExecutor(Runnable::run);
+
+		runLoop(loop, () -> {
+			testee.handleConfigSelection(file);
+			verify(gui, Mockito.timeout(5000)).showErrorDialog(Mockito.anyString(), Mockito.anyString());
+		});
+		// Never added, so the status is left as it was
+		Assertions.assertTrue(loop.getProjectNames().isEmpty());
 		verify(configHolder).loadFile(file);
-		verify(updateRunnable).updateConfig(true);
-		verify(gui).showErrorDialog(Mockito.anyString(), Mockito.anyString());
+		verify(configHolder).getProjectName();
+		verify(configHolder).isAutoUpdate();
+		verify(gui).setConfigChooserDirectory(parentFile);
+		verify(gui).setConfigLabel(FILE_NAME);
+		verify(gui).setReloadConfigLinkVisible(true);
+		verify(gui).setAutoUpdateCheckState(Mockito.anyBoolean());
+		verify(props).setProperty(PropertiesHolder.LAST_CONFIG, FILE_PATH);
+		verify(props).flush();
 	}
 
 	@Test
@@ -148,8 +201,7 @@ public class ConfigPanelTest {
 
 		testee.handleReloadLinkClick();
 		verify(configHolder).isLoaded();
-		verify(configHolder).reload();
-		verify(updateRunnable).updateConfig(true);
+		verify(updateRunnable).reload(Arrays.asList(configHolder));
 	}
 
 	@Test
@@ -168,7 +220,15 @@ public class ConfigPanelTest {
 		verify(configHolder).setAutoUpdate(true);
 		verify(gui).setUpdateNowButtonEnabled(false);
 		verify(configHolder).isLoaded();
-		verify(updateRunnable).updateConfig(false);
+		verify(updateRunnable).updateConfig(configHolder, false);
+	}
+
+	@Test
+	public void test_handleAutoUpdateChange() throws Exception {
+		testee.handleAutoUpdateChange(false);
+
+		verify(gui).setAutoUpdateCheckState(false);
+		verify(gui).setUpdateNowButtonEnabled(true);
 	}
 
 	@Test
@@ -184,15 +244,21 @@ public class ConfigPanelTest {
 	@Test
 	public void test_handleAutoUpdateCheck_updateConfigFail() throws Exception {
 		when(configHolder.isLoaded()).thenReturn(true);
-		Mockito.doThrow(new IOException("Error")).when(updateRunnable).updateConfig(false);
-
-		testee.handleAutoUpdateCheck(true);
+		when(configHolder.getProjectName()).thenThrow(new IllegalStateException("Error"));
+		UpdateRunnable loop = new UpdateRunnable(e -> testee.handleException(e), testee);
+		testee = new ConfigPanel(configHolder, fileIO, loop, appUtil, props);
+		testee.setGui(gui);
 
+		runLoop(loop, () -> {
+			testee.handleAutoUpdateCheck(true);
+			verify(gui, Mockito.timeout(5000)).showErrorDialog(Mockito.anyString(), Mockito.anyString());
+		});
+		// Never added, so the status is left as it was
+		Assertions.assertTrue(loop.getProjectNames().isEmpty());
 		verify(configHolder).setAutoUpdate(true);
 		verify(gui).setUpdateNowButtonEnabled(false);
 		verify(configHolder).isLoaded();
-		verify(updateRunnable).updateConfig(false);
-		verify(gui).showErrorDialog(Mockito.anyString(), Mockito.anyString());
+		verify(configHolder).getProjectName();
 	}
 
 	@Test
@@ -204,7 +270,14 @@ public class ConfigPanelTest {
 		verify(configHolder).setAutoUpdate(false);
 		verify(gui).setUpdateNowButtonEnabled(true);
 		verify(configHolder).isLoaded();
-		verify(updateRunnable).updateConfig(false);
+		verify(updateRunnable).updateConfig(configHolder, false);
+	}
+
+	@Test
+	public void test_handleUpdateStatus() {
+		testee.handleUpdateStatus(UpdateStatus.DEGRADED, "detail");
+
+		verify(gui).setUpdateStatus(UpdateStatus.DEGRADED, "detail");
 	}
 
 	@Test
@@ -213,4 +286,16 @@ public class ConfigPanelTest {
 
 		verify(updateRunnable).runOnce();
 	}
+
+	/** Run the given checks while the update loop runs on its own thread. */
+	private static void runLoop(UpdateRunnable loop, Runnable checks) throws InterruptedException {
+		Thread thread = new Thread(loop);
+		thread.start();
+		try {
+			checks.run();
+		} finally {
+			loop.doStop();
+			thread.join(5000);
+		}
+	}
 }
@@ -76,6 +76,11 @@ public class MainPanelTest {
 		testEvent(ApiKeyStatus.MISSING, false);
 	}
 
+	@Test
+	public void test_handleApiKeySet_checking() {
+		testEvent(ApiKeyStatus.CHECKING, true);
+	}
+
 	@Test
 	public void test_handleApiKeySet_loaded() {
 		testEvent(ApiKeyStatus.LOADED, true);
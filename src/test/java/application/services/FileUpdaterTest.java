@@ -96,8 +96,8 @@ public class FileUpdaterTest {
 				new CellBuilder().withName(FILE_NAME + "2").withCell("B8").withFileExtension(TXT_EXTENSION).build());
 		updatedCells.add(new CellUpdate(b8, "newVal2"));
 
-		ConfigHolder.get().getCells().add(a8);
-		ConfigHolder.get().getCells().add(b8);
+		cells.add(a8);
+		cells.add(b8);
 
 		fileUpdater.updateFiles(updatedCells);
 		Mockito.verify(io).writeTextFile(fileUpdater.createFilePath(FOLDER_NAME, a8), "newVal1");
@@ -116,8 +116,8 @@ public class FileUpdaterTest {
 		CellWrapper a8v2 = new CellWrapper(
 				new CellBuilder().withName(FILE_NAME + "2").withCell("A8").withFileExtension(TXT_EXTENSION).build());
 
-		ConfigHolder.get().getCells().add(a8v1);
-		ConfigHolder.get().getCells().add(a8v2);
+		cells.add(a8v1);
+		cells.add(a8v2);
 
 		// One update (that would in the app come from the cache/google sheets update
 		updatedCells.add(new CellUpdate(a8v1, "newVal"));
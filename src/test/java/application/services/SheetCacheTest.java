@@ -16,17 +16,25 @@
  */
 package application.services;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import application.models.CellUpdate;
 import application.models.CellWrapper;
 import application.models.json.CellBuilder;
+import application.models.json.GoogleSheetsResponse;
 
 public class SheetCacheTest {
 	private SheetCache testee = new SheetCache();
@@ -57,35 +65,35 @@ public class SheetCacheTest {
 		testee.setup(testCells);
 		// Ensure we get hits for the ones we expect
 		Assertions.assertEquals("", testee.get(a1));
-		Assertions.assertEquals("", testee.get(CellWrapper.fromGoogleCoord(0, 0)));
+		Assertions.assertEquals("", testee.get(dataFromRef("Sheet1!A1")));
 		Assertions.assertEquals("", testee.get(cz55));
 
-		// Ensure misses for ones we don't want (e.g. A2)
+		// Ensure misses for ones we don't want (e.g. A2, or A1 of another worksheet)
 		Assertions.assertNull(testee.get(dataFromRef("A2")), "Cache hit for unexpected key");
-		Assertions.assertNull(testee.get(CellWrapper.fromGoogleCoord(0, 1)), "Cache hit for unexpected key");
+		Assertions.assertNull(testee.get(dataFromRef("Other!A1")), "Cache hit for unexpected key");
 	}
 
 	@Test
-	public void test_update() throws Exception {
+	public void test_updateFromSheets_onlyCellsOfInterest() throws Exception {
 		testee.setup(testCells);
 
-		String a1Message = "0,0 (aka. A1) exists in config";
+		String a1Message = "A1 exists in config";
 		String c3Message = "C3 exists in config";
 		String cz55Message = "CZ55 exists in config";
 
-		Map<CellWrapper, String> rawCellData = new HashMap<>();
-		rawCellData.put(CellWrapper.fromGoogleCoord(0, 0), a1Message);
-		rawCellData.put(dataFromRef("C3"), c3Message);
-		rawCellData.put(dataFromRef("A2"), "A2 doesn't exist in config");
-		rawCellData.put(dataFromRef("B3"), "B3 doesn't exist in config");
-		rawCellData.put(dataFromRef("CZ55"), cz55Message);
+		Map<String, String> rawCellData = new HashMap<>();
+		rawCellData.put("A1", a1Message);
+		rawCellData.put("C3", c3Message);
+		rawCellData.put("A2", "A2 doesn't exist in config");
+		rawCellData.put("B3", "B3 doesn't exist in config");
+		rawCellData.put("CZ55", cz55Message);
 
 		// Check initial state; cache hits but empty for those we're about to update
 		Assertions.assertEquals("", testee.get(a1));
 		Assertions.assertEquals("", testee.get(c3));
 		Assertions.assertEquals("", testee.get(cz55));
 
-		testee.update(rawCellData);
+		testee.updateFromSheets(sheet1(rawCellData));
 
 		// Ensure raw data doesn't make its way in if wasn't already in
 		Assertions.assertNull(testee.get(dataFromRef("A2")), "Cache should have missed");
@@ -101,25 +109,210 @@ public class SheetCacheTest {
 	}
 
 	@Test
-	public void test_update_fromValueToEmpty() throws Exception {
+	public void test_updateFromSheets_fromValueToEmpty() throws Exception {
 		testee.setup(testCells);
 
+		// Emulate the sheet updating to have a message in CZ55
 		String message = "Test message";
-		Map<CellWrapper, String> rawCellData = new HashMap<>();
-		rawCellData.put(cz55, message);
-
-		// Emulate the sheet updating to have a1Message in A1
-		testee.update(rawCellData);
+		testee.updateFromSheets(sheet1(Collections.singletonMap("CZ55", message)));
 		// Should get a cache hit with that message
 		Assertions.assertEquals(message, testee.get(cz55));
 
-		rawCellData.clear();
-		rawCellData.put(cz55, null);
-		testee.update(rawCellData);
+		// Google leaves out empty cells altogether
+		testee.updateFromSheets(sheets("Sheet1", "[]"));
 		Assertions.assertEquals("", testee.get(cz55));
 	}
 
+	@Test
+	public void test_updateFromSheets() throws Exception {
+		CellWrapper sheetA1 = dataFromRef("Sheet1!A1");
+		CellWrapper sheetB2 = dataFromRef("Sheet1!B2");
+		testee.setup(Arrays.asList(sheetA1, sheetB2));
+
+		List<CellUpdate> updates = testee.updateFromSheets(sheets("Sheet1", "[[\"a1\"], [\"b1\", \"b2\"]]"));
+		Assertions.assertEquals(2, updates.size());
+		Assertions.assertEquals("a1", testee.get(sheetA1));
+		Assertions.assertEquals("b2", testee.get(sheetB2));
+	}
+
+	@Test
+	public void test_updateFromSheets_emptyCellsReportedOnce() throws Exception {
+		CellWrapper sheetB1 = dataFromRef("Sheet1!B1");
+		CellWrapper sheetB2 = dataFromRef("Sheet1!B2");
+		testee.setup(Arrays.asList(sheetB1, sheetB2));
+
+		// Reported the first time, so that its file is written
+		List<CellUpdate> updates = testee.updateFromSheets(sheets("Sheet1", "[[], [\"b1\"]]"));
+		Assertions.assertEquals(2, updates.size());
+
+		// ...but not again, even though its column has changed
+		updates = testee.updateFromSheets(sheets("Sheet1", "[[], [\"b1 changed\"]]"));
+		Assertions.assertEquals(1, updates.size());
+		Assertions.assertEquals(sheetB1, updates.get(0).getCellWrapper());
+	}
+
+	@Test
+	public void test_updateFromSheets_skipsUnchangedColumns() throws Exception {
+		CellWrapper sheetA1 = dataFromRef("Sheet1!A1");
+		CellWrapper sheetB2 = dataFromRef("Sheet1!B2");
+		testee.setup(Arrays.asList(sheetA1, sheetB2));
+		testee.updateFromSheets(sheets("Sheet1", "[[\"\"], [\"b1\", \"b2\"]]"));
+		testee.commitColumnHashes();
+
+		/*
+		 * A1 is empty and was reported once already; the unchanged column A means it
+		 * isn't even looked at. Column B has changed, but not B2.
+		 */
+		List<CellUpdate> updates = testee.updateFromSheets(sheets("Sheet1", "[[\"\"], [\"b1 changed\", \"b2\"]]"));
+		Assertions.assertTrue(updates.isEmpty(), "Expected no updates but got " + updates);
+		testee.commitColumnHashes();
+
+		updates = testee.updateFromSheets(sheets("Sheet1", "[[\"\"], [\"b1\", \"b2 changed\"]]"));
+		Assertions.assertEquals(1, updates.size());
+		Assertions.assertEquals(sheetB2, updates.get(0).getCellWrapper());
+		Assertions.assertEquals("b2 changed", testee.get(sheetB2));
+	}
+
+	@Test
+	public void test_updateFromSheets_afterSetup() throws Exception {
+		CellWrapper sheetA1 = dataFromRef("Sheet1!A1");
+		testee.setup(Arrays.asList(sheetA1));
+		testee.updateFromSheets(sheets("Sheet1", "[[\"a1\"]]"));
+
+		// A fresh setup forgets the column hashes, so the same response is a change
+		testee.setup(Arrays.asList(sheetA1));
+		Assertions.assertEquals(1, testee.updateFromSheets(sheets("Sheet1", "[[\"a1\"]]")).size());
+	}
+
+	@Test
+	public void test_updateFromSheets_multipleWorksheets() throws Exception {
+		CellWrapper teamsA1 = dataFromRef("Teams!A1");
+		CellWrapper scoresA1 = dataFromRef("Scores!A1");
+		testee.setup(Arrays.asList(teamsA1, scoresA1));
+
+		// Same coordinate, different worksheets; must be kept apart
+		Assertions.assertNotEquals(teamsA1, scoresA1);
+
+		Map<String, GoogleSheetsResponse> data = new HashMap<>();
+		data.putAll(sheets("Teams", "[[\"Team A\"]]"));
+		data.putAll(sheets("Scores", "[[\"3\"]]"));
+		testee.updateFromSheets(data);
+
+		Assertions.assertEquals("Team A", testee.get(teamsA1));
+		Assertions.assertEquals("3", testee.get(scoresA1));
+	}
+
+	@Test
+	public void test_versions() throws Exception {
+		CellWrapper sheetA1 = dataFromRef("Sheet1!A1");
+		CellWrapper sheetB1 = dataFromRef("Sheet1!B1");
+		testee.setup(Arrays.asList(sheetA1, sheetB1));
+
+		List<Long> versions = new ArrayList<>();
+		List<Map<String, String>> changes = new ArrayList<>();
+		testee.addListener((version, changedValues) -> {
+			versions.add(version);
+			changes.add(changedValues);
+		});
+
+		testee.updateFromSheets(sheets("Sheet1", "[[\"a1\"], [\"\"]]"));
+		long first = testee.getVersion();
+		Assertions.assertEquals(first, testee.getVersion(sheetA1));
+		Assertions.assertEquals(0, testee.getVersion(sheetB1));
+		Assertions.assertEquals(Collections.singletonMap("Sheet1!A1", "a1"), changes.get(0));
+
+		// Re-reporting an empty cell is no change, so no new version
+		testee.updateFromSheets(sheets("Sheet1", "[[\"a1\"], [\"\", \"b2\"]]"));
+		Assertions.assertEquals(1, versions.size());
+
+		testee.updateFromSheets(sheets("Sheet1", "[[\"a1\"], [\"b1\"]]"));
+		Assertions.assertEquals(2, versions.size());
+		Assertions.assertTrue(versions.get(1) > first);
+		Assertions.assertEquals(Collections.singletonMap("Sheet1!B1", "b1"), changes.get(1));
+
+		// Catching up only gives what has changed since
+		Assertions.assertEquals(Collections.singletonMap("Sheet1!B1", "b1"), testee.getValuesByName(first));
+		Assertions.assertEquals(2, testee.getValuesByName(-1).size());
+		Assertions.assertTrue(testee.getValuesByName(testee.getVersion()).isEmpty());
+	}
+
+	@Test
+	public void test_isFileCurrent() throws Exception {
+		testee.setup(testCells);
+		testee.updateFromSheets(sheet1(Collections.singletonMap("A1", "https://remote/image.png")));
+		Assertions.assertFalse(testee.isFileCurrent(a1));
+
+		testee.filesWritten(Collections.singletonList(new CellUpdate(a1, "https://remote/image.png")));
+		Assertions.assertTrue(testee.isFileCurrent(a1));
+
+		// Behind again, until the new value is written
+		testee.updateFromSheets(sheet1(Collections.singletonMap("A1", "https://remote/other.png")));
+		Assertions.assertFalse(testee.isFileCurrent(a1));
+	}
+
+	@Test
+	public void test_filesWritten_publishesHeldBackChanges() throws Exception {
+		CellWrapper image = new CellWrapper(
+				new CellBuilder().withName("logo").withCell("A1").withFileExtension("png").build(), "Sheet1");
+		CellWrapper text = dataFromRef("B1");
+		testee.setup(Arrays.asList(image, text));
+		List<Map<String, String>> changes = new ArrayList<>();
+		List<CellWrapper> written = new ArrayList<>();
+		testee.addListener(new ISheetCacheListener() {
+			@Override
+			public void cellsChanged(long version, Map<String, String> changedValues) {
+				changes.add(changedValues);
+			}
+
+			@Override
+			public void fileWritten(CellWrapper cell) {
+				written.add(cell);
+			}
+		});
+
+		List<CellUpdate> updates = testee.updateFromSheets(sheets("Sheet1", "[[\"file://C:/logo.png\"], [\"b1\"]]"));
+		// Text straight away; the image only once its file is there to be shown
+		Assertions.assertEquals(Arrays.asList(Collections.singletonMap("B1", "b1")), changes);
+		Assertions.assertEquals(0, testee.getVersion(image));
+
+		testee.filesWritten(updates);
+		Assertions.assertEquals(Arrays.asList(image, text), written);
+		Assertions.assertEquals(Collections.singletonMap("logo", "file://C:/logo.png"), changes.get(1));
+		Assertions.assertEquals(testee.getVersion(), testee.getVersion(image));
+	}
+
+	@Test
+	public void test_findByName() throws Exception {
+		testee.setup(testCells);
+		Assertions.assertEquals(c3, testee.findByName("C3").get());
+		Assertions.assertFalse(testee.findByName("A2").isPresent());
+	}
+
+	private Map<String, GoogleSheetsResponse> sheets(String worksheet, String values) {
+		GoogleSheetsResponse response = new GsonBuilder().create()
+				.fromJson("{\"majorDimension\": \"COLUMNS\", \"values\": " + values + "}", GoogleSheetsResponse.class);
+		return Collections.singletonMap(worksheet, response);
+	}
+
+	/** @return a response for Sheet1 holding just the given values, by cell reference. */
+	private Map<String, GoogleSheetsResponse> sheet1(Map<String, String> valuesByRef) throws Exception {
+		List<List<String>> columns = new ArrayList<>();
+		for (Entry<String, String> value : valuesByRef.entrySet()) {
+			CellWrapper cell = dataFromRef(value.getKey());
+			while (columns.size() <= cell.getCol()) {
+				columns.add(new ArrayList<>());
+			}
+			List<String> column = columns.get(cell.getCol());
+			while (column.size() <= cell.getRow()) {
+				column.add("");
+			}
+			column.set(cell.getRow(), value.getValue());
+		}
+		return sheets("Sheet1", new Gson().toJson(columns));
+	}
+
+	/** @return a cell for the reference, on Sheet1 unless it says otherwise. */
 	private CellWrapper dataFromRef(String ref) throws Exception {
-		return new CellWrapper(new CellBuilder().withName(ref).withCell(ref).build());
+		return new CellWrapper(new CellBuilder().withName(ref).withCell(ref).build(), "Sheet1");
 	}
 }
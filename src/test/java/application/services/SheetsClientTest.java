@@ -0,0 +1,64 @@
+/**
+ * SheetsClientTest.java is part of the "SheetsIO" project (c) by Mark "Grandy" Bishop, 2021.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package application.services;
+
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+public class SheetsClientTest {
+
+	@Mock
+	private UpdateController first;
+	@Mock
+	private UpdateController second;
+	@Mock
+	private UpdateController other;
+
+	@BeforeEach
+	public void setUp() {
+		MockitoAnnotations.initMocks(this);
+		when(first.getSpreadsheetId()).thenReturn("sheet1");
+		when(first.getWorksheets()).thenReturn(Arrays.asList("Scores", "Teams"));
+		when(second.getSpreadsheetId()).thenReturn("sheet1");
+		when(second.getWorksheets()).thenReturn(Arrays.asList("Teams", "Casters"));
+		when(other.getSpreadsheetId()).thenReturn("sheet2");
+		when(other.getWorksheets()).thenReturn(Arrays.asList("Scores"));
+	}
+
+	@Test
+	public void test_groupBySpreadsheet_sharesRequests() {
+		Map<String, List<String>> grouped = SheetsClient.groupBySpreadsheet(Arrays.asList(first, second, other));
+
+		Assertions.assertEquals(2, grouped.size());
+		Assertions.assertEquals(Arrays.asList("Scores", "Teams", "Casters"), grouped.get("sheet1"));
+		Assertions.assertEquals(Arrays.asList("Scores"), grouped.get("sheet2"));
+	}
+
+	@Test
+	public void test_groupBySpreadsheet_none() {
+		Assertions.assertTrue(SheetsClient.groupBySpreadsheet(Arrays.asList()).isEmpty());
+	}
+}
@@ -0,0 +1,97 @@
+/**
+ * UpdateControllerTest.java is part of the "SheetsIO" project (c) by Mark "Grandy" Bishop, 2021.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package application.services;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+import application.models.CellUpdate;
+import application.models.CellWrapper;
+import application.models.ConfigHolder;
+import application.models.SheetsPayload;
+import application.models.json.CellBuilder;
+
+public class UpdateControllerTest {
+	@Mock
+	private ConfigHolder configHolder;
+	@Mock
+	private FileUpdater fileUpdater;
+
+	private CellWrapper cell;
+	private UpdateController testee;
+
+	@SuppressWarnings("deprecation")
+	@BeforeEach
+	public void setUp() throws Exception {
+		MockitoAnnotations.initMocks(this);
+		cell = new CellWrapper(new CellBuilder().withName("caster").withCell("A1").withFileExtension("txt").build(),
+				"Sheet1");
+		Mockito.when(configHolder.isLoaded()).thenReturn(true);
+		Mockito.when(configHolder.getProjectName()).thenReturn("updateControllerTest");
+		Mockito.when(configHolder.getSpreadsheetId()).thenReturn("sheet1");
+		Mockito.when(configHolder.getCells()).thenReturn(Collections.singletonList(cell));
+		Mockito.when(configHolder.getWorksheetNames()).thenReturn(Collections.singletonList("Sheet1"));
+		Mockito.when(configHolder.getScenes()).thenReturn(Collections.emptyList());
+
+		testee = new UpdateController(configHolder, fileUpdater);
+		testee.setConfig(true);
+	}
+
+	@AfterEach
+	public void tearDown() {
+		testee.close();
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void test_update_writeFailedThenRetried() throws Exception {
+		Mockito.doThrow(new IOException("Access is denied")).doNothing().when(fileUpdater)
+				.updateFiles(Mockito.anyList());
+
+		Assertions.assertThrows(IOException.class, () -> testee.update(payload("Grandy"), worksheets()));
+		// The same response again; the file is still to be written, so it is
+		List<CellUpdate> updates = testee.update(payload("Grandy"), worksheets());
+		Assertions.assertEquals(1, updates.size());
+		Assertions.assertEquals(cell, updates.get(0).getCellWrapper());
+		Assertions.assertEquals("Grandy", updates.get(0).getNewValue());
+		Mockito.verify(fileUpdater, Mockito.times(2)).updateFiles(Mockito.anyList());
+
+		// ...and, once it has been, isn't again
+		Assertions.assertTrue(testee.update(payload("Grandy"), worksheets()).isEmpty());
+		Mockito.verify(fileUpdater, Mockito.times(2)).updateFiles(Mockito.anyList());
+	}
+
+	private static List<String> worksheets() {
+		return Collections.singletonList("Sheet1");
+	}
+
+	private static SheetsPayload payload(String a1) throws IOException {
+		String json = "{\"valueRanges\": [{\"majorDimension\": \"COLUMNS\", \"values\": [[\"" + a1 + "\"]]}]}";
+		return SheetsPayload.read(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+	}
+}
@@ -0,0 +1,116 @@
+/**
+ * AssetStore.java is part of the "SheetsIO" project (c) by Mark "Grandy" Bishop, 2021.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package application.services.http;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import application.models.CellWrapper;
+import application.models.json.CellBuilder;
+import application.services.SheetCache;
+import application.services.http.FileRoutes.FileRoute;
+
+public class AssetStoreTest {
+	@TempDir
+	Path folder;
+
+	private FileRoutes routes;
+	private AssetStore testee;
+	private SheetCache cache = new SheetCache();
+	private CellWrapper intro;
+	private CellWrapper outro;
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		routes = new FileRoutes(folder.toFile());
+		testee = new AssetStore(routes);
+		intro = new CellWrapper(new CellBuilder().withName("intro").withCell("A1").withFileExtension("webm").build());
+		outro = new CellWrapper(new CellBuilder().withName("outro").withCell("A2").withFileExtension("webm").build());
+		cache.setup(Arrays.asList(intro, outro));
+	}
+
+	@Test
+	public void test_getUrl() throws Exception {
+		File file = write("intro", "video");
+		FileRoute route = routes.get("project", "intro", intro).get();
+		String url = testee.getUrl(route).get();
+		Assertions.assertEquals("/project/_assets/" + ContentHash.of(file) + ".webm", url);
+
+		String name = url.substring(url.lastIndexOf('/') + 1);
+		Assertions.assertEquals(route, testee.get("project", name).get());
+		// Only within its own project
+		Assertions.assertFalse(testee.get("other", name).isPresent());
+	}
+
+	@Test
+	public void test_getUrl_unreadableFile() throws Exception {
+		File file = write("intro", "video");
+		FileRoute route = routes.get("project", "intro", intro).get();
+		Assertions.assertTrue(file.delete());
+		Assertions.assertFalse(testee.getUrl(route).isPresent());
+	}
+
+	@Test
+	public void test_get_fileChanged() throws Exception {
+		write("intro", "video");
+		String oldUrl = testee.getUrl(routes.get("project", "intro", intro).get()).get();
+		String oldName = oldUrl.substring(oldUrl.lastIndexOf('/') + 1);
+
+		write("intro", "a longer video");
+		// The old url no longer works, and the new one has a new hash
+		Assertions.assertFalse(testee.get("project", oldName).isPresent());
+		String newUrl = testee.getUrl(routes.get("project", "intro", intro).get()).get();
+		Assertions.assertNotEquals(oldUrl, newUrl);
+		Assertions.assertTrue(testee.get("project", newUrl.substring(newUrl.lastIndexOf('/') + 1)).isPresent());
+	}
+
+	@Test
+	public void test_get_sameContent() throws Exception {
+		write("intro", "video");
+		write("outro", "video");
+		String introUrl = testee.getUrl(routes.get("project", "intro", intro).get()).get();
+		String outroUrl = testee.getUrl(routes.get("project", "outro", outro).get()).get();
+		Assertions.assertEquals(introUrl, outroUrl);
+
+		// One moving on leaves the url working for the other
+		write("outro", "another video");
+		Assertions.assertNotEquals(outroUrl, testee.getUrl(routes.get("project", "outro", outro).get()).get());
+		String name = introUrl.substring(introUrl.lastIndexOf('/') + 1);
+		Assertions.assertEquals(routes.get("project", "intro", intro).get(), testee.get("project", name).get());
+
+		// ...until it does too
+		write("intro", "a third video");
+		Assertions.assertFalse(testee.get("project", name).isPresent());
+	}
+
+	/** @return the cell's file, written with the given contents and routed to. */
+	private File write(String cellName, String contents) throws Exception {
+		Files.createDirectories(folder.resolve("project"));
+		File file = Files.write(folder.resolve("project/" + cellName + ".webm"),
+				contents.getBytes(StandardCharsets.UTF_8)).toFile();
+		routes.register("project", cache);
+		return file;
+	}
+}
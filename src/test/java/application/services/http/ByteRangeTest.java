@@ -0,0 +1,60 @@
+/**
+ * ByteRange.java is part of the "SheetsIO" project (c) by Mark "Grandy" Bishop, 2021.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package application.services.http;
+
+import java.util.Optional;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class ByteRangeTest {
+	private static final long LENGTH = 1000;
+
+	@Test
+	public void test_parse() {
+		assertRange(0, 499, "bytes=0-499");
+		assertRange(500, 999, "bytes=500-");
+		assertRange(900, 999, "bytes=-100");
+		// Clamped to the content
+		assertRange(500, 999, "bytes=500-5000");
+		assertRange(0, 999, "bytes=-5000");
+	}
+
+	@Test
+	public void test_parse_ignored() {
+		Assertions.assertFalse(ByteRange.parse(null, LENGTH).isPresent());
+		Assertions.assertFalse(ByteRange.parse("items=0-1", LENGTH).isPresent());
+		Assertions.assertFalse(ByteRange.parse("bytes=0-1,5-6", LENGTH).isPresent());
+		Assertions.assertFalse(ByteRange.parse("bytes=10-5", LENGTH).isPresent());
+		Assertions.assertFalse(ByteRange.parse("bytes=abc", LENGTH).isPresent());
+	}
+
+	@Test
+	public void test_parse_unsatisfiable() {
+		ByteRange range = ByteRange.parse("bytes=1000-", LENGTH).get();
+		Assertions.assertFalse(range.isSatisfiable());
+		Assertions.assertEquals("bytes */1000", range.toContentRange(LENGTH));
+		Assertions.assertFalse(ByteRange.parse("bytes=-0", LENGTH).get().isSatisfiable());
+	}
+
+	private void assertRange(long start, long end, String header) {
+		Optional<ByteRange> range = ByteRange.parse(header, LENGTH);
+		Assertions.assertEquals(new ByteRange(start, end), range.get());
+		Assertions.assertEquals(end - start + 1, range.get().getLength());
+		Assertions.assertEquals("bytes " + start + "-" + end + "/" + LENGTH, range.get().toContentRange(LENGTH));
+	}
+}
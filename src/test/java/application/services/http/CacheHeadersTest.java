@@ -0,0 +1,63 @@
+/**
+ * CacheHeaders.java is part of the "SheetsIO" project (c) by Mark "Grandy" Bishop, 2021.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package application.services.http;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.Headers;
+
+public class CacheHeadersTest {
+	private static final String ETAG = "\"abc123\"";
+	private static final long LAST_MODIFIED = 1600000000500L;
+
+	@Test
+	public void test_isNotModified_noConditions() {
+		Assertions.assertFalse(CacheHeaders.isNotModified(new Headers(), ETAG, LAST_MODIFIED));
+	}
+
+	@Test
+	public void test_isNotModified_ifNoneMatch() {
+		Assertions.assertTrue(CacheHeaders.isNotModified(headers("If-None-Match", ETAG), ETAG, LAST_MODIFIED));
+		Assertions.assertTrue(
+				CacheHeaders.isNotModified(headers("If-None-Match", "\"old\", W/" + ETAG), ETAG, LAST_MODIFIED));
+		Assertions.assertFalse(CacheHeaders.isNotModified(headers("If-None-Match", "\"old\""), ETAG, LAST_MODIFIED));
+	}
+
+	@Test
+	public void test_isNotModified_ifModifiedSince() {
+		String date = CacheHeaders.formatDate(LAST_MODIFIED);
+		Assertions.assertEquals("Sun, 13 Sep 2020 12:26:40 GMT", date);
+		Assertions.assertTrue(CacheHeaders.isNotModified(headers("If-Modified-Since", date), ETAG, LAST_MODIFIED));
+		Assertions.assertFalse(
+				CacheHeaders.isNotModified(headers("If-Modified-Since", date), ETAG, LAST_MODIFIED + 1000));
+		Assertions.assertFalse(CacheHeaders.isNotModified(headers("If-Modified-Since", "yesterday"), ETAG, LAST_MODIFIED));
+	}
+
+	@Test
+	public void test_isNotModified_ifNoneMatchTakesPrecedence() {
+		Headers headers = headers("If-Modified-Since", CacheHeaders.formatDate(LAST_MODIFIED));
+		headers.add("If-None-Match", "\"old\"");
+		Assertions.assertFalse(CacheHeaders.isNotModified(headers, ETAG, LAST_MODIFIED));
+	}
+
+	private Headers headers(String name, String value) {
+		Headers headers = new Headers();
+		headers.add(name, value);
+		return headers;
+	}
+}
@@ -0,0 +1,196 @@
+/**
+ * ChangeBroadcaster.java is part of the "SheetsIO" project (c) by Mark "Grandy" Bishop, 2021.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package application.services.http;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import com.google.gson.GsonBuilder;
+
+import application.models.CellWrapper;
+import application.models.json.CellBuilder;
+import application.models.json.GoogleSheetsResponse;
+import application.services.SheetCache;
+
+public class ChangeBroadcasterTest {
+	/** The urls of the cells' local copies, by cell name. */
+	private final Map<String, String> localUrls = new HashMap<>();
+	private ChangeBroadcaster testee = new ChangeBroadcaster(this::getLocalUrl);
+
+	@AfterEach
+	public void tearDown() {
+		testee.stop();
+	}
+
+	@Test
+	public void test_subscribeOnce_catchesUp() throws Exception {
+		SheetCache cache = cacheWithValue("a", "new");
+		IChangeSubscriber subscriber = subscriber("");
+
+		testee.subscribeOnce("project", subscriber, cache, 0, 60000);
+		verify(subscriber, timeout(1000)).send(ChangeBroadcaster.CHANGE_EVENT, cache.getVersion(),
+				Collections.singletonMap("a", "new"), Collections.emptyMap());
+	}
+
+	@Test
+	public void test_subscribeOnce_timesOut() throws Exception {
+		SheetCache cache = cacheWithValue("a", "new");
+		IChangeSubscriber subscriber = subscriber("");
+
+		// Already up to date, so nothing to send until the timeout
+		testee.subscribeOnce("project", subscriber, cache, cache.getVersion(), 50);
+		verify(subscriber, timeout(1000)).send(ChangeBroadcaster.CHANGE_EVENT, cache.getVersion(),
+				Collections.emptyMap(), Collections.emptyMap());
+	}
+
+	@Test
+	public void test_subscribeOnce_changeBeforeTimeout() throws Exception {
+		SheetCache cache = cacheWithValue("a", "old");
+		cache.addListener(testee.listenerFor("project", cache));
+		IChangeSubscriber subscriber = subscriber("a");
+
+		testee.subscribeOnce("project", subscriber, cache, cache.getVersion(), 60000);
+		cache.updateFromSheets(sheet1A1("new"));
+		verify(subscriber, timeout(1000)).send(ChangeBroadcaster.CHANGE_EVENT, cache.getVersion(),
+				Collections.singletonMap("a", "new"), Collections.emptyMap());
+	}
+
+	@Test
+	public void test_change_withLocalUrl() throws Exception {
+		SheetCache cache = cacheWithValue("a", "http://example.com/old.png");
+		cache.addListener(testee.listenerFor("project", cache));
+		IChangeSubscriber subscriber = subscriber("a");
+
+		testee.subscribe("project", subscriber, cache, cache.getVersion());
+		localUrls.put("a", "/project/_assets/0123456789abcdef.png");
+		cache.updateFromSheets(sheet1A1("http://example.com/new.png"));
+		verify(subscriber, timeout(1000)).send(ChangeBroadcaster.CHANGE_EVENT, cache.getVersion(),
+				Collections.singletonMap("a", "http://example.com/new.png"),
+				Collections.singletonMap("a", "/project/_assets/0123456789abcdef.png"));
+	}
+
+	@Test
+	public void test_stalledSubscriber_timesOut() throws Exception {
+		testee.stop();
+		testee = new ChangeBroadcaster(this::getLocalUrl, 100, ChangeBroadcaster.MAX_SUBSCRIBERS);
+		SheetCache cache = cacheWithValue("a", "new");
+		IChangeSubscriber stalled = stalledSubscriber();
+		IChangeSubscriber subscriber = subscriber("");
+
+		testee.subscribe("project", stalled, cache, 0);
+		testee.subscribe("project", subscriber, cache, 0);
+		// Everyone else carries on regardless, and the stalled client is let go
+		verify(subscriber, timeout(1000)).send(ChangeBroadcaster.CHANGE_EVENT, cache.getVersion(),
+				Collections.singletonMap("a", "new"), Collections.emptyMap());
+		verify(stalled, timeout(2000)).close();
+	}
+
+	@Test
+	public void test_stalledSubscriber_fallsBehind() throws Exception {
+		SheetCache cache = cacheWithValue("a", "0");
+		cache.addListener(testee.listenerFor("project", cache));
+		IChangeSubscriber stalled = stalledSubscriber();
+		IChangeSubscriber subscriber = subscriber("");
+
+		testee.subscribe("project", stalled, cache, 0);
+		testee.subscribe("project", subscriber, cache, cache.getVersion());
+		// Stuck on catching up
+		verify(stalled, timeout(1000)).send(ChangeBroadcaster.CHANGE_EVENT, cache.getVersion(),
+				Collections.singletonMap("a", "0"), Collections.emptyMap());
+		for (int i = 1; i <= ChangeBroadcaster.MAX_PENDING_EVENTS + 1; i++) {
+			cache.updateFromSheets(sheet1A1(Integer.toString(i)));
+		}
+		verify(stalled, timeout(1000)).close();
+		verify(subscriber, timeout(1000)).send(ChangeBroadcaster.CHANGE_EVENT, cache.getVersion(),
+				Collections.singletonMap("a", Integer.toString(ChangeBroadcaster.MAX_PENDING_EVENTS + 1)),
+				Collections.emptyMap());
+	}
+
+	@Test
+	public void test_subscribe_tooMany() throws Exception {
+		testee.stop();
+		testee = new ChangeBroadcaster(this::getLocalUrl, 10000, 1);
+		SheetCache cache = cacheWithValue("a", "new");
+		IChangeSubscriber first = subscriber("");
+
+		Assertions.assertTrue(testee.subscribe("project", first, cache, cache.getVersion()));
+		Assertions.assertFalse(testee.subscribe("project", subscriber(""), cache, cache.getVersion()));
+		Assertions.assertFalse(testee.subscribeOnce("project", subscriber(""), cache, cache.getVersion(), 60000));
+
+		// Room again, once the first has gone
+		testee.unsubscribe("project", first);
+		verify(first, timeout(1000)).close();
+		Assertions.assertTrue(testee.subscribe("project", subscriber(""), cache, cache.getVersion()));
+	}
+
+	/** @return a subscriber whose client never takes what it's sent. */
+	private IChangeSubscriber stalledSubscriber() {
+		IChangeSubscriber subscriber = subscriber("");
+		CountDownLatch never = new CountDownLatch(1);
+		when(subscriber.send(Mockito.anyString(), Mockito.anyLong(), Mockito.anyMapOf(String.class, String.class),
+				Mockito.anyMapOf(String.class, String.class)))
+				.thenAnswer(invocation -> {
+					try {
+						never.await();
+					} catch (InterruptedException e) {
+						// As a blocked channel write would be
+					}
+					return false;
+				});
+		return subscriber;
+	}
+
+	private Optional<String> getLocalUrl(String projectName, SheetCache cache, String cellName) {
+		return Optional.ofNullable(localUrls.get(cellName));
+	}
+
+	private IChangeSubscriber subscriber(String asset) {
+		IChangeSubscriber subscriber = mock(IChangeSubscriber.class);
+		when(subscriber.getAsset()).thenReturn(asset);
+		when(subscriber.send(Mockito.anyString(), Mockito.anyLong(), Mockito.anyMapOf(String.class, String.class),
+				Mockito.anyMapOf(String.class, String.class)))
+				.thenReturn(true);
+		when(subscriber.heartbeat()).thenReturn(true);
+		return subscriber;
+	}
+
+	private SheetCache cacheWithValue(String name, String value) throws Exception {
+		CellWrapper cell = new CellWrapper(new CellBuilder().withName(name).withCell("A1").build(), "Sheet1");
+		SheetCache cache = new SheetCache();
+		cache.setup(Collections.singletonList(cell));
+		cache.updateFromSheets(sheet1A1(value));
+		return cache;
+	}
+
+	private Map<String, GoogleSheetsResponse> sheet1A1(String value) {
+		return Collections.singletonMap("Sheet1", new GsonBuilder().create()
+				.fromJson("{\"values\": [[\"" + value + "\"]]}", GoogleSheetsResponse.class));
+	}
+}
@@ -0,0 +1,40 @@
+/**
+ * ClientFiles.java is part of the "SheetsIO" project (c) by Mark "Grandy" Bishop, 2021.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package application.services.http;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import application.services.http.ClientFiles.ClientFile;
+
+public class ClientFilesTest {
+	private ClientFiles testee = new ClientFiles();
+
+	@Test
+	public void test_getSrc() {
+		ClientFile file = testee.get("live.js").get();
+		Assertions.assertEquals(ContentHash.of(file.getBody()), file.getHash());
+		Assertions.assertEquals("/_sheetsio/live.js?v=" + file.getHash(), testee.getSrc("live.js"));
+	}
+
+	@Test
+	public void test_get_missing() {
+		Assertions.assertFalse(testee.get("missing.js").isPresent());
+		Assertions.assertFalse(testee.get("../log4j2.xml").isPresent());
+		Assertions.assertEquals("/_sheetsio/missing.js", testee.getSrc("missing.js"));
+	}
+}
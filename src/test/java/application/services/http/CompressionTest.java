@@ -0,0 +1,70 @@
+/**
+ * CompressionTest.java is part of the "SheetsIO" project (c) by Mark "Grandy" Bishop, 2021.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package application.services.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.Headers;
+
+public class CompressionTest {
+	@Test
+	public void test_acceptsGzip() {
+		Assertions.assertTrue(Compression.acceptsGzip("gzip"));
+		Assertions.assertTrue(Compression.acceptsGzip("gzip, deflate, br"));
+		Assertions.assertTrue(Compression.acceptsGzip("br;q=1.0, GZIP;q=0.5"));
+		Assertions.assertTrue(Compression.acceptsGzip("*"));
+		Assertions.assertFalse(Compression.acceptsGzip(null));
+		Assertions.assertFalse(Compression.acceptsGzip(""));
+		Assertions.assertFalse(Compression.acceptsGzip("deflate, br"));
+		Assertions.assertFalse(Compression.acceptsGzip("gzip;q=0"));
+		Assertions.assertFalse(Compression.acceptsGzip("gzip; q=0.000, *"));
+	}
+
+	@Test
+	public void test_isWanted() {
+		Headers headers = new Headers();
+		headers.add("Accept-Encoding", "gzip");
+		Assertions.assertTrue(Compression.isWanted(headers, Compression.MIN_LENGTH));
+		Assertions.assertFalse(Compression.isWanted(headers, Compression.MIN_LENGTH - 1));
+		Assertions.assertFalse(Compression.isWanted(new Headers(), Compression.MIN_LENGTH));
+	}
+
+	@Test
+	public void test_gzip() throws IOException {
+		StringBuilder html = new StringBuilder();
+		for (int i = 0; i < 100; i++) {
+			html.append("<div class=\"cell\">value</div>");
+		}
+		byte[] body = html.toString().getBytes(StandardCharsets.UTF_8);
+		byte[] gzipped = Compression.gzip(body);
+		Assertions.assertTrue(gzipped.length < body.length);
+		Assertions.assertArrayEquals(body, IOUtils.toByteArray(new GZIPInputStream(new ByteArrayInputStream(gzipped))));
+	}
+
+	@Test
+	public void test_pageGzippedOnce() {
+		PageCache.Page page = PageCache.Page.of("<html></html>", 0);
+		Assertions.assertSame(page.getGzipped(), page.getGzipped());
+	}
+}
@@ -0,0 +1,73 @@
+/**
+ * ConnectionRequestTest.java is part of the "SheetsIO" project (c) by Mark "Grandy" Bishop, 2021.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package application.services.http;
+
+import java.net.URI;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import application.services.http.ConnectionRequest.ConnectionRequestType;
+
+public class ConnectionRequestTest {
+	@Test
+	public void test_values() throws Exception {
+		for (String path : new String[] { "/project", "/project/", "/project/_values.json" }) {
+			ConnectionRequest request = ConnectionRequest.from(new URI(path)).get();
+			Assertions.assertEquals(ConnectionRequestType.VALUES, request.getType(), path);
+			Assertions.assertEquals("project", request.getProject(), path);
+		}
+	}
+
+	@Test
+	public void test_notValues() throws Exception {
+		Assertions.assertEquals(ConnectionRequestType.HTML,
+				ConnectionRequest.from(new URI("/project/caster1Name")).get().getType());
+		Assertions.assertEquals(ConnectionRequestType.STATUS, ConnectionRequest.from(new URI("/status")).get().getType());
+		Assertions.assertEquals(ConnectionRequestType.FAVICON,
+				ConnectionRequest.from(new URI("/favicon.ico")).get().getType());
+		Assertions.assertNotEquals(ConnectionRequestType.VALUES,
+				ConnectionRequest.from(new URI("/_sheetsio")).get().getType());
+	}
+
+	@Test
+	public void test_control() throws Exception {
+		for (String path : new String[] { "/update", "/autoupdate", "/reload", "/status" }) {
+			Assertions.assertTrue(ConnectionRequest.from(new URI(path)).get().getType().isControl(), path);
+		}
+		Assertions.assertFalse(ConnectionRequest.from(new URI("/project/update")).get().getType().isControl());
+		Assertions.assertFalse(ConnectionRequest.from(new URI("/project")).get().getType().isControl());
+
+		// Only those changing how updates are made
+		Assertions.assertTrue(ConnectionRequestType.AUTO_UPDATE.isPostOnly());
+		Assertions.assertTrue(ConnectionRequestType.RELOAD.isPostOnly());
+		Assertions.assertFalse(ConnectionRequestType.UPDATE.isPostOnly());
+		Assertions.assertFalse(ConnectionRequestType.STATUS.isPostOnly());
+		Assertions.assertFalse(ConnectionRequestType.HTML.isPostOnly());
+	}
+
+	@Test
+	public void test_scene() throws Exception {
+		ConnectionRequest request = ConnectionRequest.from(new URI("/project/_scenes/board")).get();
+		Assertions.assertEquals(ConnectionRequestType.SCENE, request.getType());
+		Assertions.assertEquals("project", request.getProject());
+		Assertions.assertEquals("board", request.getAsset());
+		// Not a change route of an asset named '_scenes'
+		Assertions.assertEquals(ConnectionRequestType.EVENTS,
+				ConnectionRequest.from(new URI("/project/_events")).get().getType());
+	}
+}
@@ -0,0 +1,112 @@
+/**
+ * FileRoutesTest.java is part of the "SheetsIO" project (c) by Mark "Grandy" Bishop, 2021.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package application.services.http;
+
+import java.io.File;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import application.models.CellWrapper;
+import application.models.FileExtension.FileExtensionType;
+import application.models.json.CellBuilder;
+import application.services.SheetCache;
+import application.services.http.ConnectionRequest.ConnectionRequestType;
+import application.services.http.FileRoutes.FileRoute;
+
+public class FileRoutesTest {
+	@TempDir
+	Path folder;
+
+	private FileRoutes testee;
+	private SheetCache cache = new SheetCache();
+	private CellWrapper name;
+	private CellWrapper intro;
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		testee = new FileRoutes(folder.toFile());
+		name = new CellWrapper(new CellBuilder().withName("casterName").withCell("A1").build());
+		intro = new CellWrapper(new CellBuilder().withName("intro").withCell("B1").withFileExtension("webm").build());
+		cache.setup(Arrays.asList(name, intro));
+	}
+
+	@Test
+	public void test_register() throws Exception {
+		write("casterName.txt", "Grandy");
+		testee.register("project", cache);
+
+		FileRoute route = testee.get("/project/casterName.txt").get();
+		Assertions.assertEquals(FileExtensionType.TEXT, route.getType());
+		Assertions.assertEquals("text/plain", route.getContentType());
+		Assertions.assertEquals(6, route.getLength());
+		Assertions.assertEquals(folder.resolve("project/casterName.txt").toFile(), route.getFile());
+		// Not written yet
+		Assertions.assertFalse(testee.contains("/project/intro.webm"));
+		Assertions.assertFalse(testee.contains("/other/casterName.txt"));
+	}
+
+	@Test
+	public void test_fileWritten() throws Exception {
+		write("casterName.txt", "");
+		testee.register("project", cache);
+		String version = testee.get("/project/casterName.txt").get().getVersion();
+
+		write("casterName.txt", "Grandy");
+		write("intro.webm", "video");
+		testee.fileWritten("project", cache, name);
+		Assertions.assertEquals(6, testee.get("/project/casterName.txt").get().getLength());
+		Assertions.assertNotEquals(version, testee.get("/project/casterName.txt").get().getVersion());
+		// Only the cell said to have been written is looked at again
+		Assertions.assertFalse(testee.contains("/project/intro.webm"));
+	}
+
+	@Test
+	public void test_removeProject() throws Exception {
+		write("casterName.txt", "Grandy");
+		testee.register("project", cache);
+		testee.removeProject("project");
+		Assertions.assertFalse(testee.contains("/project/casterName.txt"));
+	}
+
+	@Test
+	public void test_onlyFilesForCells() throws Exception {
+		write("casterName.txt", "Grandy");
+		Files.write(folder.resolve("application.properties"), "apiKey=secret".getBytes(StandardCharsets.UTF_8));
+		testee.register("project", cache);
+
+		Assertions.assertEquals(ConnectionRequestType.FILE,
+				ConnectionRequest.from(new URI("/project/casterName.txt"), testee::contains).get().getType());
+		// Anything else is never a file, wherever it may be
+		Assertions.assertEquals(ConnectionRequestType.HTML,
+				ConnectionRequest.from(new URI("/project/../application.properties"), testee::contains).get().getType());
+		Assertions.assertEquals(ConnectionRequestType.HTML,
+				ConnectionRequest.from(new URI("/../application.properties"), testee::contains).get().getType());
+	}
+
+	private File write(String name, String contents) throws Exception {
+		Files.createDirectories(folder.resolve("project"));
+		return Files.write(folder.resolve("project").resolve(name), contents.getBytes(StandardCharsets.UTF_8)).toFile();
+	}
+}
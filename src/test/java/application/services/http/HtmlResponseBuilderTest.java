@@ -19,13 +19,16 @@ package application.services.http;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import application.models.CellWrapper;
+import application.models.json.CellBuilder;
+
 public class HtmlResponseBuilderTest {
 
 	@Test
 	public void test_emptyTemplate() {
 		Assertions.assertEquals("<html>" //
 				+ "	<head>" //
-				+ "		<script type=\"text/javascript\" src=\"http://livejs.com/live.js\"></script>" //
+				+ "		<script type=\"text/javascript\" src=\"/_sheetsio/live.js\" data-version=\"0\" data-file=\"\" data-ws-port=\"0\"></script>" //
 				+ "		<style>body, iframe { margin: 0; padding: 0; background-color: rgba(0, 0, 0, 0); overflow: hidden; } #content { width: 100%; height: 100%; } </style>" //
 				+ "	</head>" //
 				+ "	<body>" //
@@ -38,7 +41,7 @@ public class HtmlResponseBuilderTest {
 	public void test_scale() {
 		Assertions.assertEquals("<html>" //
 				+ "	<head>" //
-				+ "		<script type=\"text/javascript\" src=\"http://livejs.com/live.js\"></script>" //
+				+ "		<script type=\"text/javascript\" src=\"/_sheetsio/live.js\" data-version=\"0\" data-file=\"\" data-ws-port=\"0\"></script>" //
 				+ "		<style>body, iframe { margin: 0; padding: 0; background-color: rgba(0, 0, 0, 0); overflow: hidden; }  </style>" //
 				+ "	</head>" //
 				+ "	<body>" //
@@ -52,7 +55,7 @@ public class HtmlResponseBuilderTest {
 	public void test_text() {
 		Assertions.assertEquals("<html>" //
 				+ "	<head>" //
-				+ "		<script type=\"text/javascript\" src=\"http://livejs.com/live.js\"></script>" //
+				+ "		<script type=\"text/javascript\" src=\"/_sheetsio/live.js\" data-version=\"0\" data-file=\"\" data-ws-port=\"0\"></script>" //
 				+ "		<style>body, iframe { margin: 0; padding: 0; background-color: rgba(0, 0, 0, 0); overflow: hidden; } #content { width: 100%; height: 100%; } </style>" //
 				+ "	</head>" //
 				+ "	<body>" //
@@ -60,4 +63,40 @@ public class HtmlResponseBuilderTest {
 				+ " </body>" //
 				+ "</html>", new HtmlResponseBuilder().buildDivTemplate("Test").build());
 	}
+
+	@Test
+	public void test_img_src() throws Exception {
+		CellWrapper cell = new CellWrapper(
+				new CellBuilder().withName("logo").withCell("A1").withFileExtension("png").build());
+		String remote = "https://i.imgur.com/asd123.png";
+
+		// Remote until downloaded, then served locally
+		Assertions.assertTrue(new HtmlResponseBuilder().buildImgTemplate(cell, remote).build()
+				.contains("<img src=\"" + remote + "\" id=\"content\" />"));
+		Assertions.assertTrue(new HtmlResponseBuilder().localSrc("/p/_assets/abc.png").buildImgTemplate(cell, remote)
+				.build().contains("<img src=\"/p/_assets/abc.png\" id=\"content\" />"));
+		// Local file urls are always served by us
+		Assertions.assertTrue(new HtmlResponseBuilder().buildImgTemplate(cell, "file:///C:/logo.png").build()
+				.contains("<img src=\"logo.png\" id=\"content\" />"));
+		// Nothing to show
+		Assertions.assertTrue(new HtmlResponseBuilder().localSrc("/p/_assets/abc.png").buildImgTemplate(cell, " ")
+				.build().contains("<img src=\"" + HtmlResponseBuilder.EMPTY_IMG_SRC + "\""));
+	}
+
+	@Test
+	public void test_img_size() throws Exception {
+		CellWrapper cell = new CellWrapper(
+				new CellBuilder().withName("logo").withCell("A1").withFileExtension("png").build());
+		ImageVariants.Size size = new ImageVariants.Size(200, 200, ImageVariants.Fit.CONTAIN);
+
+		// Our own copies are asked for at the page's size, and shown as they were made
+		String html = new HtmlResponseBuilder().localSrc("/p/_assets/abc.png").imageSize(size)
+				.buildImgTemplate(cell, "https://i.imgur.com/asd123.png").build();
+		Assertions.assertTrue(html.contains("<img src=\"/p/_assets/abc.png?w=200&h=200&fit=contain\" id=\"content\" />"));
+		Assertions.assertTrue(html.contains("data-file=\"logo.png?w=200&h=200&fit=contain\""));
+		Assertions.assertTrue(html.contains("#content { object-fit: contain; }"));
+		// Remote images can't be
+		Assertions.assertTrue(new HtmlResponseBuilder().imageSize(size).buildImgTemplate(cell, "https://i.imgur.com/asd123.png")
+				.build().contains("<img src=\"https://i.imgur.com/asd123.png\" id=\"content\" />"));
+	}
 }
@@ -0,0 +1,94 @@
+/**
+ * HttpServiceTest.java is part of the "SheetsIO" project (c) by Mark "Grandy" Bishop, 2021.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package application.services.http;
+
+import java.net.URI;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.Headers;
+
+import application.services.http.ConnectionRequest.ConnectionRequestType;
+
+public class HttpServiceTest {
+	private final Headers requestHeaders = new Headers();
+
+	@Test
+	public void test_getControlRefusal_postOnly() {
+		// e.g. <img src="http://localhost:8001/reload"> on any page
+		Assertions.assertEquals(405, HttpService.getControlRefusal(ConnectionRequestType.RELOAD, "GET", requestHeaders));
+		Assertions.assertEquals(405,
+				HttpService.getControlRefusal(ConnectionRequestType.AUTO_UPDATE, "HEAD", requestHeaders));
+		Assertions.assertEquals(0, HttpService.getControlRefusal(ConnectionRequestType.RELOAD, "POST", requestHeaders));
+
+		// Left as they were
+		Assertions.assertEquals(0, HttpService.getControlRefusal(ConnectionRequestType.UPDATE, "GET", requestHeaders));
+		Assertions.assertEquals(0, HttpService.getControlRefusal(ConnectionRequestType.STATUS, "GET", requestHeaders));
+	}
+
+	@Test
+	public void test_getControlRefusal_crossSite() {
+		requestHeaders.add("Host", "localhost:8001");
+		requestHeaders.add("Origin", "https://example.com");
+
+		// e.g. a form on some other page posting to /autoupdate?off
+		Assertions.assertEquals(403,
+				HttpService.getControlRefusal(ConnectionRequestType.AUTO_UPDATE, "POST", requestHeaders));
+	}
+
+	@Test
+	public void test_getRefusal() {
+		Assertions.assertEquals(0, HttpService.getRefusal(request("/project/caster1Name"), "GET"));
+		Assertions.assertEquals(0, HttpService.getRefusal(request("/project/caster1Name"), "HEAD"));
+		Assertions.assertEquals(0, HttpService.getRefusal(request("/project/_events"), "GET"));
+		Assertions.assertEquals(0, HttpService.getRefusal(request("/favicon.ico"), "GET"));
+
+		// Nothing is served there
+		Assertions.assertEquals(404, HttpService.getRefusal(request("/"), "GET"));
+		// Served, but not by that
+		Assertions.assertEquals(405, HttpService.getRefusal(request("/project/caster1Name"), "POST"));
+		Assertions.assertEquals(405, HttpService.getRefusal(request("/project/caster1Name/_changes"), "HEAD"));
+	}
+
+	@Test
+	public void test_getAllowedMethods() {
+		Assertions.assertEquals(Arrays.asList("GET", "HEAD"), HttpService.getAllowedMethods(ConnectionRequestType.HTML));
+		Assertions.assertEquals(Arrays.asList("GET"), HttpService.getAllowedMethods(ConnectionRequestType.EVENTS));
+	}
+
+	private static ConnectionRequest request(String path) {
+		return ConnectionRequest.from(URI.create(path)).get();
+	}
+
+	@Test
+	public void test_isCrossSite() {
+		// e.g. curl
+		Assertions.assertFalse(HttpService.isCrossSite(requestHeaders));
+
+		requestHeaders.add("Host", "192.168.0.5:8001");
+		requestHeaders.add("Origin", "http://192.168.0.5:8001");
+		Assertions.assertFalse(HttpService.isCrossSite(requestHeaders));
+
+		requestHeaders.set("Origin", "http://evil.example:8001");
+		Assertions.assertTrue(HttpService.isCrossSite(requestHeaders));
+		// Sandboxed frames and local files
+		requestHeaders.set("Origin", "null");
+		Assertions.assertTrue(HttpService.isCrossSite(requestHeaders));
+	}
+}
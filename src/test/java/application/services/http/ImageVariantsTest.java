@@ -0,0 +1,142 @@
+/**
+ * ImageVariantsTest.java is part of the "SheetsIO" project (c) by Mark "Grandy" Bishop, 2021.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package application.services.http;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import application.models.FileExtension.FileExtensionType;
+import application.services.http.FileRoutes.FileRoute;
+import application.services.http.ImageVariants.Fit;
+import application.services.http.ImageVariants.Size;
+
+public class ImageVariantsTest {
+	@TempDir
+	Path folder;
+
+	@Test
+	public void test_sizeFromRequest() throws Exception {
+		Assertions.assertEquals(Optional.of(new Size(200, 100, Fit.COVER)), size("?w=200&h=100&fit=cover"));
+		// Contained by default, and never too big
+		Assertions.assertEquals(Optional.of(new Size(ImageVariants.MAX_DIMENSION, 0, Fit.CONTAIN)),
+				size("?w=99999&fit=sideways"));
+		Assertions.assertEquals(Optional.empty(), size(""));
+		Assertions.assertEquals(Optional.empty(), size("?w=abc&h=-5"));
+
+		Assertions.assertEquals("/p/_assets/abc.png?w=200&h=0&fit=contain",
+				new Size(200, 0, Fit.CONTAIN).appendTo("/p/_assets/abc.png"));
+		Assertions.assertEquals("logo.png?v=3&w=200&h=0&fit=contain", new Size(200, 0, Fit.CONTAIN).appendTo("logo.png?v=3"));
+	}
+
+	@Test
+	public void test_fits() throws Exception {
+		FileRoute route = image("logo.png", 400, 200);
+		ImageVariants testee = new ImageVariants();
+
+		assertSize(200, 100, testee.get(route, new Size(200, 200, Fit.CONTAIN)));
+		assertSize(200, 200, testee.get(route, new Size(200, 200, Fit.COVER)));
+		assertSize(200, 200, testee.get(route, new Size(200, 200, Fit.FILL)));
+		assertSize(100, 50, testee.get(route, new Size(100, 0, Fit.CONTAIN)));
+		assertSize(100, 50, testee.get(route, new Size(0, 50, Fit.FILL)));
+	}
+
+	@Test
+	public void test_neverBigger() throws Exception {
+		FileRoute route = image("logo.png", 400, 200);
+		ImageVariants testee = new ImageVariants();
+
+		Assertions.assertFalse(testee.get(route, new Size(800, 800, Fit.CONTAIN)).isPresent());
+		Assertions.assertFalse(testee.get(route, new Size(400, 200, Fit.FILL)).isPresent());
+		// Gifs may be animated, so are left as they are
+		Assertions.assertFalse(testee.get(image("logo.gif", 400, 200), new Size(100, 100, Fit.CONTAIN)).isPresent());
+	}
+
+	@Test
+	public void test_undecodable() throws Exception {
+		File file = folder.resolve("logo.png").toFile();
+		Files.write(file.toPath(), "RIFF....WEBPVP8 ".getBytes(StandardCharsets.US_ASCII));
+		FileRoute route = new FileRoute("/p/logo.png", "p", file, FileExtensionType.IMAGE, file.length(),
+				"image/png", file.lastModified(), "v1");
+		ImageVariants testee = new ImageVariants();
+
+		Assertions.assertFalse(testee.get(route, new Size(100, 100, Fit.CONTAIN)).isPresent());
+		// Kept as served as it is, so not read again for the same version
+		ImageIO.write(new BufferedImage(400, 200, BufferedImage.TYPE_INT_RGB), "png", file);
+		Assertions.assertFalse(testee.get(route, new Size(100, 100, Fit.CONTAIN)).isPresent());
+	}
+
+	@Test
+	public void test_keptPerVersion() throws Exception {
+		FileRoute route = image("logo.jpg", 400, 200);
+		ImageVariants testee = new ImageVariants();
+
+		byte[] variant = testee.get(route, new Size(100, 100, Fit.CONTAIN)).get();
+		Assertions.assertSame(variant, testee.get(route, new Size(100, 100, Fit.CONTAIN)).get());
+
+		// Rewritten, so made afresh
+		FileRoute rewritten = new FileRoute(route.getPath(), route.getProject(), route.getFile(), route.getType(),
+				route.getLength(), route.getContentType(), route.getLastModified(), "v2");
+		Assertions.assertNotSame(variant, testee.get(rewritten, new Size(100, 100, Fit.CONTAIN)).get());
+	}
+
+	@Test
+	public void test_evictsLeastRecentlyUsed() throws Exception {
+		FileRoute route = image("logo.png", 400, 200);
+		byte[] small = ImageVariants.resize(route.getFile(), "png", new Size(100, 100, Fit.CONTAIN));
+		// Room for about two
+		ImageVariants testee = new ImageVariants(small.length * 2 + small.length / 2);
+
+		byte[] first = testee.get(route, new Size(100, 100, Fit.CONTAIN)).get();
+		byte[] second = testee.get(route, new Size(100, 100, Fit.FILL)).get();
+		Assertions.assertSame(first, testee.get(route, new Size(100, 100, Fit.CONTAIN)).get());
+		testee.get(route, new Size(100, 100, Fit.COVER));
+
+		// The second was used least recently, so made way
+		Assertions.assertSame(first, testee.get(route, new Size(100, 100, Fit.CONTAIN)).get());
+		Assertions.assertNotSame(second, testee.get(route, new Size(100, 100, Fit.FILL)).get());
+	}
+
+	private static Optional<Size> size(String query) throws Exception {
+		return Size.from(ConnectionRequest.from(new URI("/p/_assets/abc.png" + query)).get());
+	}
+
+	private FileRoute image(String name, int width, int height) throws Exception {
+		File file = folder.resolve(name).toFile();
+		ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB),
+				name.substring(name.lastIndexOf('.') + 1), file);
+		return new FileRoute("/p/" + name, "p", file, FileExtensionType.IMAGE, file.length(), "image/png",
+				file.lastModified(), "v1");
+	}
+
+	private static void assertSize(int width, int height, Optional<byte[]> variant) throws Exception {
+		BufferedImage image = ImageIO.read(new ByteArrayInputStream(variant.get()));
+		Assertions.assertEquals(width, image.getWidth());
+		Assertions.assertEquals(height, image.getHeight());
+	}
+}
@@ -0,0 +1,102 @@
+/**
+ * PageCache.java is part of the "SheetsIO" project (c) by Mark "Grandy" Bishop, 2021.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package application.services.http;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import application.services.SheetCache;
+import application.services.http.PageCache.Page;
+
+public class PageCacheTest {
+	private PageCache testee = new PageCache();
+	private SheetCache source = new SheetCache();
+	private AtomicInteger renders = new AtomicInteger();
+
+	@Test
+	public void test_get_rendersOncePerVersion() {
+		Page first = get(source, 1, null);
+		Assertions.assertSame(first, get(source, 1, null));
+		Assertions.assertEquals(1, renders.get());
+
+		Assertions.assertNotSame(first, get(source, 2, null));
+		Assertions.assertEquals(2, renders.get());
+	}
+
+	@Test
+	public void test_get_localSrcChanged() {
+		get(source, 1, null);
+		get(source, 1, "/project/_assets/abc.png");
+		Assertions.assertEquals(2, renders.get());
+	}
+
+	@Test
+	public void test_get_replacedSource() {
+		get(source, 0, null);
+		get(new SheetCache(), 0, null);
+		Assertions.assertEquals(2, renders.get());
+	}
+
+	@Test
+	public void test_evict() {
+		get(source, 1, null);
+		testee.evict("project", Collections.singleton("other"));
+		get(source, 1, null);
+		Assertions.assertEquals(1, renders.get());
+
+		testee.evict("project", Collections.singleton("cell"));
+		get(source, 1, null);
+		Assertions.assertEquals(2, renders.get());
+
+		testee.evictProject("project");
+		get(source, 1, null);
+		Assertions.assertEquals(3, renders.get());
+	}
+
+	@Test
+	public void test_get_imageSizesLimited() {
+		for (int i = 1; i <= PageCache.MAX_IMAGE_SIZES; i++) {
+			getSized(i + "x" + i + "-contain");
+		}
+		getSized("1x1-contain");
+		get(source, 1, null);
+		Assertions.assertEquals(PageCache.MAX_IMAGE_SIZES + 1, renders.get());
+
+		// One more, and the cell's other sizes make way; its own page stays
+		getSized("999x999-contain");
+		getSized("1x1-contain");
+		get(source, 1, null);
+		Assertions.assertEquals(PageCache.MAX_IMAGE_SIZES + 3, renders.get());
+	}
+
+	private Page getSized(String imageSize) {
+		return testee.get("project", "cell", false, false, imageSize, source, 1, null, () -> {
+			renders.incrementAndGet();
+			return Page.of("<html>" + imageSize + "</html>", 0);
+		});
+	}
+
+	private Page get(SheetCache source, long version, String localSrc) {
+		return testee.get("project", "cell", false, false, source, version, localSrc, () -> {
+			renders.incrementAndGet();
+			return Page.of("<html>" + version + "</html>", 0);
+		});
+	}
+}
@@ -0,0 +1,82 @@
+/**
+ * RequestExecutorTest.java is part of the "SheetsIO" project (c) by Mark "Grandy" Bishop, 2021.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package application.services.http;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class RequestExecutorTest {
+	@Test
+	public void test_shedsOverMaxRequests() throws Exception {
+		RequestExecutor executor = new RequestExecutor("1", 2);
+		try {
+			CountDownLatch release = new CountDownLatch(1);
+			CompletableFuture<Boolean> first = submit(executor, release);
+			CompletableFuture<Boolean> second = submit(executor, release);
+			CompletableFuture<Boolean> third = submit(executor, release);
+
+			// The third is over the cap, so is turned away without waiting
+			Assertions.assertTrue(third.get(5, TimeUnit.SECONDS));
+			release.countDown();
+			Assertions.assertFalse(first.get(5, TimeUnit.SECONDS));
+			Assertions.assertFalse(second.get(5, TimeUnit.SECONDS));
+
+			// Once they're done (permits are let go just after), there's room again
+			boolean shed = true;
+			for (int i = 0; i < 50 && shed; i++) {
+				Thread.sleep(i * 10);
+				shed = submit(executor, release).get(5, TimeUnit.SECONDS);
+			}
+			Assertions.assertFalse(shed);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void test_virtualThreads() throws Exception {
+		// Falls back to a pool of threads on JVMs without virtual threads
+		RequestExecutor executor = new RequestExecutor(RequestExecutor.VIRTUAL_THREADS, 1);
+		try {
+			Assertions.assertFalse(submit(executor, new CountDownLatch(0)).get(5, TimeUnit.SECONDS));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/** @return whether the request was being shed, once it has run. */
+	private CompletableFuture<Boolean> submit(RequestExecutor executor, CountDownLatch release) {
+		CompletableFuture<Boolean> shed = new CompletableFuture<>();
+		executor.execute(() -> {
+			if (RequestExecutor.isShedding()) {
+				shed.complete(true);
+				return;
+			}
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			shed.complete(false);
+		});
+		return shed;
+	}
+}
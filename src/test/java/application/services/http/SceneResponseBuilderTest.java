@@ -0,0 +1,88 @@
+/**
+ * SceneResponseBuilderTest.java is part of the "SheetsIO" project (c) by Mark "Grandy" Bishop, 2021.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package application.services.http;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import application.models.CellWrapper;
+import application.models.SceneWrapper;
+import application.models.json.CellBuilder;
+import application.models.json.Scene;
+import application.models.json.SceneCell;
+
+public class SceneResponseBuilderTest {
+
+	private static CellWrapper cell(String name, String fileExtension) throws Exception {
+		return new CellWrapper(new CellBuilder().withName(name).withCell("A1").withFileExtension(fileExtension).build());
+	}
+
+	@Test
+	public void test_laidOut() throws Exception {
+		SceneWrapper scene = SceneWrapper.from(new Scene("board", 1280, 720, null,
+				new SceneCell[] { new SceneCell("name", 10, 20, 300, 40, "color: white", false),
+						new SceneCell("logo", 0, 0, 64, 64, null, false) }),
+				new File("config.json"));
+		String html = new SceneResponseBuilder("p", scene).version(12).value("name", cell("name", "txt"), "Grandy", null)
+				.value("logo", cell("logo", "png"), "file:///C:/logo.png", "/p/_assets/abc.png").build();
+
+		Assertions.assertTrue(html.contains("width: 1280px; height: 720px;"));
+		Assertions.assertTrue(html.contains("data-version=\"12\" data-ws-port=\"0\" data-scene=\"board\"></script>"));
+		Assertions.assertTrue(html.contains("<div class=\"cell\" data-cell=\"name\" style=\"left: 10px; top: 20px; "
+				+ "width: 300px; height: 40px; color: white\"><span class=\"text\">Grandy</span></div>"));
+		// Images are asked for at the size of their place
+		Assertions.assertTrue(html.contains("<img class=\"content\" src=\"/p/_assets/abc.png?w=64&h=64&fit=fill\" />"));
+		Assertions.assertTrue(html.contains("{\"cells\":{\"name\":{\"src\":\"Grandy\",\"file\":\"/p/name.txt\"},"
+				+ "\"logo\":{\"src\":\"/p/_assets/abc.png?w\\u003d64\\u0026h\\u003d64\\u0026fit\\u003dfill\","
+				+ "\"file\":\"/p/logo.png?w\\u003d64\\u0026h\\u003d64\\u0026fit\\u003dfill\"}}}"));
+	}
+
+	@Test
+	public void test_valuesNotTemplate() throws Exception {
+		SceneWrapper scene = SceneWrapper.from(
+				new Scene("board", null, null, null, new SceneCell[] { new SceneCell("name", 0, 0, 1, 1, null, false) }),
+				new File("config.json"));
+		String html = new SceneResponseBuilder("p", scene).value("name", cell("name", "txt"), "[width]</script>", null).build();
+
+		// Defaults to 1080p, and a value can neither fill in the page nor end the json early
+		Assertions.assertTrue(html.contains("width: 1920px; height: 1080px;"));
+		Assertions.assertTrue(html.contains("<span class=\"text\">[width]</script></span>"));
+		Assertions.assertTrue(html.contains("\"src\":\"[width]\\u003c/script\\u003e\""));
+	}
+
+	@Test
+	public void test_template(@TempDir Path folder) throws Exception {
+		FileUtils.writeStringToFile(folder.resolve("board.html").toFile(),
+				"<html><HEAD><title>Board</title></HEAD><body><h1 data-cell=\"name\"></h1></body></html>",
+				StandardCharsets.UTF_8);
+		SceneWrapper scene = SceneWrapper.from(new Scene("board", null, null, "board.html", null),
+				folder.resolve("config.json").toFile());
+		String html = new SceneResponseBuilder("p", scene).value("name", cell("name", "txt"), "Grandy", null).build();
+
+		// Left as it is, but for the scripts filling it in
+		Assertions.assertTrue(html.startsWith("<html><HEAD><title>Board</title><script"));
+		Assertions.assertTrue(html.contains("data-scene=\"board\" data-fill=\"true\"></script>"));
+		Assertions.assertTrue(html.endsWith("</script></HEAD><body><h1 data-cell=\"name\"></h1></body></html>"));
+		Assertions.assertTrue(html.contains("\"name\":{\"src\":\"Grandy\",\"file\":\"/p/name.txt\"}"));
+	}
+}
@@ -0,0 +1,198 @@
+/**
+ * WebSocketServerTest.java is part of the "SheetsIO" project (c) by Mark "Grandy" Bishop, 2021.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package application.services.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import application.services.SheetCache;
+
+public class WebSocketServerTest {
+	private static final String KEY = "dGhlIHNhbXBsZSBub25jZQ==";
+
+	private ChangeBroadcaster broadcaster;
+	private WebSocketServer testee;
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		broadcaster = new ChangeBroadcaster((project, cache, name) -> Optional.empty());
+		SheetCache cache = new SheetCache();
+		testee = new WebSocketServer(broadcaster, project -> "project".equals(project) ? cache : null);
+		testee.start("localhost", 0);
+	}
+
+	@AfterEach
+	public void tearDown() {
+		testee.stop();
+		broadcaster.stop();
+	}
+
+	@Test
+	public void test_acceptKey() {
+		// The example from RFC 6455
+		Assertions.assertEquals("s3pPLMBiTxaQ9kYGzzhZRbK+xOo=", WebSocketServer.acceptKey("dGhlIHNhbXBsZSBub25jZQ=="));
+	}
+
+	@Test
+	public void test_frame_short() {
+		byte[] frame = WebSocketSubscriber.frame(0x1, "Hello".getBytes());
+		Assertions.assertArrayEquals(new byte[] { (byte) 0x81, 0x05, 'H', 'e', 'l', 'l', 'o' }, frame);
+	}
+
+	@Test
+	public void test_frame_extendedLength() {
+		byte[] frame = WebSocketSubscriber.frame(0x1, new byte[300]);
+		Assertions.assertEquals(304, frame.length);
+		Assertions.assertEquals(126, frame[1]);
+		Assertions.assertEquals(300, ((frame[2] & 0xFF) << 8) | (frame[3] & 0xFF));
+
+		frame = WebSocketSubscriber.frame(0x1, new byte[70000]);
+		Assertions.assertEquals(70010, frame.length);
+		Assertions.assertEquals(127, frame[1]);
+		Assertions.assertEquals(70000, ((frame[7] & 0xFF) << 16) | ((frame[8] & 0xFF) << 8) | (frame[9] & 0xFF));
+	}
+
+	@Test
+	public void test_handshake() throws Exception {
+		try (Socket socket = connect("/project/asset/_events?since=0")) {
+			String response = readResponse(socket.getInputStream());
+			Assertions.assertTrue(response.startsWith("HTTP/1.1 101 Switching Protocols\r\n"), response);
+			Assertions.assertTrue(response.contains("Sec-WebSocket-Accept: s3pPLMBiTxaQ9kYGzzhZRbK+xOo=\r\n"), response);
+		}
+	}
+
+	@Test
+	public void test_handshake_notEvents() throws Exception {
+		try (Socket socket = connect("/project/asset")) {
+			String response = readResponse(socket.getInputStream());
+			Assertions.assertTrue(response.startsWith("HTTP/1.1 404 Not Found\r\n"), response);
+		}
+	}
+
+	@Test
+	public void test_handshake_unknownProject() throws Exception {
+		try (Socket socket = connect("/unknown/asset/_events")) {
+			String response = readResponse(socket.getInputStream());
+			Assertions.assertTrue(response.startsWith("HTTP/1.1 404 Not Found\r\n"), response);
+		}
+	}
+
+	@Test
+	public void test_handshake_tooBusy() throws Exception {
+		tearDown();
+		broadcaster = new ChangeBroadcaster((project, cache, name) -> Optional.empty(), 10000, 0);
+		SheetCache cache = new SheetCache();
+		testee = new WebSocketServer(broadcaster, project -> cache);
+		testee.start("localhost", 0);
+
+		try (Socket socket = connect("/project/_events")) {
+			readResponse(socket.getInputStream());
+			// Told to try again later
+			DataInputStream inputStream = new DataInputStream(socket.getInputStream());
+			Assertions.assertEquals(0x88, inputStream.readUnsignedByte());
+			Assertions.assertEquals(2, inputStream.readUnsignedByte());
+			Assertions.assertEquals(1013, inputStream.readUnsignedShort());
+			Assertions.assertEquals(-1, inputStream.read());
+		}
+	}
+
+	@Test
+	public void test_pingAndClose() throws Exception {
+		try (Socket socket = connect("/project/_events")) {
+			readResponse(socket.getInputStream());
+			DataInputStream inputStream = new DataInputStream(socket.getInputStream());
+
+			sendMasked(socket.getOutputStream(), 0x9, "hi".getBytes(StandardCharsets.UTF_8));
+			Assertions.assertEquals(0x8A, inputStream.readUnsignedByte());
+			Assertions.assertEquals(2, inputStream.readUnsignedByte());
+			Assertions.assertEquals("hi", new String(new byte[] { inputStream.readByte(), inputStream.readByte() },
+					StandardCharsets.UTF_8));
+
+			// Answered in kind, with the same status code, then closed
+			sendMasked(socket.getOutputStream(), 0x8, new byte[] { 0x03, (byte) 0xE8 });
+			Assertions.assertEquals(0x88, inputStream.readUnsignedByte());
+			Assertions.assertEquals(2, inputStream.readUnsignedByte());
+			Assertions.assertEquals(1000, inputStream.readUnsignedShort());
+			Assertions.assertEquals(-1, inputStream.read());
+		}
+	}
+
+	@Test
+	public void test_unmaskedFrame() throws Exception {
+		try (Socket socket = connect("/project/_events")) {
+			readResponse(socket.getInputStream());
+			socket.getOutputStream().write(WebSocketSubscriber.frame(0x9, new byte[0]));
+
+			DataInputStream inputStream = new DataInputStream(socket.getInputStream());
+			Assertions.assertEquals(0x88, inputStream.readUnsignedByte());
+			Assertions.assertEquals(2, inputStream.readUnsignedByte());
+			Assertions.assertEquals(1002, inputStream.readUnsignedShort());
+			Assertions.assertEquals(-1, inputStream.read());
+		}
+	}
+
+	private Socket connect(String path) throws IOException {
+		Socket socket = new Socket(InetAddress.getByName("localhost"), testee.getPort());
+		socket.setSoTimeout(5000);
+		socket.getOutputStream()
+				.write(("GET " + path + " HTTP/1.1\r\n" //
+						+ "Host: localhost\r\n" //
+						+ "Upgrade: websocket\r\n" //
+						+ "Connection: Upgrade\r\n" //
+						+ "Sec-WebSocket-Key: " + KEY + "\r\n" //
+						+ "Sec-WebSocket-Version: 13\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+		return socket;
+	}
+
+	/** @return the status line and headers of the response. */
+	private static String readResponse(InputStream inputStream) throws IOException {
+		ByteArrayOutputStream response = new ByteArrayOutputStream();
+		while (!response.toString(StandardCharsets.US_ASCII.name()).endsWith("\r\n\r\n")) {
+			int b = inputStream.read();
+			if (b == -1) {
+				break;
+			}
+			response.write(b);
+		}
+		return response.toString(StandardCharsets.US_ASCII.name());
+	}
+
+	/** Send a short frame, masked as clients must. */
+	private static void sendMasked(OutputStream outputStream, int opcode, byte[] payload) throws IOException {
+		byte[] mask = { 0x12, 0x34, 0x56, 0x78 };
+		ByteArrayOutputStream frame = new ByteArrayOutputStream();
+		frame.write(0x80 | opcode);
+		frame.write(0x80 | payload.length);
+		frame.write(mask);
+		for (int i = 0; i < payload.length; i++) {
+			frame.write(payload[i] ^ mask[i % 4]);
+		}
+		outputStream.write(frame.toByteArray());
+	}
+}
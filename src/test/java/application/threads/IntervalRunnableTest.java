@@ -0,0 +1,89 @@
+/**
+ * IntervalRunnableTest.java is part of the "SheetsIO" project (c) by Mark "Grandy" Bishop, 2021.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package application.threads;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class IntervalRunnableTest {
+	/** Long enough that any cycle seen within a test was woken, not waited for. */
+	private static final long INTERVAL = 60_000;
+
+	private final Semaphore cycles = new Semaphore(0);
+	private volatile CountDownLatch blockCycle = new CountDownLatch(0);
+
+	private final IntervalRunnable testee = new IntervalRunnable(e -> Assertions.fail(e), INTERVAL) {
+		@Override
+		protected void perform() throws Exception {
+			cycles.release();
+			blockCycle.await();
+		}
+	};
+	private final Thread thread = new Thread(testee);
+
+	@AfterEach
+	public void tearDown() throws InterruptedException {
+		blockCycle.countDown();
+		testee.doStop();
+		thread.join(5000);
+		Assertions.assertFalse(thread.isAlive());
+	}
+
+	@Test
+	public void test_wakeUp_startsNextCycleImmediately() throws Exception {
+		thread.start();
+		// The first cycle begins straight away, then waits out the interval
+		Assertions.assertTrue(cycles.tryAcquire(5, TimeUnit.SECONDS));
+
+		testee.wakeUp();
+		Assertions.assertTrue(cycles.tryAcquire(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void test_wakeUp_duringCycleCoalesced() throws Exception {
+		blockCycle = new CountDownLatch(1);
+		thread.start();
+		Assertions.assertTrue(cycles.tryAcquire(5, TimeUnit.SECONDS));
+
+		// Asked for while mid-cycle; not lost, but all answered by the one next cycle
+		testee.wakeUp();
+		testee.wakeUp();
+		testee.wakeUp();
+		blockCycle.countDown();
+		Assertions.assertTrue(cycles.tryAcquire(5, TimeUnit.SECONDS));
+		Assertions.assertFalse(cycles.tryAcquire(500, TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	public void test_paused_wakeUpSkipsCycle() throws Exception {
+		thread.start();
+		Assertions.assertTrue(cycles.tryAcquire(5, TimeUnit.SECONDS));
+
+		testee.pause();
+		testee.wakeUp();
+		Assertions.assertFalse(cycles.tryAcquire(500, TimeUnit.MILLISECONDS));
+
+		testee.unpause();
+		testee.wakeUp();
+		Assertions.assertTrue(cycles.tryAcquire(5, TimeUnit.SECONDS));
+	}
+}
@@ -0,0 +1,236 @@
+/**
+ * UpdateRunnableTest.java is part of the "SheetsIO" project (c) by Mark "Grandy" Bishop, 2021.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package application.threads;
+
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+import application.IUpdateStatusListener;
+import application.exceptions.GoogleSheetsException;
+import application.exceptions.ProjectUpdateException;
+import application.models.ConfigHolder;
+import application.models.PropertiesHolder;
+import application.models.SheetsPayload;
+import application.models.UpdateResult;
+import application.models.UpdateStatus;
+import application.services.SheetsClient;
+import application.services.UpdateController;
+
+public class UpdateRunnableTest {
+	@Mock
+	private SheetsClient sheetsClient;
+	@Mock
+	private ConfigHolder healthyConfig;
+	@Mock
+	private ConfigHolder brokenConfig;
+	@Mock
+	private UpdateController healthy;
+	@Mock
+	private UpdateController broken;
+
+	private final List<Exception> handled = new ArrayList<>();
+	private UpdateRunnable testee;
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		MockitoAnnotations.initMocks(this);
+		setUpProject(healthyConfig, healthy, "healthy", "sheet1");
+		setUpProject(brokenConfig, broken, "broken", "sheet2");
+		when(sheetsClient.fetch(Mockito.eq("sheet1"), Mockito.anyListOf(String.class))).thenReturn(
+				SheetsPayload.read(new ByteArrayInputStream("{}".getBytes(StandardCharsets.UTF_8))));
+
+		testee = new UpdateRunnable(handled::add, (status, detail) -> {
+		}, sheetsClient, h -> h == healthyConfig ? healthy : broken);
+		testee.updateConfig(healthyConfig, true);
+		testee.updateConfig(brokenConfig, true);
+	}
+
+	@Test
+	public void test_failure_pausesOnlyThatProject() throws Exception {
+		when(sheetsClient.fetch(Mockito.eq("sheet2"), Mockito.anyListOf(String.class)))
+				.thenThrow(new GoogleSheetsException("url", 404, "Requested entity was not found.", "NOT_FOUND"));
+
+		testee.perform();
+		Assertions.assertEquals(1, handled.size());
+		Assertions.assertEquals("broken", ((ProjectUpdateException) handled.get(0)).getProjectName());
+		Assertions.assertEquals(UpdateStatus.PAUSED, testee.getStatus());
+		Assertions.assertTrue(testee.getStatusDetail().contains("'broken'"), testee.getStatusDetail());
+
+		// The healthy project carries on; the broken one waits for the user
+		testee.perform();
+		verify(healthy, times(2)).update(Mockito.any(SheetsPayload.class), Mockito.anyListOf(String.class));
+		verify(sheetsClient, times(1)).fetch(Mockito.eq("sheet2"), Mockito.anyListOf(String.class));
+		Assertions.assertEquals(1, handled.size());
+
+		// ...such as an 'update now'
+		testee.runOnce();
+		testee.perform();
+		verify(sheetsClient, times(2)).fetch(Mockito.eq("sheet2"), Mockito.anyListOf(String.class));
+	}
+
+	@Test
+	public void test_transientFailure_backsOffOnlyThatProject() throws Exception {
+		when(sheetsClient.fetch(Mockito.eq("sheet2"), Mockito.anyListOf(String.class)))
+				.thenThrow(new UnknownHostException("sheets.googleapis.com"));
+
+		testee.perform();
+		Assertions.assertTrue(handled.isEmpty(), "Expected a retry, not the user being told: " + handled);
+		Assertions.assertEquals(UpdateStatus.DEGRADED, testee.getStatus());
+		Assertions.assertTrue(testee.getStatusDetail().contains("'broken'"), testee.getStatusDetail());
+
+		// Not retried until its backoff is up, while the healthy project keeps going
+		testee.perform();
+		verify(sheetsClient, times(1)).fetch(Mockito.eq("sheet2"), Mockito.anyListOf(String.class));
+		verify(sheetsClient, times(2)).fetch(Mockito.eq("sheet1"), Mockito.anyListOf(String.class));
+	}
+
+	@Test
+	public void test_configFailure_newProjectNotAdded() throws Exception {
+		Mockito.doThrow(new IOException("Access is denied")).when(broken).setConfig(true);
+
+		testee.perform();
+		Assertions.assertEquals(1, handled.size());
+		Assertions.assertTrue(handled.get(0) instanceof IOException, handled.get(0).toString());
+		Assertions.assertEquals(Arrays.asList("healthy"), testee.getProjectNames());
+		Assertions.assertEquals(UpdateStatus.OK, testee.getStatus());
+
+		// Not run at all, even when asked to
+		testee.runOnce();
+		testee.perform();
+		verify(sheetsClient, Mockito.never()).fetch(Mockito.eq("sheet2"), Mockito.anyListOf(String.class));
+		verify(healthy, times(2)).update(Mockito.any(SheetsPayload.class), Mockito.anyListOf(String.class));
+	}
+
+	@Test
+	public void test_configFailure_existingProjectKeptAsItWas() throws Exception {
+		testee.perform();
+		Mockito.doThrow(new IOException("Access is denied")).when(healthy).setConfig(true);
+
+		testee.updateConfig(healthyConfig, true);
+		testee.runOnce();
+		testee.perform();
+		Assertions.assertEquals(1, handled.size());
+		Assertions.assertEquals("healthy", ((ProjectUpdateException) handled.get(0)).getProjectName());
+		Assertions.assertEquals(Arrays.asList("healthy", "broken"), testee.getProjectNames());
+		// Stays paused, rather than the next good cycle hiding it
+		Assertions.assertEquals(UpdateStatus.PAUSED, testee.getStatus());
+		Assertions.assertTrue(testee.getStatusDetail().contains("'healthy'"), testee.getStatusDetail());
+		verify(healthy, times(1)).update(Mockito.any(SheetsPayload.class), Mockito.anyListOf(String.class));
+
+		// Until a config is applied
+		Mockito.doNothing().when(healthy).setConfig(true);
+		testee.updateConfig(healthyConfig, true);
+		testee.perform();
+		Assertions.assertEquals(UpdateStatus.OK, testee.getStatus());
+		verify(healthy, times(2)).update(Mockito.any(SheetsPayload.class), Mockito.anyListOf(String.class));
+	}
+
+	@Test
+	public void test_reload_oneConfigBroken() throws Exception {
+		testee.perform();
+		Mockito.doThrow(new IOException("Unable to read config")).when(brokenConfig).reload();
+
+		// The broken one is reported by name; the other is still started anew
+		testee.reload(Arrays.asList(brokenConfig, healthyConfig));
+		testee.perform();
+		Assertions.assertEquals(1, handled.size());
+		Assertions.assertEquals("broken", ((ProjectUpdateException) handled.get(0)).getProjectName());
+		verify(healthyConfig).reload();
+		verify(healthy, times(2)).setConfig(true);
+		Assertions.assertEquals(UpdateStatus.PAUSED, testee.getStatus());
+		Assertions.assertTrue(testee.getStatusDetail().contains("'broken': config not applied"),
+				testee.getStatusDetail());
+	}
+
+	@Test
+	public void test_setAutoUpdate_tellsListener() throws Exception {
+		List<Boolean> changes = new ArrayList<>();
+		testee = new UpdateRunnable(handled::add, new IUpdateStatusListener() {
+			@Override
+			public void handleUpdateStatus(UpdateStatus status, String detail) {
+			}
+
+			@Override
+			public void handleAutoUpdateChange(boolean autoUpdate) {
+				changes.add(autoUpdate);
+			}
+		}, sheetsClient, h -> healthy);
+		testee.updateConfig(healthyConfig, true);
+
+		// e.g. from /autoupdate?off, so the UI can follow
+		testee.setAutoUpdate(false);
+		testee.perform();
+		verify(healthyConfig).setAutoUpdate(false);
+		Assertions.assertEquals(Arrays.asList(false), changes);
+	}
+
+	@Test
+	public void test_getBackoff_cappedAtMax() {
+		long max = Math.max(testee.getInterval(), PropertiesHolder.get().getMaxUpdateBackoff());
+		Assertions.assertTrue(testee.getBackoff(1) <= testee.getInterval());
+		for (int attempt = 1; attempt < 40; attempt++) {
+			long backoff = testee.getBackoff(attempt);
+			Assertions.assertTrue(backoff > 0 && backoff <= max, "Attempt " + attempt + ": " + backoff);
+		}
+	}
+
+	private void setUpProject(ConfigHolder configHolder, UpdateController updater, String name, String spreadsheetId) {
+		when(configHolder.getProjectName()).thenReturn(name);
+		when(configHolder.isAutoUpdate()).thenReturn(true);
+		when(updater.getProjectName()).thenReturn(name);
+		when(updater.getSpreadsheetId()).thenReturn(spreadsheetId);
+		when(updater.getWorksheets()).thenReturn(Arrays.asList("Sheet1"));
+	}
+
+	@Test
+	public void test_runOnceCoalesces() throws Exception {
+		UpdateRunnable testee = new UpdateRunnable(e -> Assertions.fail(e), (status, detail) -> {
+		});
+		CompletableFuture<UpdateResult> first = testee.runOnce();
+		CompletableFuture<UpdateResult> second = testee.runOnce();
+
+		// Both answered by the one cycle; there's nothing loaded to change
+		Assertions.assertSame(first, second);
+		testee.perform();
+		Assertions.assertTrue(first.isDone());
+		Assertions.assertTrue(first.get().getChangedCells().isEmpty());
+
+		// Anything asked for once the cycle has begun waits for the next
+		CompletableFuture<UpdateResult> third = testee.runOnce();
+		Assertions.assertNotSame(first, third);
+		Assertions.assertFalse(third.isDone());
+		testee.perform();
+		Assertions.assertTrue(third.isDone());
+	}
+}